@@ -16,12 +16,20 @@ import com.fasterxml.jackson.annotation.JsonProperty;
         indexes = {
                 @Index(columnList = "hotel_id", name = "idx_hotel_id"),
                 @Index(columnList = "user_id", name = "idx_user_id"),
+                // Covers the capacity check: equality on hotel and status, range on the stay, guests read from the index
+                @Index(columnList = "hotel_id, booking_status, check_in_date, check_out_date, number_of_guests", name = "idx_bookings_capacity"),
         }
 )
 public class Booking extends PanacheEntityBase {
 
+    // Ids handed out per round trip to booking_id_seq, shared with ReactiveBookingIdAllocator
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // MySQL has no sequences, Hibernate emulates this one with the booking_id_seq table. Unlike IDENTITY the id
+    // is known before the INSERT, so inserts can be JDBC batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_id")
+    @SequenceGenerator(name = "booking_id", sequenceName = "booking_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     public Long id;
 
     @ManyToOne
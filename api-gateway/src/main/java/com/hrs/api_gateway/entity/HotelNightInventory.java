@@ -0,0 +1,44 @@
+package com.hrs.api_gateway.entity;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "hotel_night_inventory")
+@IdClass(HotelNightInventory.Key.class)
+public class HotelNightInventory extends PanacheEntityBase {
+
+    @Id
+    @Column(name = "hotel_id")
+    public Long hotelId;
+
+    @Id
+    @Column(name = "night")
+    public LocalDate night;
+
+    @Column(name = "booked", nullable = false)
+    public Integer booked;
+
+    @Version // Bumped by every change, batch admission writes its rows back with a version check
+    @Column(name = "version", nullable = false)
+    public Long version;
+
+    public HotelNightInventory() {
+    }
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        public Long hotelId;
+        public LocalDate night;
+    }
+}
@@ -0,0 +1,11 @@
+package com.hrs.api_gateway.exception;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+public class CacheUnavailableException extends WebApplicationException {
+
+    public CacheUnavailableException(String message) {
+        super(message, Response.Status.SERVICE_UNAVAILABLE); // 503, the caller may retry once Redis is back
+    }
+}
@@ -1,66 +1,148 @@
 package com.hrs.api_gateway.interceptor;
 
-import io.quarkus.redis.client.RedisClient;
-import io.vertx.core.json.JsonObject;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.IdempotentResponse;
+import com.hrs.api_gateway.service.IdempotencyStore;
+import com.hrs.api_gateway.utils.ClientIdentity;
 import jakarta.annotation.Priority;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.server.spi.ResteasyReactiveContainerRequestContext;
 
 import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
 
+/**
+ * Makes POST and PUT safe to retry. The Idempotency-Key is reserved atomically before the handler runs, a
+ * concurrent duplicate waits for the first request and replays its response, and the response is captured here
+ * once serialized so every replay is byte-identical without touching the database.
+ */
 @Provider
 @Priority(Priorities.USER + 100)
-public class IdempotencyInterceptor implements ContainerRequestFilter {
+public class IdempotencyInterceptor implements ContainerRequestFilter, ContainerResponseFilter {
 
     private static final Logger LOG = Logger.getLogger(IdempotencyInterceptor.class);
 
     private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // Request properties carrying the reservation from the request filter to the response filter
+    private static final String KEY_PROPERTY = "idempotencyKey";
+    private static final String TOKEN_PROPERTY = "idempotencyToken";
+
+    // POST only because the payload is too big for a query string, nothing is written
+    private static final Set<String> READ_ONLY_POST_PATHS = Set.of("/api/v1/hotels/lookup");
+
+    @Inject
+    IdempotencyStore idempotencyStore;
 
     @Inject
-    RedisClient redisClient;
+    ObjectMapper objectMapper;
 
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
         String method = requestContext.getMethod();
+        String path = requestContext.getUriInfo().getPath();
 
         // Apply idempotency check only for POST and PUT methods
-        if ("POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method)) {
-            String idempotencyKey = requestContext.getHeaderString(IDEMPOTENCY_KEY_HEADER);
-            String path = requestContext.getUriInfo().getPath();
-
-            if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
-                LOG.warnf("Missing %s header for %s request to %s", IDEMPOTENCY_KEY_HEADER, method, path);
-                requestContext.abortWith(Response.status(Response.Status.BAD_REQUEST.getStatusCode()).entity("Missing Idempotency-Key header for " + method + " request").build());
-                return;
-            }
-
-            // Check if the idempotency key exists in Redis
-            io.vertx.redis.client.Response redisResponse = redisClient.get(idempotencyKey);
-            if (redisResponse != null) {
-                String cachedResponse = redisResponse.toString();
-                // Key exists, return the stored response
-                LOG.infof("Returning cached response for idempotency key: %s, method: %s, path: %s", idempotencyKey, method, path);
-                JsonObject jsonResponse = new JsonObject(cachedResponse);
-                int statusCode = jsonResponse.getInteger("status");
-                String body = jsonResponse.getString("body");
-
-                requestContext.abortWith(Response.status(statusCode).entity(body).build());
-                return;
-            }
-
-            // Proceed with processing the request and store the response
-            requestContext.setProperty("idempotencyKey", idempotencyKey);
-            requestContext.setProperty("requestMethod", method);
-            requestContext.setProperty("requestPath", path);
-            requestContext.setProperty("requestBody", requestContext.getEntityStream().toString());
-        } else {
+        if (!("POST".equalsIgnoreCase(method) && !READ_ONLY_POST_PATHS.contains(path)) && !"PUT".equalsIgnoreCase(method)) {
             // For methods other than POST and PUT, just proceed without idempotency check
-            LOG.debugf("IdempotencyInterceptor bypassed for %s request to %s", method, requestContext.getUriInfo().getPath());
+            LOG.debugf("IdempotencyInterceptor bypassed for %s request to %s", method, path);
+            return;
+        }
+
+        String idempotencyKey = requestContext.getHeaderString(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null || idempotencyKey.trim().isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            LOG.warnf("Missing or invalid %s header for %s request to %s", IDEMPOTENCY_KEY_HEADER, method, path);
+            requestContext.abortWith(Response.status(Response.Status.BAD_REQUEST.getStatusCode()).entity("Missing Idempotency-Key header for " + method + " request").build());
+            return;
+        }
+
+        String key = IdempotencyStore.key(ClientIdentity.idempotencyNamespace(requestContext), method, path, idempotencyKey);
+        String token = UUID.randomUUID().toString();
+
+        // Reserve without blocking the calling thread, a duplicate may wait here for the in-flight request
+        ResteasyReactiveContainerRequestContext reactiveContext = (ResteasyReactiveContainerRequestContext) requestContext;
+        reactiveContext.suspend();
+        idempotencyStore.reserveOrAwait(key, token)
+                .subscribe().with(stored -> {
+                    if (stored == null) {
+                        requestContext.setProperty(KEY_PROPERTY, key);
+                        requestContext.setProperty(TOKEN_PROPERTY, token);
+                    } else {
+                        LOG.infof("Returning cached response for idempotency key: %s, method: %s, path: %s", idempotencyKey, method, path);
+                        requestContext.abortWith(replay(stored));
+                    }
+                    reactiveContext.resume();
+                }, failure -> {
+                    if (failure instanceof IllegalStateException) {
+                        LOG.warnf("Duplicate %s request to %s timed out waiting for idempotency key: %s", method, path, idempotencyKey);
+                        requestContext.abortWith(Response.status(Response.Status.CONFLICT).entity(failure.getMessage()).build());
+                        reactiveContext.resume();
+                    } else {
+                        reactiveContext.resume(failure);
+                    }
+                });
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        String key = (String) requestContext.getProperty(KEY_PROPERTY);
+        String token = (String) requestContext.getProperty(TOKEN_PROPERTY);
+        if (key == null || token == null) {
+            return; // Not idempotent, or this is a replay
+        }
+
+        ResteasyReactiveContainerRequestContext reactiveContext = (ResteasyReactiveContainerRequestContext) requestContext;
+        if (responseContext.getStatus() >= 500) {
+            // Server errors are not final, let a retry run the request again
+            reactiveContext.suspend();
+            idempotencyStore.release(key, token).subscribe().with(ignored -> reactiveContext.resume(), reactiveContext::resume);
+            return;
+        }
+
+        IdempotentResponse captured;
+        try {
+            captured = capture(responseContext);
+        } catch (JsonProcessingException e) {
+            LOG.warnf(e, "Could not capture response for idempotency key %s", key);
+            reactiveContext.suspend();
+            idempotencyStore.release(key, token).subscribe().with(ignored -> reactiveContext.resume(), reactiveContext::resume);
+            return;
+        }
+        // Stored before the response leaves, so a retry arriving right after it always finds the result
+        reactiveContext.suspend();
+        idempotencyStore.complete(key, token, captured).subscribe().with(ignored -> reactiveContext.resume(), reactiveContext::resume);
+    }
+
+    // Serializes the entity once, and sends exactly those bytes so the first response and every replay match
+    private IdempotentResponse capture(ContainerResponseContext responseContext) throws JsonProcessingException {
+        Object entity = responseContext.getEntity();
+        if (entity == null) {
+            return new IdempotentResponse(responseContext.getStatus(), null, null);
+        }
+        MediaType mediaType = responseContext.getMediaType() == null ? MediaType.APPLICATION_JSON_TYPE : responseContext.getMediaType();
+        String body = entity instanceof String text ? text : objectMapper.writeValueAsString(entity);
+        responseContext.setEntity(body, responseContext.getEntityAnnotations(), mediaType);
+        return new IdempotentResponse(responseContext.getStatus(), mediaType.toString(), body);
+    }
+
+    private Response replay(IdempotentResponse stored) {
+        Response.ResponseBuilder response = Response.status(stored.getStatus()).header(REPLAYED_HEADER, "true");
+        if (stored.getBody() != null) {
+            response.entity(stored.getBody()).type(stored.getMediaType());
         }
+        return response.build();
     }
-}
\ No newline at end of file
+}
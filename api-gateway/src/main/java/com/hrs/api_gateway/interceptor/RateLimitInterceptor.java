@@ -1,8 +1,11 @@
 package com.hrs.api_gateway.interceptor;
 
+import com.hrs.api_gateway.service.DistributedTokenBucket;
+import com.hrs.api_gateway.utils.ClientIdentity;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Priority;
 import jakarta.inject.Inject;
-import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
@@ -10,13 +13,11 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
+import org.jboss.resteasy.reactive.server.spi.ResteasyReactiveContainerRequestContext;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 @Provider
 @Priority(Priorities.AUTHENTICATION - 100) // Run before authentication/authorization (or adjust priority as needed)
@@ -24,9 +25,13 @@ public class RateLimitInterceptor implements ContainerRequestFilter {
 
     private static final Logger LOG = Logger.getLogger(RateLimitInterceptor.class);
 
-    private final Map<String, TokenBucket> tokenBuckets = new ConcurrentHashMap<>();
+    @Inject
+    DistributedTokenBucket tokenBucket;
 
-    @ConfigProperty(name = "quarkus.rate-limit.capacity", defaultValue = "100") // Configure in application.properties
+    @Inject
+    RoutingContext routingContext; // Request scoped, for the caller's address
+
+    @ConfigProperty(name = "quarkus.rate-limit.capacity", defaultValue = "100") // Default burst for routes without their own limit
     int capacity;
 
     @ConfigProperty(name = "quarkus.rate-limit.refill-rate", defaultValue = "10") // Configure refill rate
@@ -35,86 +40,98 @@ public class RateLimitInterceptor implements ContainerRequestFilter {
     @ConfigProperty(name = "quarkus.rate-limit.refill-interval", defaultValue = "1") // Configure refill interval (seconds)
     int refillIntervalSeconds;
 
+    // Guarded routes as "METHOD /path[=capacity/refill-rate]", a trailing * matches any path below the prefix
+    @ConfigProperty(name = "quarkus.rate-limit.routes", defaultValue = "POST /api/v1/bookings")
+    List<String> routeSpecs;
+
+    private List<RouteLimit> routes;
+
+    @PostConstruct
+    void init() {
+        routes = new ArrayList<>();
+        for (String spec : routeSpecs) {
+            routes.add(RouteLimit.parse(spec.trim(), capacity, refillRate, refillIntervalSeconds));
+        }
+        LOG.infof("Rate limiting %s", routes);
+    }
 
     @Override
     public void filter(ContainerRequestContext requestContext) throws IOException {
         String path = requestContext.getUriInfo().getPath();
         String method = requestContext.getMethod();
 
-        // Apply rate limiting only to POST /api/v1/bookings endpoint
-        if ("POST".equalsIgnoreCase(method) && "/api/v1/bookings".equals(path)) {
-            String clientId = getClientId(requestContext); // Identify client (e.g., IP address, API key - for simplicity, using path+method for now)
-            String rateLimitKey = method + ":" + path + ":" + clientId; // Unique key per endpoint and client
-
-            TokenBucket tokenBucket = tokenBuckets.computeIfAbsent(rateLimitKey, k -> new TokenBucket(capacity, refillRate, Duration.ofSeconds(refillIntervalSeconds)));
-
-            if (!tokenBucket.allowRequest()) {
-                LOG.warnf("Rate limit exceeded for client: %s, endpoint: %s", clientId, path);
-                requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
-                        .entity("Rate limit exceeded. Please try again later.")
-                        .build());
-            } else {
-                LOG.debugf("Request allowed, tokens remaining for client: %s, endpoint: %s, tokens: %s", clientId, path, tokenBucket.getTokens());
-            }
-        } else {
+        RouteLimit route = findRoute(method, path);
+        if (route == null) {
             LOG.debugf("RateLimitInterceptor bypassed for %s request to %s", method, path);
+            return;
         }
-    }
 
-    private String getClientId(ContainerRequestContext requestContext) {
-        // In a real application, you would identify the client based on:
-        // - API Key (from header or query parameter)
-        // - User ID (from authentication context)
-        // - IP Address (requestContext.getSecurityContext().getUserPrincipal() - for authenticated users)
-        // - Or a combination of these.
-        // For simplicity in this example, we are just using a constant clientId (or path+method)
-        return "default-client"; // Or requestContext.getRemoteAddress().getHostAddress(); for IP-based limiting (be mindful of shared IPs)
+        String clientId = ClientIdentity.resolve(requestContext, routingContext.request());
+        String bucketId = route.id() + ":" + clientId; // One shared bucket per route and client across all instances
+        DistributedTokenBucket.LocalDecision decision = tokenBucket.tryAcquireLeased(bucketId);
+        if (decision == DistributedTokenBucket.LocalDecision.ALLOWED) {
+            return; // Spent a locally leased token, no Redis round trip
+        }
+        if (decision == DistributedTokenBucket.LocalDecision.DENIED) {
+            reject(requestContext, clientId, path);
+            return;
+        }
+
+        // Lease more tokens from Redis without blocking the calling thread, which may be the event loop
+        ResteasyReactiveContainerRequestContext reactiveContext = (ResteasyReactiveContainerRequestContext) requestContext;
+        reactiveContext.suspend();
+        tokenBucket.acquire(bucketId, route.capacity(), route.refillPerSecond())
+                .subscribe().with(allowed -> {
+                    if (!allowed) {
+                        reject(reactiveContext, clientId, path);
+                    }
+                    reactiveContext.resume();
+                }, reactiveContext::resume);
     }
 
+    private void reject(ContainerRequestContext requestContext, String clientId, String path) {
+        LOG.warnf("Rate limit exceeded for client: %s, endpoint: %s", clientId, path);
+        requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .entity("Rate limit exceeded. Please try again later.")
+                .build());
+    }
 
-    // Inner TokenBucket class (Simple In-Memory Token Bucket Implementation), consider to use Redis for distributed bucket across multi api-gateway instances
-    private static class TokenBucket {
-        private final int capacity;
-        private final int refillRate;
-        private final Duration refillInterval;
-        private AtomicInteger tokens;
-        private Instant lastRefillTime;
-
-        public TokenBucket(int capacity, int refillRate, Duration refillInterval) {
-            this.capacity = capacity;
-            this.refillRate = refillRate;
-            this.refillInterval = refillInterval;
-            this.tokens = new AtomicInteger(capacity); // Start with full bucket
-            this.lastRefillTime = Instant.now();
+    private RouteLimit findRoute(String method, String path) {
+        for (RouteLimit route : routes) {
+            if (route.matches(method, path)) {
+                return route;
+            }
         }
+        return null;
+    }
 
-        public boolean allowRequest() {
-            refill(); // Refill tokens before attempting to consume
+    record RouteLimit(String method, String path, boolean prefix, int capacity, double refillPerSecond) {
 
-            if (tokens.get() > 0) {
-                tokens.decrementAndGet();
-                return true; // Request allowed
-            } else {
-                return false; // Rate limit exceeded
+        static RouteLimit parse(String spec, int defaultCapacity, int defaultRefillRate, int refillIntervalSeconds) {
+            String[] limitAndRoute = spec.split("=", 2);
+            String[] methodAndPath = limitAndRoute[0].trim().split("\\s+", 2);
+            if (methodAndPath.length != 2) {
+                throw new IllegalArgumentException("Rate limit route must be 'METHOD /path[=capacity/refill-rate]': " + spec);
             }
+            int capacity = defaultCapacity;
+            int refillRate = defaultRefillRate;
+            if (limitAndRoute.length == 2) {
+                String[] limit = limitAndRoute[1].trim().split("/");
+                capacity = Integer.parseInt(limit[0].trim());
+                refillRate = limit.length > 1 ? Integer.parseInt(limit[1].trim()) : defaultRefillRate;
+            }
+            String path = methodAndPath[1].trim();
+            boolean prefix = path.endsWith("*");
+            return new RouteLimit(methodAndPath[0].toUpperCase(), prefix ? path.substring(0, path.length() - 1) : path, prefix,
+                    capacity, (double) refillRate / refillIntervalSeconds);
         }
 
-        public int getTokens() {
-            refill(); // Ensure tokens are refilled before getting count
-            return tokens.get();
+        boolean matches(String requestMethod, String requestPath) {
+            return method.equalsIgnoreCase(requestMethod) && (prefix ? requestPath.startsWith(path) : path.equals(requestPath));
         }
 
-        private void refill() {
-            Instant now = Instant.now();
-            long durationSinceLastRefill = Duration.between(lastRefillTime, now).toSeconds();
-            if (durationSinceLastRefill >= refillInterval.getSeconds()) {
-                int tokensToAdd = (int) (durationSinceLastRefill / refillInterval.getSeconds()) * refillRate;
-                tokens.getAndAccumulate(tokensToAdd, Math::min); // Add tokens, but not exceeding capacity
-                lastRefillTime = now;
-                if (tokens.get() > capacity) { // Ensure tokens never exceed capacity
-                    tokens.set(capacity);
-                }
-            }
+        String id() {
+            return method + ":" + path + (prefix ? "*" : "");
         }
     }
-}
\ No newline at end of file
+}
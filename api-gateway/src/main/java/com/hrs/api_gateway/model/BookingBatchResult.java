@@ -0,0 +1,16 @@
+package com.hrs.api_gateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingBatchResult {
+
+    private int index; // Position of the booking in the request
+    private int status; // HTTP status the booking would have had on POST /api/v1/bookings
+    private BookingDTO booking; // Created booking, null unless status is 201
+    private String error;
+}
@@ -0,0 +1,15 @@
+package com.hrs.api_gateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotentResponse {
+
+    private int status;
+    private String mediaType; // Null when the original response had no body
+    private String body; // Exactly as serialized for the first request, replayed byte for byte
+}
@@ -0,0 +1,16 @@
+package com.hrs.api_gateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPage<T> {
+
+    private List<T> items;
+    private String nextCursor; // Opaque search_after token for the following page, null on the last page
+}
@@ -1,19 +1,71 @@
 package com.hrs.api_gateway.repository;
 
 import com.hrs.api_gateway.entity.Booking;
+import com.hrs.api_gateway.entity.BookingStatus;
+import com.hrs.api_gateway.model.BookingDTO;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.hibernate.jpa.AvailableHints;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class BookingRepository implements PanacheRepository<Booking> {
 
-    public List<Booking> findByUserId(Long userId) {
-        return list("user.id", userId);
+    // Makes Connector/J stream rows one at a time instead of buffering the whole result set
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    // Reads only the booking columns and the two FK ids, no Booking, Hotel or User entities are hydrated
+    private static final String DTO_SELECT = "select new com.hrs.api_gateway.model.BookingDTO("
+            + "b.id, b.hotel.id, b.user.id, b.checkinDate, b.checkoutDate, b.numberOfGuests, b.totalPrice, b.bookingStatus) from Booking b";
+
+    public List<BookingDTO> findPageByUserId(Long userId, Long afterId, int limit) {
+        return findPage("b.user.id", userId, afterId, limit);
+    }
+
+    public List<BookingDTO> findPageByHotelId(Long hotelId, Long afterId, int limit) {
+        return findPage("b.hotel.id", hotelId, afterId, limit);
     }
 
-    public List<Booking> findByHotelId(Long hotelId) {
-        return list("hotel.id", hotelId);
+    public Stream<BookingDTO> streamByUserId(Long userId) {
+        return streamBy("b.user.id", userId);
+    }
+
+    public Stream<BookingDTO> streamByHotelId(Long hotelId) {
+        return streamBy("b.hotel.id", hotelId);
+    }
+
+    // Keyset page: the bookings after afterId in id order, so page N costs the same as page 1
+    private List<BookingDTO> findPage(String ownerIdPath, Long ownerId, Long afterId, int limit) {
+        return getEntityManager()
+                .createQuery(DTO_SELECT + " where " + ownerIdPath + " = :ownerId and b.id > :afterId order by b.id", BookingDTO.class)
+                .setParameter("ownerId", ownerId)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private Stream<BookingDTO> streamBy(String ownerIdPath, Long ownerId) {
+        return getEntityManager()
+                .createQuery(DTO_SELECT + " where " + ownerIdPath + " = :ownerId order by b.id", BookingDTO.class)
+                .setParameter("ownerId", ownerId)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, MYSQL_STREAMING_FETCH_SIZE)
+                .getResultStream();
+    }
+
+    // Answered from idx_bookings_capacity alone, see BookingCapacityQueryPlanTest
+    static final String SUM_GUESTS_OVERLAPPING = "SELECT COALESCE(SUM(number_of_guests), 0) FROM bookings "
+            + "WHERE hotel_id = :hotelId AND booking_status = :status AND check_in_date < :checkoutDate AND check_out_date > :checkinDate";
+
+    // Guests of the bookings in the given status overlapping [checkinDate, checkoutDate), summed by MySQL
+    public int sumGuestsOverlapping(Long hotelId, BookingStatus bookingStatus, LocalDateTime checkinDate, LocalDateTime checkoutDate) {
+        return ((Number) getEntityManager().createNativeQuery(SUM_GUESTS_OVERLAPPING)
+                .setParameter("hotelId", hotelId)
+                .setParameter("status", bookingStatus.name())
+                .setParameter("checkinDate", checkinDate)
+                .setParameter("checkoutDate", checkoutDate)
+                .getSingleResult()).intValue();
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.hrs.api_gateway.repository;
+
+import com.hrs.api_gateway.entity.HotelNightInventory;
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.LockModeType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ApplicationScoped
+public class HotelNightInventoryRepository implements PanacheRepositoryBase<HotelNightInventory, HotelNightInventory.Key> {
+
+    public List<HotelNightInventory> findNights(Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return list("hotelId = ?1 and night >= ?2 and night < ?3 order by night", hotelId, fromNight, toNight);
+    }
+
+    // Plain read, under read-committed it takes no locks
+    public long countNights(Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return count("hotelId = ?1 and night >= ?2 and night < ?3", hotelId, fromNight, toNight);
+    }
+
+    // Same nights, locked until commit so other bookers of these nights wait for the caller
+    public List<HotelNightInventory> findNightsForUpdate(Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return find("hotelId = ?1 and night >= ?2 and night < ?3 order by night", hotelId, fromNight, toNight)
+                .withLock(LockModeType.PESSIMISTIC_WRITE)
+                .list();
+    }
+
+    // Creates the missing nights in [fromNight, toNight), seeded with the guests of bookings made before the night was
+    // tracked. Nights that already exist are skipped before the INSERT, so it never waits on their row locks; IGNORE
+    // only covers another seeder inserting the same night first. Inserts nothing for an unknown hotel
+    public int insertMissingNights(Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return getEntityManager().createNativeQuery(
+                        "INSERT IGNORE INTO hotel_night_inventory (hotel_id, night, booked, version) " +
+                        "WITH RECURSIVE nights (night) AS (" +
+                        "  SELECT CAST(:fromNight AS DATE) " +
+                        "  UNION ALL SELECT night + INTERVAL 1 DAY FROM nights WHERE night + INTERVAL 1 DAY < :toNight) " +
+                        "SELECT :hotelId, n.night, COALESCE(SUM(b.number_of_guests), 0), 0 " +
+                        "FROM nights n JOIN hotels h ON h.id = :hotelId " +
+                        "LEFT JOIN bookings b ON b.hotel_id = :hotelId AND b.booking_status = 'PENDING' " +
+                        "  AND DATE(b.check_in_date) <= n.night " +
+                        "  AND n.night < GREATEST(DATE(b.check_out_date), DATE(b.check_in_date) + INTERVAL 1 DAY) " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM hotel_night_inventory i WHERE i.hotel_id = :hotelId AND i.night = n.night) " +
+                        "GROUP BY n.night")
+                .setParameter("hotelId", hotelId)
+                .setParameter("fromNight", fromNight)
+                .setParameter("toNight", toNight)
+                .executeUpdate();
+    }
+
+    // Adds guests to every night only if none of them would exceed capacity; returns the number of nights updated
+    public int incrementWithinCapacity(Long hotelId, LocalDate fromNight, LocalDate toNight, int guests, int capacity) {
+        return getEntityManager().createNativeQuery(
+                        "UPDATE hotel_night_inventory SET booked = booked + :guests, version = version + 1 " +
+                        "WHERE hotel_id = :hotelId AND night >= :fromNight AND night < :toNight AND booked + :guests <= :capacity")
+                .setParameter("guests", guests)
+                .setParameter("capacity", capacity)
+                .setParameter("hotelId", hotelId)
+                .setParameter("fromNight", fromNight)
+                .setParameter("toNight", toNight)
+                .executeUpdate();
+    }
+
+    public int increment(Long hotelId, LocalDate fromNight, LocalDate toNight, int delta) {
+        return getEntityManager().createNativeQuery(
+                        "UPDATE hotel_night_inventory SET booked = booked + :delta, version = version + 1 " +
+                        "WHERE hotel_id = :hotelId AND night >= :fromNight AND night < :toNight")
+                .setParameter("delta", delta)
+                .setParameter("hotelId", hotelId)
+                .setParameter("fromNight", fromNight)
+                .setParameter("toNight", toNight)
+                .executeUpdate();
+    }
+}
@@ -4,6 +4,12 @@ import com.hrs.api_gateway.entity.Hotel;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.LockModeType;
+import org.hibernate.jpa.AvailableHints;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class HotelRepository implements PanacheRepository<Hotel> {
@@ -13,4 +19,60 @@ public class HotelRepository implements PanacheRepository<Hotel> {
                 .withLock(LockModeType.PESSIMISTIC_WRITE) // Use Pessimistic Write Lock (SELECT FOR UPDATE)
                 .firstResult();
     }
+
+    public List<Hotel> findByIds(Collection<Long> ids) {
+        return list("id in ?1", ids); // One IN query however many hotels are asked for
+    }
+
+    // Locks the hotel rows in id order, so two batches sharing hotels queue up instead of deadlocking
+    public List<Hotel> findByIdsForUpdate(Collection<Long> ids) {
+        return find("id in ?1 order by id", ids)
+                .withLock(LockModeType.PESSIMISTIC_WRITE)
+                .list();
+    }
+
+    // Streams [id, city, capacity] rows for the availability index without hydrating Hotel entities
+    public Stream<Object[]> streamDirectory() {
+        return getEntityManager()
+                .createQuery("select h.id, h.city, h.capacity from Hotel h", Object[].class)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, Integer.MIN_VALUE) // Connector/J streams row by row
+                .getResultStream();
+    }
+
+    // Streams [id, name, city, address, capacity] rows for the embedded search index
+    public Stream<Object[]> streamCatalog() {
+        return getEntityManager()
+                .createQuery("select h.id, h.name, h.city, h.address, h.capacity from Hotel h", Object[].class)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, Integer.MIN_VALUE)
+                .getResultStream();
+    }
+
+    // Hotels with room for the guests on every night in [fromNight, toNight) according to the night counters, in id order.
+    // A night nobody booked through the counters has no row yet; its guests are summed from the PENDING bookings the
+    // same way HotelNightInventoryRepository.insertMissingNights seeds it. cityKey is the trimmed, lowercased city
+    // (null for all), matched the same way as the in-memory availability index
+    @SuppressWarnings("unchecked")
+    public List<Long> findAvailableIds(String cityKey, LocalDate fromNight, LocalDate toNight, int guests, long afterId, int limit) {
+        return ((List<Number>) getEntityManager().createNativeQuery(
+                        "WITH RECURSIVE nights (night) AS (" +
+                        "  SELECT CAST(:fromNight AS DATE) " +
+                        "  UNION ALL SELECT night + INTERVAL 1 DAY FROM nights WHERE night + INTERVAL 1 DAY < :toNight) " +
+                        "SELECT h.id FROM hotels h WHERE (:city IS NULL OR LOWER(TRIM(h.city)) = :city) AND h.capacity >= :guests AND h.id > :afterId " +
+                        "AND NOT EXISTS (SELECT 1 FROM nights d " +
+                        "  LEFT JOIN hotel_night_inventory n ON n.hotel_id = h.id AND n.night = d.night " +
+                        "  WHERE COALESCE(n.booked, (SELECT COALESCE(SUM(b.number_of_guests), 0) FROM bookings b " +
+                        "    WHERE b.hotel_id = h.id AND b.booking_status = 'PENDING' AND DATE(b.check_in_date) <= d.night " +
+                        "    AND d.night < GREATEST(DATE(b.check_out_date), DATE(b.check_in_date) + INTERVAL 1 DAY))) + :guests > h.capacity) " +
+                        "ORDER BY h.id LIMIT :limit")
+                .setParameter("city", cityKey)
+                .setParameter("guests", guests)
+                .setParameter("afterId", afterId)
+                .setParameter("fromNight", fromNight)
+                .setParameter("toNight", toNight)
+                .setParameter("limit", limit)
+                .getResultList())
+                .stream()
+                .map(Number::longValue)
+                .toList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.hrs.api_gateway.repository;
+
+import com.hrs.api_gateway.entity.BookingStatus;
+import com.hrs.api_gateway.model.BookingDTO;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+
+/**
+ * Bookings over the reactive MySQL client. Every method takes the client to run on, so callers can pass the
+ * connection of an open transaction.
+ */
+@ApplicationScoped
+public class ReactiveBookingRepository {
+
+    private static final String SELECT_BOOKING = "SELECT id, hotel_id, user_id, check_in_date, check_out_date, number_of_guests, total_price, booking_status FROM bookings WHERE id = ?";
+
+    public Uni<BookingDTO> findById(SqlClient client, Long id) {
+        return client.preparedQuery(SELECT_BOOKING).execute(Tuple.of(id)).map(ReactiveBookingRepository::firstBooking);
+    }
+
+    // Row locked until the transaction ends, so concurrent updates of one booking cannot release its capacity twice
+    public Uni<BookingDTO> findByIdForUpdate(SqlClient client, Long id) {
+        return client.preparedQuery(SELECT_BOOKING + " FOR UPDATE").execute(Tuple.of(id)).map(ReactiveBookingRepository::firstBooking);
+    }
+
+    // The id comes from booking_id_seq like on the Hibernate path, never from AUTO_INCREMENT
+    public Uni<Integer> insert(SqlClient client, BookingDTO booking) {
+        return client.preparedQuery("INSERT INTO bookings (id, hotel_id, user_id, check_in_date, check_out_date, number_of_guests, total_price, booking_status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")
+                .execute(Tuple.from(new Object[]{booking.getId(), booking.getHotelId(), booking.getUserId(), booking.getCheckinDate(), booking.getCheckoutDate(),
+                        booking.getNumberOfGuests(), booking.getTotalPrice(), booking.getBookingStatus().name()}))
+                .map(RowSet::rowCount);
+    }
+
+    public Uni<Integer> update(SqlClient client, BookingDTO booking) {
+        return client.preparedQuery("UPDATE bookings SET hotel_id = ?, user_id = ?, check_in_date = ?, check_out_date = ?, number_of_guests = ?, total_price = ? WHERE id = ?")
+                .execute(Tuple.from(new Object[]{booking.getHotelId(), booking.getUserId(), booking.getCheckinDate(), booking.getCheckoutDate(),
+                        booking.getNumberOfGuests(), booking.getTotalPrice(), booking.getId()}))
+                .map(RowSet::rowCount);
+    }
+
+    public Uni<Integer> updateStatus(SqlClient client, Long id, BookingStatus bookingStatus) {
+        return client.preparedQuery("UPDATE bookings SET booking_status = ? WHERE id = ?")
+                .execute(Tuple.of(bookingStatus.name(), id))
+                .map(RowSet::rowCount);
+    }
+
+    // Guests of the PENDING bookings overlapping the stay, same fallback as the blocking capacity check.
+    // A locking read, so it sees the latest commits even under the reactive connections' REPEATABLE READ snapshot
+    public Uni<Integer> sumGuestsOverlapping(SqlClient client, Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate) {
+        return client.preparedQuery("SELECT COALESCE(SUM(number_of_guests), 0) FROM bookings WHERE hotel_id = ? AND booking_status = ? AND check_out_date > ? AND check_in_date < ? FOR SHARE")
+                .execute(Tuple.of(hotelId, BookingStatus.PENDING.name(), checkinDate, checkoutDate))
+                .map(rows -> rows.iterator().next().getNumeric(0).intValue());
+    }
+
+    private static BookingDTO firstBooking(RowSet<Row> rows) {
+        Iterator<Row> iterator = rows.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Row row = iterator.next();
+        return new BookingDTO(row.getLong("id"), row.getLong("hotel_id"), row.getLong("user_id"),
+                row.getLocalDateTime("check_in_date"), row.getLocalDateTime("check_out_date"), row.getInteger("number_of_guests"),
+                row.getLong("total_price"), BookingStatus.valueOf(row.getString("booking_status")));
+    }
+}
@@ -0,0 +1,55 @@
+package com.hrs.api_gateway.repository;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.LocalDate;
+
+/**
+ * Same statements as {@link HotelNightInventoryRepository}, over the reactive MySQL client.
+ */
+@ApplicationScoped
+public class ReactiveHotelNightInventoryRepository {
+
+    public Uni<Long> countNights(SqlClient client, Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return client.preparedQuery("SELECT COUNT(*) FROM hotel_night_inventory WHERE hotel_id = ? AND night >= ? AND night < ?")
+                .execute(Tuple.of(hotelId, fromNight, toNight))
+                .map(rows -> rows.iterator().next().getLong(0));
+    }
+
+    public Uni<Integer> insertMissingNights(SqlClient client, Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return client.preparedQuery(
+                        "INSERT IGNORE INTO hotel_night_inventory (hotel_id, night, booked, version) " +
+                        "WITH RECURSIVE nights (night) AS (" +
+                        "  SELECT CAST(? AS DATE) " +
+                        "  UNION ALL SELECT night + INTERVAL 1 DAY FROM nights WHERE night + INTERVAL 1 DAY < ?) " +
+                        "SELECT ?, n.night, COALESCE(SUM(b.number_of_guests), 0), 0 " +
+                        "FROM nights n JOIN hotels h ON h.id = ? " +
+                        "LEFT JOIN bookings b ON b.hotel_id = ? AND b.booking_status = 'PENDING' " +
+                        "  AND DATE(b.check_in_date) <= n.night " +
+                        "  AND n.night < GREATEST(DATE(b.check_out_date), DATE(b.check_in_date) + INTERVAL 1 DAY) " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM hotel_night_inventory i WHERE i.hotel_id = ? AND i.night = n.night) " +
+                        "GROUP BY n.night")
+                .execute(Tuple.from(new Object[]{fromNight, toNight, hotelId, hotelId, hotelId, hotelId}))
+                .map(RowSet::rowCount);
+    }
+
+    public Uni<Integer> incrementWithinCapacity(SqlClient client, Long hotelId, LocalDate fromNight, LocalDate toNight, int guests, int capacity) {
+        return client.preparedQuery(
+                        "UPDATE hotel_night_inventory SET booked = booked + ?, version = version + 1 " +
+                        "WHERE hotel_id = ? AND night >= ? AND night < ? AND booked + ? <= ?")
+                .execute(Tuple.from(new Object[]{guests, hotelId, fromNight, toNight, guests, capacity}))
+                .map(RowSet::rowCount);
+    }
+
+    public Uni<Integer> increment(SqlClient client, Long hotelId, LocalDate fromNight, LocalDate toNight, int delta) {
+        return client.preparedQuery(
+                        "UPDATE hotel_night_inventory SET booked = booked + ?, version = version + 1 " +
+                        "WHERE hotel_id = ? AND night >= ? AND night < ?")
+                .execute(Tuple.of(delta, hotelId, fromNight, toNight))
+                .map(RowSet::rowCount);
+    }
+}
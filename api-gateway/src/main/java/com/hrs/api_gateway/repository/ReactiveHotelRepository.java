@@ -0,0 +1,41 @@
+package com.hrs.api_gateway.repository;
+
+import com.hrs.api_gateway.entity.Hotel;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowSet;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.Iterator;
+
+/**
+ * Hotel reads the reactive booking path needs. The returned Hotel is a detached value, not a managed entity.
+ */
+@ApplicationScoped
+public class ReactiveHotelRepository {
+
+    private static final String SELECT_HOTEL = "SELECT id, name, city, address, capacity FROM hotels WHERE id = ?";
+
+    public Uni<Hotel> findById(SqlClient client, Long id) {
+        return client.preparedQuery(SELECT_HOTEL).execute(Tuple.of(id)).map(ReactiveHotelRepository::firstHotel);
+    }
+
+    public Uni<Hotel> findByIdForUpdate(SqlClient client, Long id) {
+        return client.preparedQuery(SELECT_HOTEL + " FOR UPDATE") // Same SELECT FOR UPDATE as HotelRepository.findByIdForUpdate
+                .execute(Tuple.of(id))
+                .map(ReactiveHotelRepository::firstHotel);
+    }
+
+    private static Hotel firstHotel(RowSet<Row> rows) {
+        Iterator<Row> iterator = rows.iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Row row = iterator.next();
+        Hotel hotel = new Hotel(row.getString("name"), row.getString("city"), row.getString("address"), row.getInteger("capacity"));
+        hotel.setId(row.getLong("id"));
+        return hotel;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hrs.api_gateway.repository;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.SqlClient;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class ReactiveUserRepository {
+
+    public Uni<Boolean> exists(SqlClient client, Long id) {
+        return client.preparedQuery("SELECT 1 FROM users WHERE id = ?")
+                .execute(Tuple.of(id))
+                .map(rows -> rows.size() > 0);
+    }
+}
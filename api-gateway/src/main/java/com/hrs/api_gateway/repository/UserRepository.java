@@ -4,6 +4,17 @@ import com.hrs.api_gateway.entity.User;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import java.util.Collection;
+import java.util.List;
+
 @ApplicationScoped
 public class UserRepository implements PanacheRepository<User> {
+
+    // Which of the ids exist, without loading the users
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        return getEntityManager()
+                .createQuery("select u.id from User u where u.id in :ids", Long.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
 }
\ No newline at end of file
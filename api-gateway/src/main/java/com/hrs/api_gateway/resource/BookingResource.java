@@ -2,19 +2,24 @@ package com.hrs.api_gateway.resource;
 
 import com.hrs.api_gateway.exception.BookingNotFoundException;
 import com.hrs.api_gateway.exception.InsufficientCapacityException;
+import com.hrs.api_gateway.model.BookingBatchResult;
 import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.model.SearchPage;
 import com.hrs.api_gateway.service.BookingService;
+import com.hrs.api_gateway.service.ReactiveBookingService;
 import com.hrs.api_gateway.utils.CommonHelper;
-import io.quarkus.redis.client.RedisClient;
-import io.vertx.core.json.JsonObject;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
-import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.core.UriInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -25,10 +30,10 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.jboss.logging.Logger;
 
-import java.io.IOException;
-import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 @Path("/api/v1/bookings")
 @Produces(MediaType.APPLICATION_JSON)
@@ -36,50 +41,95 @@ import java.util.List;
 public class BookingResource {
 
     private static final Logger LOG = Logger.getLogger(BookingResource.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String REACTIVE_PERSISTENCE = "reactive";
+    private static final String ALL_OR_NOTHING = "all-or-nothing";
+    private static final String PER_ITEM = "per-item";
+    private static final int MULTI_STATUS = 207;
 
     @Inject
     BookingService bookingService;
 
     @Inject
-    RedisClient redisClient;
+    ReactiveBookingService reactiveBookingService;
+
+    @Inject
+    @VirtualThreads
+    ExecutorService blockingExecutor;
+
+    // "blocking" runs the booking reads and writes on JDBC/Hibernate, "reactive" on the reactive MySQL client
+    @ConfigProperty(name = "quarkus.persistence.mode", defaultValue = "blocking")
+    String persistenceMode;
+
+    @ConfigProperty(name = "quarkus.booking-batch.max-size", defaultValue = "100")
+    int maxBatchSize;
+
+    // Result semantics of POST /batch when the request does not pick one
+    @ConfigProperty(name = "quarkus.booking-batch.mode", defaultValue = ALL_OR_NOTHING)
+    String defaultBatchMode;
 
     @Context
     UriInfo uriInfo;
 
     @GET
     @Path("/search")
-    @Operation(summary = "Search bookings by criteria (Elasticsearch)", description = "Searches bookings using Elasticsearch based on user ID, hotel ID, check-in date, and check-out date.")
-    @APIResponse(responseCode = "200", description = "Successful search", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingDTO.class)))
-    public List<BookingDTO> searchBookings(
+    @Operation(summary = "Search bookings by criteria (Elasticsearch)", description = "Searches bookings using Elasticsearch based on user ID, hotel ID, check-in date, and check-out date, ordered by booking ID. Pass the X-Next-Cursor response header back as cursor for the next page.")
+    @APIResponse(responseCode = "200", description = "Successful search, X-Next-Cursor is set when more bookings follow", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingDTO.class)))
+    public Uni<Response> searchBookings(
             @Parameter(description = "Filter by User ID") @QueryParam("userId") Long userId,
             @Parameter(description = "Filter by Hotel ID") @QueryParam("hotelId") Long hotelId,
             @Parameter(description = "Filter by check-in date (YYYY-MM-DD), find bookings with check-in date on or before this date") @QueryParam("checkinDate") String checkinDateStr,
-            @Parameter(description = "Filter by check-out date (YYYY-MM-DD), find bookings with check-out date on or after this date") @QueryParam("checkoutDate") String checkoutDateStr
-    ) throws IOException {
+            @Parameter(description = "Filter by check-out date (YYYY-MM-DD), find bookings with check-out date on or after this date") @QueryParam("checkoutDate") String checkoutDateStr,
+            @Parameter(description = "Maximum bookings per page, capped by quarkus.search.max-page-size") @QueryParam("size") Integer size,
+            @Parameter(description = "X-Next-Cursor value of the previous page") @QueryParam("cursor") String cursor
+    ) {
         LocalDate checkinDate = CommonHelper.parseLocalDate(checkinDateStr);
         LocalDate checkoutDate = CommonHelper.parseLocalDate(checkoutDateStr);
 
-        return bookingService.searchBookingsByCriteria(userId, hotelId, checkinDate, checkoutDate);
+        return bookingService.searchBookingsByCriteria(userId, hotelId, checkinDate, checkoutDate, size, cursor)
+                .map(page -> Response.ok(page.getItems()).header(NEXT_CURSOR_HEADER, page.getNextCursor()).build())
+                .onFailure(IllegalArgumentException.class).recoverWithItem(e -> Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build());
     }
 
     @GET
+    @RunOnVirtualThread
     @Path("/user/{userId}")
-    @Operation(summary = "Get bookings by User ID", description = "Retrieves all bookings associated with a specific user ID from the database.")
+    @Operation(summary = "Get bookings by User ID", description = "Retrieves the bookings of a user in booking ID order. Without size or cursor the whole history is streamed; with them one page is returned and X-Next-Cursor carries the cursor for the next one.")
     @APIResponse(responseCode = "200", description = "Successful retrieval", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingDTO.class)))
-    public List<BookingDTO> getBookingsByUserId(@Parameter(description = "User ID to filter bookings", required = true) @PathParam("userId") Long userId) {
-        return bookingService.getBookingsByUserId(userId);
+    public Response getBookingsByUserId(@Parameter(description = "User ID to filter bookings", required = true) @PathParam("userId") Long userId,
+                                        @Parameter(description = "Maximum bookings per page, capped by quarkus.booking-list.max-page-size") @QueryParam("size") Integer size,
+                                        @Parameter(description = "X-Next-Cursor value of the previous page") @QueryParam("cursor") String cursor) {
+        if (size == null && cursor == null) {
+            return Response.ok((StreamingOutput) output -> bookingService.writeBookingsByUserId(userId, output)).build();
+        }
+        return pageResponse(() -> bookingService.getBookingsByUserId(userId, size, cursor));
     }
 
     @GET
+    @RunOnVirtualThread
     @Path("/hotel/{hotelId}")
-    @Operation(summary = "Get bookings by Hotel ID", description = "Retrieves all bookings for a specific hotel ID from the database.")
+    @Operation(summary = "Get bookings by Hotel ID", description = "Retrieves the bookings of a hotel in booking ID order. Without size or cursor the whole list is streamed; with them one page is returned and X-Next-Cursor carries the cursor for the next one.")
     @APIResponse(responseCode = "200", description = "Successful retrieval", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingDTO.class)))
-    public List<BookingDTO> getBookingsByHotelId(@Parameter(description = "Hotel ID to filter bookings", required = true) @PathParam("hotelId") Long hotelId) {
-        return bookingService.getBookingsByHotelId(hotelId);
+    public Response getBookingsByHotelId(@Parameter(description = "Hotel ID to filter bookings", required = true) @PathParam("hotelId") Long hotelId,
+                                         @Parameter(description = "Maximum bookings per page, capped by quarkus.booking-list.max-page-size") @QueryParam("size") Integer size,
+                                         @Parameter(description = "X-Next-Cursor value of the previous page") @QueryParam("cursor") String cursor) {
+        if (size == null && cursor == null) {
+            return Response.ok((StreamingOutput) output -> bookingService.writeBookingsByHotelId(hotelId, output)).build();
+        }
+        return pageResponse(() -> bookingService.getBookingsByHotelId(hotelId, size, cursor));
+    }
+
+    private Response pageResponse(Supplier<SearchPage<BookingDTO>> pageQuery) {
+        SearchPage<BookingDTO> page;
+        try {
+            page = pageQuery.get();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        return Response.ok(page.getItems()).header(NEXT_CURSOR_HEADER, page.getNextCursor()).build();
     }
 
     @POST
-    @Transactional
     @Operation(summary = "Create a new booking", description = "Creates a new booking record, validates capacity, and persists it in the database.")
     @APIResponses(value = {
             @APIResponse(responseCode = "201", description = "Booking created successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingDTO.class))),
@@ -87,47 +137,79 @@ public class BookingResource {
             @APIResponse(responseCode = "409", description = "Conflict - Insufficient hotel capacity", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class))),
             @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     })
-    public Response createBooking(@RequestBody(description = "Booking details to be created", required = true, content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingDTO.class))) BookingDTO bookingDTO,
-            @Context UriInfo uriInfo, @Context ContainerRequestContext requestContext) {
-
-        String idempotencyKey = (String) requestContext.getProperty("idempotencyKey");
+    public Uni<Response> createBooking(@RequestBody(description = "Booking details to be created", required = true, content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingDTO.class))) BookingDTO bookingDTO,
+            @Context UriInfo uriInfo) {
 
         if (!CommonHelper.isValidBookingInput(bookingDTO)) { // Call static method in ValidationHelper
             LOG.warn("XSS detected in createBooking request");
-            return Response.status(Response.Status.BAD_REQUEST)
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
                     .entity("Invalid input: Potential XSS detected.")
-                    .build();
+                    .build());
         }
 
-        try {
-            BookingDTO createdBooking = bookingService.createBooking(bookingDTO);
-
-            // Store the successful response in Redis
-            JsonObject jsonResponse = new JsonObject();
-            jsonResponse.put("status", Response.Status.CREATED.getStatusCode());
-            jsonResponse.put("body", createdBooking.toString());
-
-            redisClient.setex(idempotencyKey, String.valueOf(Duration.ofMinutes(10).getSeconds()), jsonResponse.encode()); // Expire after 10 minutes
-
-            return Response.status(Response.Status.CREATED).entity(createdBooking).build();
+        Uni<BookingDTO> createdBooking = isReactivePersistence()
+                ? reactiveBookingService.createBooking(bookingDTO)
+                : blocking(() -> bookingService.createBooking(bookingDTO));
+        return createdBooking
+                .map(booking -> Response.status(Response.Status.CREATED).entity(booking).build())
+                .onFailure(InsufficientCapacityException.class).recoverWithItem(capacityException -> {
+                    LOG.warn("Insufficient capacity for booking", capacityException);
+                    return Response.status(Response.Status.CONFLICT) // 409 Conflict status
+                            .entity("Capacity Conflict") // Standard error response
+                            .build();
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOG.error("Error creating booking", e);
+                    // Not stored for idempotency, a retry runs the request again
+                    return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error creating booking").build();
+                });
+    }
 
-        } catch (InsufficientCapacityException capacityException) { // Catch InsufficientCapacityException
-            LOG.warn("Insufficient capacity for booking", capacityException);
-            return Response.status(Response.Status.CONFLICT) // 409 Conflict status
-                    .entity("Capacity Conflict") // Standard error response
-                    .build();
+    @POST
+    @RunOnVirtualThread
+    @Path("/batch")
+    @Operation(summary = "Create many bookings", description = "Creates up to quarkus.booking-batch.max-size bookings in one transaction under a single Idempotency-Key. With mode=all-or-nothing (the default) nothing is created unless every booking fits; with mode=per-item each booking succeeds or fails on its own. Always runs on the JDBC path.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "201", description = "All bookings created", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingBatchResult.class))),
+            @APIResponse(responseCode = "207", description = "per-item mode: one result per booking, each with its own status", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingBatchResult.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Empty or oversized batch, unknown mode, potential XSS, or (all-or-nothing) an invalid booking", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingBatchResult.class))),
+            @APIResponse(responseCode = "409", description = "all-or-nothing mode: a booking did not fit, nothing was created", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingBatchResult.class))),
+            @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "text/plain"))
+    })
+    public Response createBookings(@RequestBody(description = "Bookings to be created", required = true, content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = BookingDTO.class))) List<BookingDTO> bookingDTOs,
+                                   @Parameter(description = "all-or-nothing or per-item, quarkus.booking-batch.mode when absent") @QueryParam("mode") String mode) {
+        if (bookingDTOs == null || bookingDTOs.isEmpty()) {
+            throw new BadRequestException("At least one booking is required.");
+        }
+        if (bookingDTOs.size() > maxBatchSize) {
+            throw new BadRequestException("At most " + maxBatchSize + " bookings can be created at once.");
+        }
+        String batchMode = mode == null || mode.isBlank() ? defaultBatchMode : mode;
+        if (!ALL_OR_NOTHING.equalsIgnoreCase(batchMode) && !PER_ITEM.equalsIgnoreCase(batchMode)) {
+            throw new BadRequestException("mode must be " + ALL_OR_NOTHING + " or " + PER_ITEM + ".");
+        }
+        for (BookingDTO bookingDTO : bookingDTOs) {
+            if (bookingDTO != null && !CommonHelper.isValidBookingInput(bookingDTO)) {
+                LOG.warn("XSS detected in createBookings request");
+                throw new BadRequestException("Invalid input: Potential XSS detected.");
+            }
+        }
 
+        boolean allOrNothing = ALL_OR_NOTHING.equalsIgnoreCase(batchMode);
+        List<BookingBatchResult> results;
+        try {
+            results = bookingService.createBookings(bookingDTOs, allOrNothing);
         } catch (Exception e) {
-            LOG.error("Error creating booking", e);
-            // Handle the error appropriately (e.g., return an error response)
-            JsonObject jsonResponse = new JsonObject();
-            jsonResponse.put("status", Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
-            jsonResponse.put("body", "Error creating booking");
-
-            redisClient.setex(idempotencyKey, String.valueOf(Duration.ofMinutes(10).getSeconds()), jsonResponse.encode()); // Expire after 10 minutes
-
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error creating booking").build();
+            LOG.error("Error creating booking batch", e);
+            // Not stored for idempotency, a retry runs the batch again
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error creating bookings").build();
+        }
+        if (!allOrNothing) {
+            return Response.status(MULTI_STATUS).entity(results).build();
         }
+        // Answered with the status of the booking that stopped the batch
+        int status = results.stream().mapToInt(BookingBatchResult::getStatus).filter(itemStatus -> itemStatus != 201 && itemStatus != 424).findFirst().orElse(201);
+        return Response.status(status).entity(results).build();
     }
 
     @GET
@@ -138,17 +220,15 @@ public class BookingResource {
             @APIResponse(responseCode = "404", description = "Booking not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class))),
             @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     })
-    public BookingDTO getBooking(@Parameter(description = "Unique identifier of the booking", required = true) @PathParam("id") Long id) {
-        try {
-            return bookingService.getBooking(id);
-        } catch (BookingNotFoundException e) {
-            throw new NotFoundException(e.getMessage());
-        }
+    public Uni<BookingDTO> getBooking(@Parameter(description = "Unique identifier of the booking", required = true) @PathParam("id") Long id) {
+        Uni<BookingDTO> booking = isReactivePersistence()
+                ? reactiveBookingService.getBooking(id)
+                : blocking(() -> QuarkusTransaction.joiningExisting().call(() -> bookingService.getBooking(id)));
+        return booking.onFailure(BookingNotFoundException.class).transform(e -> new NotFoundException(e.getMessage()));
     }
 
     @PUT
     @Path("/{id}")
-    @Transactional
     @Operation(summary = "Update booking information", description = "Updates the details of an existing booking. Allows modification of check-in/out dates, number of guests, and total price.")
     @APIResponses(value = {
             @APIResponse(responseCode = "200", description = "Booking updated successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingDTO.class))),
@@ -156,35 +236,40 @@ public class BookingResource {
             @APIResponse(responseCode = "404", description = "Booking not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class))),
             @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     })
-    public BookingDTO updateBooking(@Parameter(description = "ID of the booking to be updated", required = true) @PathParam("id") Long id,
+    public Uni<BookingDTO> updateBooking(@Parameter(description = "ID of the booking to be updated", required = true) @PathParam("id") Long id,
                                     @RequestBody(description = "Updated booking details", required = true, content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookingDTO.class))) BookingDTO bookingDTO) {
         if (!CommonHelper.isValidBookingInput(bookingDTO)) { // Call static method in ValidationHelper
             LOG.warn("XSS detected in updateBooking request");
             throw new BadRequestException("Invalid input: Potential XSS detected."); // Use BadRequestException for PUT too
         }
 
-        try {
-            return bookingService.updateBooking(id, bookingDTO);
-        } catch (BookingNotFoundException e) {
-            throw new NotFoundException(e.getMessage());
-        }
+        Uni<BookingDTO> updatedBooking = isReactivePersistence()
+                ? reactiveBookingService.updateBooking(id, bookingDTO)
+                : blocking(() -> bookingService.updateBooking(id, bookingDTO));
+        return updatedBooking.onFailure(BookingNotFoundException.class).transform(e -> new NotFoundException(e.getMessage()));
     }
 
     @DELETE
     @Path("/{id}")
-    @Transactional
     @Operation(summary = "Delete a booking", description = "Cancels and deletes a booking record from the database.")
     @APIResponses(value = {
             @APIResponse(responseCode = "204", description = "Booking deleted successfully - No Content"), // No Content for successful DELETE
             @APIResponse(responseCode = "404", description = "Booking not found", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class))),
             @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     })
-    public Response deleteBooking(@Parameter(description = "ID of the booking to be deleted", required = true) @PathParam("id") Long id) {
-        boolean deleted = bookingService.deleteBooking(id);
-        if (deleted) {
-            return Response.noContent().build();
-        } else {
-            return Response.status(Response.Status.NOT_FOUND).build();
-        }
+    public Uni<Response> deleteBooking(@Parameter(description = "ID of the booking to be deleted", required = true) @PathParam("id") Long id) {
+        Uni<Boolean> deleted = isReactivePersistence()
+                ? reactiveBookingService.deleteBooking(id)
+                : blocking(() -> bookingService.deleteBooking(id));
+        return deleted.map(found -> found ? Response.noContent().build() : Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    private boolean isReactivePersistence() {
+        return REACTIVE_PERSISTENCE.equalsIgnoreCase(persistenceMode);
+    }
+
+    // Blocking service calls run on a virtual thread (the worker pool when they are disabled), never on the event loop
+    private <T> Uni<T> blocking(Supplier<T> call) {
+        return Uni.createFrom().item(call).runSubscriptionOn(blockingExecutor);
     }
 }
\ No newline at end of file
@@ -2,18 +2,19 @@ package com.hrs.api_gateway.resource;
 
 import com.hrs.api_gateway.exception.HotelNotFoundException;
 import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
 import com.hrs.api_gateway.service.HotelService;
 import com.hrs.api_gateway.utils.CommonHelper;
-import io.quarkus.redis.client.RedisClient;
-import io.vertx.core.json.JsonObject;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
-import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -25,10 +26,9 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.jboss.logging.Logger;
 
 import java.io.IOException;
-import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @Path("/api/v1/hotels")
 @Produces(MediaType.APPLICATION_JSON)
@@ -36,41 +36,100 @@ import java.util.stream.Collectors;
 public class HotelResource {
 
     private static final Logger LOG = Logger.getLogger(HotelResource.class);
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     @Inject
     HotelService hotelService;
 
-    @Inject
-    RedisClient redisClient;
-
     @Context
     UriInfo uriInfo;
 
+    @ConfigProperty(name = "quarkus.hotel-batch.max-ids", defaultValue = "500")
+    int maxBatchIds;
+
     @GET
     @Path("/search")
-    @Operation(summary = "Search hotels by keywords", description = "Searches hotels based on keywords in name, city, or address using Elasticsearch.")
+    @Operation(summary = "Search hotels by keywords", description = "Searches hotels based on keywords in name, city, or address using Elasticsearch. Pass the X-Next-Cursor response header back as cursor for the next page.")
     @APIResponses(value = {
-            @APIResponse(responseCode = "200", description = "Successful search", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = HotelDTO.class))),
-            @APIResponse(responseCode = "400", description = "Bad Request - Invalid search query", content = @Content(mediaType = "text/plain")),
+            @APIResponse(responseCode = "200", description = "Successful search, X-Next-Cursor is set when more hotels follow", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = HotelDTO.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Invalid search query or cursor", content = @Content(mediaType = "text/plain")),
             @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     })
-    public List<HotelDTO> searchHotelsByQuery(@Parameter(description = "Keywords to search for (e.g., 'Luxury Paris Hotel')", required = false) @QueryParam("query") String query) {
+    public Uni<Response> searchHotelsByQuery(@Parameter(description = "Keywords to search for (e.g., 'Luxury Paris Hotel')", required = false) @QueryParam("query") String query,
+                                             @Parameter(description = "Maximum hotels per page, capped by quarkus.search.max-page-size") @QueryParam("size") Integer size,
+                                             @Parameter(description = "X-Next-Cursor value of the previous page") @QueryParam("cursor") String cursor) {
+        LOG.debug(query);
+        if (query == null || query.trim().isEmpty()) {
+            LOG.warn("Search query cannot be empty");
+            return Uni.createFrom().item(Response.ok(Collections.emptyList()).build());
+        }
+        // Runs on the event loop, the Elasticsearch call completes asynchronously and the embedded index is searched on a virtual thread
+        return hotelService.searchHotels(query, size, cursor)
+                .map(page -> Response.ok(page.getItems()).header(NEXT_CURSOR_HEADER, page.getNextCursor()).build())
+                .onFailure(IllegalArgumentException.class).recoverWithItem(e -> Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build())
+                .onFailure().recoverWithItem(e -> {
+                    LOG.error("Error searching hotel", e);
+                    return Response.ok(Collections.emptyList()).build();
+                });
+    }
+
+
+    @GET
+    @RunOnVirtualThread
+    @Path("/available")
+    @Operation(summary = "Find hotels with availability", description = "Lists hotels, optionally in one city, with room for the guests on every night of the stay. Answered from the per-night booked counters in MySQL by default, or from the in-memory source chosen with quarkus.availability-index.occupancy. Pass the X-Next-Cursor response header back as cursor for the next page.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Available hotels in ID order, X-Next-Cursor is set when more hotels may follow", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = HotelDTO.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Missing or invalid dates, guests or cursor", content = @Content(mediaType = "text/plain"))
+    })
+    public Response findAvailableHotels(@Parameter(description = "City to search in, all cities when absent") @QueryParam("city") String city,
+                                        @Parameter(description = "Check-in date (YYYY-MM-DD)", required = true) @QueryParam("checkin") String checkin,
+                                        @Parameter(description = "Check-out date (YYYY-MM-DD)", required = true) @QueryParam("checkout") String checkout,
+                                        @Parameter(description = "Number of guests, 1 when absent") @QueryParam("guests") Integer guests,
+                                        @Parameter(description = "Maximum hotels per page, capped by quarkus.search.max-page-size") @QueryParam("size") Integer size,
+                                        @Parameter(description = "X-Next-Cursor value of the previous page") @QueryParam("cursor") String cursor) {
         try {
-            LOG.debug(query);
-            if (query == null || query.trim().isEmpty()) {
-                throw new BadRequestException("Search query cannot be empty");
-            }
-            List<HotelDTO> hotels = hotelService.searchHotels(query);
-            return hotels.stream()
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            LOG.error("Error searching hotel", e);
-            return Collections.emptyList();
+            SearchPage<HotelDTO> page = hotelService.findAvailableHotels(city, CommonHelper.parseLocalDate(checkin), CommonHelper.parseLocalDate(checkout), guests, size, cursor);
+            return Response.ok(page.getItems()).header(NEXT_CURSOR_HEADER, page.getNextCursor()).build();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
         }
     }
 
+    @GET
+    @RunOnVirtualThread
+    @Operation(summary = "Get many hotels by ID", description = "Resolves a comma separated list of hotel IDs in one call: one Redis round trip, one database query for cache misses. Unknown IDs are left out of the result.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Hotels found, in the order requested", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = HotelDTO.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Missing, malformed or too many IDs", content = @Content(mediaType = "text/plain"))
+    })
+    public List<HotelDTO> getHotels(@Parameter(description = "Comma separated hotel IDs (e.g., '1,2,3')", required = true) @QueryParam("ids") String ids) {
+        return lookupHotels(CommonHelper.parseIdList(ids));
+    }
+
+    @POST
+    @RunOnVirtualThread
+    @Path("/lookup")
+    @Operation(summary = "Get many hotels by ID (request body)", description = "Same as GET /api/v1/hotels?ids=... for ID sets too large for a query string. Read-only, no Idempotency-Key needed.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "Hotels found, in the order requested", content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = HotelDTO.class))),
+            @APIResponse(responseCode = "400", description = "Bad Request - Missing, null or too many IDs", content = @Content(mediaType = "text/plain"))
+    })
+    public List<HotelDTO> lookupHotels(@RequestBody(description = "Hotel IDs", required = true, content = @Content(mediaType = "application/json", schema = @Schema(type = SchemaType.ARRAY, implementation = Long.class))) List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("At least one hotel ID is required.");
+        }
+        if (ids.size() > maxBatchIds) {
+            throw new BadRequestException("At most " + maxBatchIds + " hotel IDs can be requested at once.");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new BadRequestException("Hotel IDs must not be null.");
+        }
+        return hotelService.getHotels(ids);
+    }
 
     @POST
+    @RunOnVirtualThread
     @Transactional
     @Operation(summary = "Create a new hotel", description = "Creates a new hotel record in the database and indexes it in Elasticsearch.")
     @APIResponses(value = {
@@ -78,9 +137,7 @@ public class HotelResource {
             @APIResponse(responseCode = "400", description = "Bad Request - Invalid input data or potential XSS attack", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class))),
             @APIResponse(responseCode = "500", description = "Internal server error", content = @Content(mediaType = "application/json", schema = @Schema(implementation = Response.class)))
     })
-    public Response createHotel(@RequestBody(description = "Hotel details to be created", required = true, content = @Content(mediaType = "application/json", schema = @Schema(implementation = HotelDTO.class))) HotelDTO hotelDTO, @Context UriInfo uriInfo, @Context ContainerRequestContext requestContext) {
-
-        String idempotencyKey = (String) requestContext.getProperty("idempotencyKey");
+    public Response createHotel(@RequestBody(description = "Hotel details to be created", required = true, content = @Content(mediaType = "application/json", schema = @Schema(implementation = HotelDTO.class))) HotelDTO hotelDTO, @Context UriInfo uriInfo) {
 
         if (!CommonHelper.isValidHotelInput(hotelDTO)) { // Call static method in ValidationHelper
             LOG.warn("XSS detected in createHotel request");
@@ -92,29 +149,17 @@ public class HotelResource {
         try {
             HotelDTO createdHotel = hotelService.createHotel(hotelDTO);
 
-            // Store the successful response in Redis
-            JsonObject jsonResponse = new JsonObject();
-            jsonResponse.put("status", Response.Status.CREATED.getStatusCode());
-            jsonResponse.put("body", createdHotel.toString()); // Consider a better JSON serialization here for DTO
-
-            redisClient.setex(idempotencyKey, String.valueOf(Duration.ofMinutes(10).getSeconds()), jsonResponse.encode()); // Expire after 10 minutes
-
             return Response.status(Response.Status.CREATED).entity(createdHotel).build();
 
         } catch (Exception e) {
             LOG.error("Error creating hotel", e);
-            // Handle the error appropriately (e.g., return an error response)
-            JsonObject jsonResponse = new JsonObject();
-            jsonResponse.put("status", Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
-            jsonResponse.put("body", "Error creating hotel");
-
-            redisClient.setex(idempotencyKey, String.valueOf(Duration.ofMinutes(10).getSeconds()), jsonResponse.encode()); // Expire after 10 minutes
-
+            // Not stored for idempotency, a retry runs the request again
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error creating hotel").build();
         }
     }
 
     @GET
+    @RunOnVirtualThread
     @Path("/{id}")
     @Operation(summary = "Get hotel details by ID", description = "Retrieves complete information for a specific hotel, including name, city, and address.")
     @APIResponses(value = {
@@ -131,6 +176,7 @@ public class HotelResource {
     }
 
     @PUT
+    @RunOnVirtualThread
     @Path("/{id}")
     @Transactional
     @Operation(summary = "Update hotel information", description = "Updates the details of an existing hotel. Allows modification of name, city, and address.")
@@ -157,6 +203,7 @@ public class HotelResource {
     }
 
     @DELETE
+    @RunOnVirtualThread
     @Path("/{id}")
     @Transactional
     @Operation(summary = "Delete a hotel", description = "Deletes a hotel record from the database. Note: Associated bookings might need to be handled accordingly (e.g., cancellation).")
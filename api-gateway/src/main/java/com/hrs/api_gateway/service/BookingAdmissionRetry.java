@@ -0,0 +1,127 @@
+package com.hrs.api_gateway.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mysqlclient.MySQLException;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Retry policy of optimistic booking admission, shared by the JDBC and the reactive booking paths. A booking write
+ * that MySQL picked as a deadlock victim, or whose lock wait on night rows timed out, is run again after a jittered
+ * exponential backoff; once the attempts are used up the caller falls back to the hotel row lock.
+ */
+@ApplicationScoped
+public class BookingAdmissionRetry {
+
+    private static final Logger LOG = Logger.getLogger(BookingAdmissionRetry.class);
+
+    // MySQL ER_LOCK_DEADLOCK and ER_LOCK_WAIT_TIMEOUT
+    private static final int DEADLOCK = 1213;
+    private static final int LOCK_WAIT_TIMEOUT = 1205;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "quarkus.booking-admission.max-attempts", defaultValue = "5")
+    int maxAttempts;
+
+    @ConfigProperty(name = "quarkus.booking-admission.backoff-millis", defaultValue = "2")
+    long backoffMillis;
+
+    private Counter conflictCounter;
+    private Counter exhaustedCounter;
+
+    @PostConstruct
+    void init() {
+        conflictCounter = meterRegistry.counter("booking.admission.conflicts");
+        exhaustedCounter = meterRegistry.counter("booking.admission.exhausted");
+    }
+
+    /**
+     * Runs an admission in a transaction of its own, again after a backoff when it lost a lock conflict. Inside an
+     * active transaction it runs once in that transaction instead, a rolled back transaction cannot be retried from
+     * within.
+     *
+     * @return empty when every attempt lost, the caller should fall back to the hotel row lock
+     */
+    public <T> Optional<T> call(Supplier<T> admission) {
+        if (QuarkusTransaction.isActive()) {
+            return Optional.of(admission.get());
+        }
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                return Optional.of(QuarkusTransaction.requiringNew().call(admission::get));
+            } catch (RuntimeException e) {
+                if (!isLockConflict(e)) {
+                    throw e;
+                }
+                conflictCounter.increment();
+                LOG.debugf("Night inventory lock conflict on attempt %d of %d", attempt, maxAttempts);
+                backoff(attempt);
+            }
+        }
+        exhausted();
+        return Optional.empty();
+    }
+
+    /**
+     * Subscribes to the admission again after a backoff when it lost a lock conflict, and to the fallback once the
+     * attempts are used up. The admission must open its own transaction on every subscription.
+     */
+    public <T> Uni<T> retry(Supplier<Uni<T>> admission, Supplier<Uni<T>> fallback) {
+        return Uni.createFrom().deferred(admission)
+                .onFailure(BookingAdmissionRetry::isLockConflict).invoke(e -> conflictCounter.increment())
+                .onFailure(BookingAdmissionRetry::isLockConflict).retry()
+                .withBackOff(Duration.ofMillis(backoffMillis)).withJitter(1.0).atMost(Math.max(1, maxAttempts - 1))
+                .onFailure(BookingAdmissionRetry::isLockConflict).recoverWithUni(e -> {
+                    exhausted();
+                    return fallback.get();
+                });
+    }
+
+    static boolean isLockConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PessimisticLockException || cause instanceof LockTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && isLockConflict(sqlException.getErrorCode())) {
+                return true;
+            }
+            if (cause instanceof MySQLException mySQLException && isLockConflict(mySQLException.getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLockConflict(int errorCode) {
+        return errorCode == DEADLOCK || errorCode == LOCK_WAIT_TIMEOUT;
+    }
+
+    private void exhausted() {
+        exhaustedCounter.increment();
+        LOG.warnf("Night inventory contention exhausted %d attempts", maxAttempts);
+    }
+
+    private void backoff(int attempt) {
+        // Jittered exponential backoff so colliding bookers do not retry in lockstep
+        long maxNanos = TimeUnit.MILLISECONDS.toNanos(backoffMillis << (attempt - 1));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxNanos + 1));
+    }
+}
@@ -1,23 +1,36 @@
 package com.hrs.api_gateway.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.hrs.api_gateway.entity.Booking;
 import com.hrs.api_gateway.entity.BookingStatus;
 import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.entity.HotelNightInventory;
 import com.hrs.api_gateway.entity.User;
 import com.hrs.api_gateway.exception.BookingNotFoundException;
 import com.hrs.api_gateway.exception.HotelNotFoundException;
 import com.hrs.api_gateway.exception.InsufficientCapacityException;
+import com.hrs.api_gateway.model.BookingBatchResult;
 import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.model.SearchPage;
 import com.hrs.api_gateway.repository.BookingRepository;
+import com.hrs.api_gateway.repository.HotelNightInventoryRepository;
 import com.hrs.api_gateway.repository.HotelRepository;
 import com.hrs.api_gateway.repository.UserRepository;
 import com.hrs.api_gateway.utils.CommonHelper;
+import com.hrs.api_gateway.utils.ElasticsearchHelper;
+import com.hrs.api_gateway.utils.SearchCursor;
+import com.hrs.api_gateway.utils.SearchHitDecoder;
+import com.hrs.api_gateway.utils.SearchQueryBuilder;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.unchecked.Unchecked;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import jakarta.transaction.Transactional.TxType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
@@ -26,17 +39,29 @@ import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class BookingService {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Inject
+    ObjectMapper objectMapper;
     @Inject
     BookingRepository bookingRepository;
     @Inject
@@ -45,140 +70,396 @@ public class BookingService {
     UserRepository userRepository;
     @Inject
     RestClient restClient;
+    @Inject
+    HotelNightInventoryService inventoryService;
+    @Inject
+    HotelNightInventoryRepository inventoryRepository;
+    @Inject
+    BookingAdmissionRetry admissionRetry;
+
+    // "optimistic" reserves hotel-nights with a guarded UPDATE, "locking" serializes bookers on the hotel row
+    @ConfigProperty(name = "quarkus.booking-admission.mode", defaultValue = OPTIMISTIC_ADMISSION)
+    String admissionMode;
+
+    private static final String OPTIMISTIC_ADMISSION = "optimistic";
+
+    @ConfigProperty(name = "quarkus.search.default-page-size", defaultValue = "20")
+    int defaultPageSize;
+
+    @ConfigProperty(name = "quarkus.search.max-page-size", defaultValue = "100")
+    int maxPageSize;
+
+    @ConfigProperty(name = "quarkus.booking-list.default-page-size", defaultValue = "100")
+    int defaultListPageSize;
+
+    @ConfigProperty(name = "quarkus.booking-list.max-page-size", defaultValue = "1000")
+    int maxListPageSize;
+
+    @ConfigProperty(name = "quarkus.availability.max-nights", defaultValue = "365")
+    int maxNights;
 
     private final String BOOKING_INDEX = "connect.hrs_booking.bookings";
 
-    public List<BookingDTO> searchBookingsByCriteria(Long userId, Long hotelId, LocalDate checkinDate, LocalDate checkoutDate) throws IOException {
-        return searchBookingsInElasticsearchRestClientByCriteria(userId, hotelId, checkinDate, checkoutDate);
+    public Uni<SearchPage<BookingDTO>> searchBookingsByCriteria(Long userId, Long hotelId, LocalDate checkinDate, LocalDate checkoutDate, Integer size, String cursor) {
+        return searchBookingsInElasticsearchRestClientByCriteria(userId, hotelId, checkinDate, checkoutDate, size, cursor);
     }
 
-    private List<BookingDTO> searchBookingsInElasticsearchRestClientByCriteria(Long userId, Long hotelId, LocalDate checkinDate, LocalDate checkoutDate) throws IOException {
+    private Uni<SearchPage<BookingDTO>> searchBookingsInElasticsearchRestClientByCriteria(Long userId, Long hotelId, LocalDate checkinDate, LocalDate checkoutDate, Integer size, String cursor) {
 
-        String searchQueryJson = buildSearchQueryJson(userId, hotelId, checkinDate, checkoutDate);
+        int pageSize = SearchCursor.pageSize(size, defaultPageSize, maxPageSize);
+        String searchQueryJson;
+        try {
+            searchQueryJson = SearchQueryBuilder.bookingQuery(objectMapper, userId, hotelId, checkinDate, checkoutDate, pageSize, cursor);
+        } catch (IOException | IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
         HttpEntity entity = new NStringEntity(searchQueryJson, ContentType.APPLICATION_JSON);
 
         Request request = new Request("GET", "/" + BOOKING_INDEX + "/_search"); // Index name: "bookings"
         request.setEntity(entity);
 
-        Response response = restClient.performRequest(request);
+        return ElasticsearchHelper.performRequestAsync(restClient, request)
+                .map(Unchecked.function(response -> readSearchResponse(response, pageSize)));
+    }
 
+    private SearchPage<BookingDTO> readSearchResponse(Response response, int pageSize) throws IOException {
         if (response.getStatusLine().getStatusCode() != 200) {
             throw new IOException("Elasticsearch booking search failed: " + response.getStatusLine());
         }
 
-        String responseBody = org.apache.http.util.EntityUtils.toString(response.getEntity());
-        com.fasterxml.jackson.databind.JsonNode jsonResponse = objectMapper.readTree(responseBody);
+        // Decode hits straight from the response stream into DTOs
+        try (InputStream content = response.getEntity().getContent()) {
+            SearchPage<BookingDTO> page = SearchHitDecoder.decodePage(objectMapper.getFactory(), content, SearchHitDecoder::readBooking);
+            if (page.getItems().size() < pageSize) {
+                page.setNextCursor(null); // A short page is the last one
+            }
+            return page;
+        }
+    }
 
-        return mapRestClientSearchResponseToBookingDTOs(jsonResponse);
+    /**
+     * One keyset page of a user's bookings in id order, read as DTO projections.
+     *
+     * @throws IllegalArgumentException if the cursor was not issued by this endpoint
+     */
+    public SearchPage<BookingDTO> getBookingsByUserId(Long userId, Integer size, String cursor) {
+        int pageSize = SearchCursor.pageSize(size, defaultListPageSize, maxListPageSize);
+        return toPage(bookingRepository.findPageByUserId(userId, afterId(cursor), pageSize), pageSize);
     }
 
-    private String buildSearchQueryJson(Long userId, Long hotelId, LocalDate checkinDate, LocalDate checkoutDate) throws IOException {
-        ObjectNode boolQueryNode = objectMapper.createObjectNode();
-        com.fasterxml.jackson.databind.node.ArrayNode mustClauses = objectMapper.createArrayNode();
-        com.fasterxml.jackson.databind.node.ArrayNode filterClauses = objectMapper.createArrayNode();
+    public SearchPage<BookingDTO> getBookingsByHotelId(Long hotelId, Integer size, String cursor) {
+        int pageSize = SearchCursor.pageSize(size, defaultListPageSize, maxListPageSize);
+        return toPage(bookingRepository.findPageByHotelId(hotelId, afterId(cursor), pageSize), pageSize);
+    }
+
+    /**
+     * Writes every booking of the user as a JSON array, streamed row by row from MySQL so memory stays flat
+     * however long the history is.
+     */
+    public void writeBookingsByUserId(Long userId, OutputStream output) {
+        writeBookings(() -> bookingRepository.streamByUserId(userId), output);
+    }
+
+    public void writeBookingsByHotelId(Long hotelId, OutputStream output) {
+        writeBookings(() -> bookingRepository.streamByHotelId(hotelId), output);
+    }
+
+    private void writeBookings(Supplier<Stream<BookingDTO>> bookings, OutputStream output) {
+        ObjectWriter writer = objectMapper.writerFor(BookingDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // Runs after the resource method returned, so it needs its own transaction to keep the result set open
+        QuarkusTransaction.requiringNew().call(() -> {
+            try (Stream<BookingDTO> rows = bookings.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                generator.writeStartArray();
+                for (BookingDTO booking : (Iterable<BookingDTO>) rows::iterator) {
+                    writer.writeValue(generator, booking);
+                }
+                generator.writeEndArray();
+            }
+            return null;
+        });
+    }
 
-        if (userId != null) {
-            mustClauses.add(objectMapper.createObjectNode().putPOJO("term", objectMapper.createObjectNode().put("user_id", userId))); // Search by User ID (exact match)
+    private Long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
         }
-        if (hotelId != null) {
-            mustClauses.add(objectMapper.createObjectNode().putPOJO("term", objectMapper.createObjectNode().put("hotel_id", hotelId))); // Search by Hotel ID (exact match)
+        return SearchCursor.decode(objectMapper, cursor, 1).get(0).asLong();
+    }
+
+    private SearchPage<BookingDTO> toPage(List<BookingDTO> bookings, int pageSize) {
+        String nextCursor = bookings.size() < pageSize ? null : SearchCursor.encode("[" + bookings.get(bookings.size() - 1).getId() + "]");
+        return new SearchPage<>(bookings, nextCursor);
+    }
+
+    /**
+     * Creates a PENDING booking if the hotel has room for it on every night of the stay.
+     *
+     * @throws InsufficientCapacityException if any night of the stay is full
+     */
+    public BookingDTO createBooking(BookingDTO bookingDTO) {
+        return admitWithRetry(bookingDTO, optimistic -> insertBooking(bookingDTO, optimistic));
+    }
+
+    private BookingDTO insertBooking(BookingDTO bookingDTO, boolean optimistic) {
+        Hotel hotel = hotelRepository.findById(bookingDTO.getHotelId());
+        if (hotel == null) {
+            throw new HotelNotFoundException("Hotel not found with id: " + bookingDTO.getHotelId());
         }
-        if (checkinDate != null) {
-            filterClauses.add(createRangeQuery("check_in_date", formatDateForElasticsearch(checkinDate), null, true, true)); // gte checkinDate (Find bookings with check-in date ON or AFTER provided date) - ADJUSTED LOGIC
+
+        User user = userRepository.findById(bookingDTO.getUserId());
+        if (user == null) {
+            throw new IllegalArgumentException("User not found with id: " + bookingDTO.getUserId());
         }
-        if (checkoutDate != null) {
-            filterClauses.add(createRangeQuery("check_out_date", null, formatDateForElasticsearch(checkoutDate), true, true)); // lte checkoutDate (Find bookings with check-out date ON or BEFORE provided date) - ADJUSTED LOGIC
+
+        // Capacity Check Logic
+        admit(hotel, bookingDTO, optimistic);
+
+        Booking booking = convertToEntity(bookingDTO);
+        booking.setHotel(hotel);
+        booking.setUser(user);
+        booking.setBookingStatus(BookingStatus.PENDING);
+        bookingRepository.persist(booking);
+        return convertToDTO(booking);
+    }
+
+    /**
+     * Creates many bookings in one transaction. The hotels are locked in id order, each hotel's nights are read
+     * once for the whole batch, and the bookings are inserted in JDBC batches.
+     *
+     * @param allOrNothing create nothing unless every booking fits, otherwise each booking succeeds or fails on its own
+     * @return one result per booking, in request order
+     */
+    public List<BookingBatchResult> createBookings(List<BookingDTO> bookingDTOs, boolean allOrNothing) {
+        for (BookingDTO bookingDTO : bookingDTOs) {
+            if (validateBatchItem(bookingDTO) == null) {
+                seedNights(bookingDTO);
+            }
         }
+        return QuarkusTransaction.joiningExisting().call(() -> insertBookings(bookingDTOs, allOrNothing));
+    }
 
-        ObjectNode boolQuery = objectMapper.createObjectNode();
-        if (!mustClauses.isEmpty()) {
-            boolQuery.putPOJO("must", mustClauses);
+    private List<BookingBatchResult> insertBookings(List<BookingDTO> bookingDTOs, boolean allOrNothing) {
+        BookingBatchResult[] results = new BookingBatchResult[bookingDTOs.size()];
+        Map<Long, List<Integer>> itemsByHotel = new TreeMap<>(); // Sorted, hotels are visited in lock order
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < bookingDTOs.size(); i++) {
+            BookingDTO bookingDTO = bookingDTOs.get(i);
+            String invalid = validateBatchItem(bookingDTO);
+            if (invalid != null) {
+                results[i] = new BookingBatchResult(i, 400, null, invalid);
+                continue;
+            }
+            itemsByHotel.computeIfAbsent(bookingDTO.getHotelId(), id -> new ArrayList<>()).add(i);
+            userIds.add(bookingDTO.getUserId());
         }
-        if (!filterClauses.isEmpty()) {
-            boolQuery.putPOJO("filter", objectMapper.createArrayNode().addAll(filterClauses));
+
+        Map<Long, Hotel> hotels = new HashMap<>();
+        Set<Long> existingUserIds = new HashSet<>();
+        if (!itemsByHotel.isEmpty()) {
+            hotelRepository.findByIdsForUpdate(itemsByHotel.keySet()).forEach(hotel -> hotels.put(hotel.getId(), hotel));
+            existingUserIds.addAll(userRepository.findExistingIds(userIds));
         }
-        boolQueryNode.set("bool", boolQuery);
 
-        ObjectNode rootNode = objectMapper.createObjectNode();
-        rootNode.set("query", boolQueryNode);
+        List<BatchNights> reservedNights = new ArrayList<>();
+        List<BookingDTO> admitted = new ArrayList<>();
+        List<Integer> admittedIndexes = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> hotelItems : itemsByHotel.entrySet()) {
+            Hotel hotel = hotels.get(hotelItems.getKey());
+            List<Integer> candidates = new ArrayList<>();
+            for (int index : hotelItems.getValue()) {
+                BookingDTO bookingDTO = bookingDTOs.get(index);
+                if (hotel == null) {
+                    results[index] = new BookingBatchResult(index, 404, null, "Hotel not found with id: " + bookingDTO.getHotelId());
+                } else if (!existingUserIds.contains(bookingDTO.getUserId())) {
+                    results[index] = new BookingBatchResult(index, 400, null, "User not found with id: " + bookingDTO.getUserId());
+                } else {
+                    candidates.add(index);
+                }
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
 
-        return objectMapper.writeValueAsString(rootNode);
-    }
+            BatchNights nights = loadNights(hotel.getId(), candidates.stream().map(bookingDTOs::get).toList());
+            for (int index : candidates) {
+                BookingDTO bookingDTO = bookingDTOs.get(index);
+                if (nights.tryReserve(bookingDTO, hotel.getCapacity())) {
+                    admitted.add(new BookingDTO(null, hotel.getId(), bookingDTO.getUserId(), bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate(),
+                            bookingDTO.getNumberOfGuests(), bookingDTO.getTotalPrice(), BookingStatus.PENDING));
+                    admittedIndexes.add(index);
+                } else {
+                    results[index] = new BookingBatchResult(index, 409, null, "Hotel has insufficient capacity for the requested number of guests.");
+                }
+            }
+            reservedNights.add(nights);
+        }
 
-    private ObjectNode createRangeQuery(String field, String gte, String lte, boolean includeLower, boolean includeUpper) {
-        ObjectNode rangeNode = objectMapper.createObjectNode();
-        ObjectNode fieldRange = objectMapper.createObjectNode();
-        if (gte != null) fieldRange.put("gte", gte); // gte (greater-than-or-equal-to) for start date
-        if (lte != null) fieldRange.put("lte", lte); // lte (less-than-or-equal-to) for end date
-        fieldRange.put("include_lower", includeLower);
-        fieldRange.put("include_upper", includeUpper);
-        rangeNode.set(field, fieldRange);
-        return objectMapper.createObjectNode().set("range", rangeNode);
+        if (allOrNothing && admitted.size() < bookingDTOs.size()) {
+            // Nothing was written yet, the night rows are only updated below
+            for (int index : admittedIndexes) {
+                results[index] = new BookingBatchResult(index, 424, null, "Not created, another booking in the batch failed.");
+            }
+            return Arrays.asList(results);
+        }
+
+        reservedNights.forEach(BatchNights::apply);
+        List<Booking> bookings = new ArrayList<>(admitted.size());
+        for (BookingDTO bookingDTO : admitted) {
+            Booking booking = convertToEntity(bookingDTO);
+            booking.setHotel(hotels.get(bookingDTO.getHotelId()));
+            booking.setUser(userRepository.getEntityManager().getReference(User.class, bookingDTO.getUserId()));
+            bookings.add(booking);
+        }
+        // Ids come from the pooled sequence, so the INSERTs are sent as JDBC batches when the transaction flushes
+        bookingRepository.persist(bookings);
+        for (int i = 0; i < admitted.size(); i++) {
+            BookingDTO booking = admitted.get(i);
+            booking.setId(bookings.get(i).getId());
+            results[admittedIndexes.get(i)] = new BookingBatchResult(admittedIndexes.get(i), 201, booking, null);
+        }
+        return Arrays.asList(results);
     }
 
+    private String validateBatchItem(BookingDTO bookingDTO) {
+        if (bookingDTO == null) {
+            return "Booking is required.";
+        }
+        if (bookingDTO.getHotelId() == null || bookingDTO.getUserId() == null || bookingDTO.getTotalPrice() == null) {
+            return "hotelId, userId and totalPrice are required.";
+        }
+        if (bookingDTO.getCheckinDate() == null || bookingDTO.getCheckoutDate() == null) {
+            return "checkinDate and checkoutDate are required.";
+        }
+        if (bookingDTO.getNumberOfGuests() == null || bookingDTO.getNumberOfGuests() < 1) {
+            return "numberOfGuests must be at least 1.";
+        }
+        LocalDate firstNight = CommonHelper.firstNightOfStay(bookingDTO.getCheckinDate());
+        if (ChronoUnit.DAYS.between(firstNight, CommonHelper.endNightOfStay(bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate())) > maxNights) {
+            return "A stay can be at most " + maxNights + " nights.";
+        }
+        return null;
+    }
 
-    private String formatDateForElasticsearch(LocalDate date) {
-        if (date == null) return null;
-        return DateTimeFormatter.ISO_DATE.format(date);
+    // One locked read per run of consecutive nights the hotel's bookings in the batch touch, so stays far apart never
+    // load or seed the nights between them. Runs are cut at max-nights, which keeps the seeding query within MySQL's
+    // recursion limit; the cut runs are adjacent, so a stay's rows stay consecutive
+    private BatchNights loadNights(Long hotelId, List<BookingDTO> bookings) {
+        List<HotelNightInventory> rows = new ArrayList<>();
+        LocalDate fromNight = null;
+        LocalDate toNight = null;
+        for (BookingDTO booking : bookings.stream().sorted(Comparator.comparing(BookingDTO::getCheckinDate)).toList()) {
+            LocalDate first = CommonHelper.firstNightOfStay(booking.getCheckinDate());
+            LocalDate end = CommonHelper.endNightOfStay(booking.getCheckinDate(), booking.getCheckoutDate());
+            if (toNight != null && !first.isAfter(toNight)) {
+                // Overlaps or touches the current run
+                if (end.isAfter(toNight) && ChronoUnit.DAYS.between(fromNight, end) > maxNights) {
+                    rows.addAll(lockNights(hotelId, fromNight, toNight));
+                    fromNight = toNight;
+                }
+                toNight = end.isAfter(toNight) ? end : toNight;
+                continue;
+            }
+            if (toNight != null) {
+                rows.addAll(lockNights(hotelId, fromNight, toNight));
+            }
+            fromNight = first;
+            toNight = end;
+        }
+        rows.addAll(lockNights(hotelId, fromNight, toNight));
+        return new BatchNights(rows);
     }
 
-    private List<BookingDTO> mapRestClientSearchResponseToBookingDTOs(com.fasterxml.jackson.databind.JsonNode jsonResponse) {
-        List<BookingDTO> bookingDTOs = new ArrayList<>();
-        com.fasterxml.jackson.databind.JsonNode hitsNode = jsonResponse.path("hits").path("hits");
-        if (hitsNode.isArray()) {
-            for (com.fasterxml.jackson.databind.JsonNode hit : hitsNode) {
-                com.fasterxml.jackson.databind.JsonNode sourceNode = hit.path("_source");
+    private List<HotelNightInventory> lockNights(Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        inventoryService.ensureNights(hotelId, fromNight, toNight);
+        List<HotelNightInventory> rows = inventoryRepository.findNightsForUpdate(hotelId, fromNight, toNight);
+        if (rows.size() != ChronoUnit.DAYS.between(fromNight, toNight)) {
+            throw new IllegalStateException("Night inventory of hotel " + hotelId + " is incomplete between " + fromNight + " and " + toNight);
+        }
+        return rows;
+    }
 
-                // Directly map fields from _source JSON to BookingDTO
-                BookingDTO bookingDTO = new BookingDTO();
-                bookingDTO.setId(sourceNode.path("id").asLong());
-                bookingDTO.setHotelId(sourceNode.path("hotel_id").asLong());
-                bookingDTO.setUserId(sourceNode.path("user_id").asLong());
-                bookingDTO.setCheckinDate(CommonHelper.parseLocalDateTime(sourceNode.path("check_in_date").asText()));
-                bookingDTO.setCheckoutDate(CommonHelper.parseLocalDateTime(sourceNode.path("check_out_date").asText()));
-                bookingDTO.setNumberOfGuests(sourceNode.path("number_of_guests").asInt());
-                bookingDTO.setTotalPrice(sourceNode.path("total_price").asLong());
-                bookingDTO.setBookingStatus(BookingStatus.valueOf(sourceNode.path("booking_status").asText()));
+    // Night counters of one hotel, reserved against in memory and written back only once the batch is accepted
+    private static class BatchNights {
+        private final Map<LocalDate, Integer> indexByNight = new HashMap<>();
+        private final List<HotelNightInventory> rows;
+        private final int[] booked;
+
+        BatchNights(List<HotelNightInventory> rows) {
+            this.rows = rows;
+            this.booked = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                indexByNight.put(rows.get(i).getNight(), i);
+                booked[i] = rows.get(i).getBooked();
+            }
+        }
 
-                bookingDTOs.add(bookingDTO);
+        boolean tryReserve(BookingDTO booking, int capacity) {
+            // The loaded runs are in night order and a stay never spans a gap between them, so its nights are consecutive rows
+            int from = indexByNight.get(CommonHelper.firstNightOfStay(booking.getCheckinDate()));
+            int to = from + (int) ChronoUnit.DAYS.between(CommonHelper.firstNightOfStay(booking.getCheckinDate()),
+                    CommonHelper.endNightOfStay(booking.getCheckinDate(), booking.getCheckoutDate()));
+            for (int night = from; night < to; night++) {
+                if (booked[night] + booking.getNumberOfGuests() > capacity) {
+                    return false;
+                }
             }
+            for (int night = from; night < to; night++) {
+                booked[night] += booking.getNumberOfGuests();
+            }
+            return true;
         }
-        return bookingDTOs;
 
+        // Flushed on commit, the rows are locked so the version checks cannot fail
+        void apply() {
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getBooked() != booked[i]) {
+                    rows.get(i).setBooked(booked[i]);
+                }
+            }
+        }
     }
 
-    public List<BookingDTO> getBookingsByUserId(Long userId) {
-        List<Booking> bookings = bookingRepository.findByUserId(userId);
-        return bookings.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // Runs a booking write in its own transaction. Optimistic admission retries it when it lost a deadlock or a lock
+    // wait on its night rows, and runs it once more queued behind the hotel row lock when the retries are used up
+    private <T> T admitWithRetry(BookingDTO stay, Function<Boolean, T> write) {
+        seedNights(stay);
+        if (!isOptimisticAdmission()) {
+            return QuarkusTransaction.joiningExisting().call(() -> write.apply(false));
+        }
+        return admissionRetry.call(() -> write.apply(true))
+                .orElseGet(() -> QuarkusTransaction.requiringNew().call(() -> write.apply(false)));
     }
 
-    public List<BookingDTO> getBookingsByHotelId(Long hotelId) {
-        List<Booking> bookings = bookingRepository.findByHotelId(hotelId);
-        return bookings.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    // Creates the stay's missing night rows before the booking transaction opens, so seeding never holds a second
+    // connection while the booking waits on its locks. Incomplete input is left for the write to reject
+    private void seedNights(BookingDTO stay) {
+        if (stay.getHotelId() != null && stay.getCheckinDate() != null && stay.getCheckoutDate() != null) {
+            inventoryService.ensureNights(stay.getHotelId(), stay.getCheckinDate(), stay.getCheckoutDate());
+        }
     }
 
-    @Transactional(value = TxType.REQUIRED, rollbackOn = InsufficientCapacityException.class)
-    // Serializable isolation for race condition protection
-    public BookingDTO createBooking(BookingDTO bookingDTO) {
-        Hotel hotel = hotelRepository.findById(bookingDTO.getHotelId());
-        if (hotel == null) {
-            throw new HotelNotFoundException("Hotel not found with id: " + bookingDTO.getHotelId());
+    // Reserves capacity for a stay, throws InsufficientCapacityException if any night is full. An updated booking gives
+    // its old nights back earlier in the same transaction
+    private void admit(Hotel hotel, BookingDTO bookingDTO, boolean optimistic) {
+        if (!isOptimisticAdmission()) {
+            admitUnderHotelLock(hotel.getId(), bookingDTO);
+            return;
         }
+        reserveNights(hotel, bookingDTO, optimistic);
+    }
 
-        User user = userRepository.findById(bookingDTO.getUserId());
-        if (user == null) {
-            throw new IllegalArgumentException("User not found with id: " + bookingDTO.getUserId());
+    private void reserveNights(Hotel hotel, BookingDTO bookingDTO, boolean optimistic) {
+        if (!optimistic) {
+            // The same nights kept colliding, queue behind the hotel row lock instead of retrying further. Still the
+            // guarded UPDATE: optimistic bookers of this hotel do not take the hotel lock
+            lockHotel(hotel.getId());
         }
+        inventoryService.reserveInTransaction(hotel.getId(), bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate(), bookingDTO.getNumberOfGuests(), hotel.getCapacity());
+    }
 
-        // Capacity Check Logic
-        Hotel hotelForUpdate = hotelRepository.findByIdForUpdate(bookingDTO.getHotelId()); // Custom method with SELECT FOR UPDATE
-        if (hotelForUpdate == null) {
-            throw new HotelNotFoundException("Hotel not found with id: " + bookingDTO.getHotelId());
-        }
+    private void admitUnderHotelLock(Long hotelId, BookingDTO bookingDTO) {
+        Hotel hotelForUpdate = lockHotel(hotelId);
 
         int bookedCapacity = getBookedCapacityForHotelAndDates(hotelForUpdate.getId(), bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate());
         int requestedCapacity = bookingDTO.getNumberOfGuests();
@@ -188,24 +469,30 @@ public class BookingService {
         if (requestedCapacity > availableCapacity) {
             throw new InsufficientCapacityException("Hotel has insufficient capacity for the requested number of guests.");
         }
+        // Keep the night counters in step so switching admission modes needs no rebuild
+        inventoryService.adjustInTransaction(hotelId, bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate(), requestedCapacity);
+    }
 
-        Booking booking = convertToEntity(bookingDTO);
-        booking.setHotel(hotel);
-        booking.setUser(user);
-        booking.setBookingStatus(BookingStatus.PENDING);
-        bookingRepository.persist(booking);
-        return convertToDTO(booking);
+    private Hotel lockHotel(Long hotelId) {
+        Hotel hotelForUpdate = hotelRepository.findByIdForUpdate(hotelId); // Custom method with SELECT FOR UPDATE
+        if (hotelForUpdate == null) {
+            throw new HotelNotFoundException("Hotel not found with id: " + hotelId);
+        }
+        return hotelForUpdate;
     }
 
-    private int getBookedCapacityForHotelAndDates(Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate) {
-        // Count CONFIRMED bookings for the hotel within the given date range
-        List<Booking> confirmedBookings = bookingRepository.find("hotel.id = ?1 and bookingStatus = ?2 and checkoutDate > ?3 and checkinDate < ?4",
-                hotelId, BookingStatus.PENDING, checkinDate, checkoutDate).list();
+    private void releaseCapacity(Booking booking) {
+        inventoryService.adjustInTransaction(booking.getHotel().getId(), booking.getCheckinDate(), booking.getCheckoutDate(), -booking.getNumberOfGuests());
+    }
 
-        // Calculate total booked capacity from confirmed bookings
-        return confirmedBookings.stream()
-                .mapToInt(Booking::getNumberOfGuests)
-                .sum();
+    private boolean isOptimisticAdmission() {
+        return OPTIMISTIC_ADMISSION.equalsIgnoreCase(admissionMode);
+    }
+
+    // Guests of the PENDING bookings overlapping the stay, summed in MySQL over the covering capacity index. Always the
+    // database: every instance's bookings are there
+    private int getBookedCapacityForHotelAndDates(Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate) {
+        return bookingRepository.sumGuestsOverlapping(hotelId, BookingStatus.PENDING, checkinDate, checkoutDate);
     }
 
     public BookingDTO getBooking(Long id) {
@@ -216,8 +503,16 @@ public class BookingService {
         return convertToDTO(booking);
     }
 
-    @Transactional(value = TxType.REQUIRED, rollbackOn = InsufficientCapacityException.class)
+    /**
+     * Replaces a booking's stay and details; a PENDING booking is admitted again for its new stay.
+     *
+     * @throws InsufficientCapacityException if any night of the new stay is full
+     */
     public BookingDTO updateBooking(Long id, BookingDTO bookingDTO) {
+        return admitWithRetry(bookingDTO, optimistic -> replaceBooking(id, bookingDTO, optimistic));
+    }
+
+    private BookingDTO replaceBooking(Long id, BookingDTO bookingDTO, boolean optimistic) {
         Booking existingBooking = bookingRepository.findById(id);
         if (existingBooking == null) {
             throw new BookingNotFoundException("Booking not found with id: " + id);
@@ -233,19 +528,12 @@ public class BookingService {
             throw new IllegalArgumentException("User not found with id: " + bookingDTO.getUserId());
         }
 
-        // Capacity Check Logic
-        Hotel hotelForUpdate = hotelRepository.findByIdForUpdate(bookingDTO.getHotelId()); // Custom method with SELECT FOR UPDATE
-        if (hotelForUpdate == null) {
-            throw new HotelNotFoundException("Hotel not found with id: " + bookingDTO.getHotelId());
-        }
-
-        int bookedCapacity = getBookedCapacityForHotelAndDates(hotelForUpdate.getId(), bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate());
-        int requestedCapacity = bookingDTO.getNumberOfGuests();
-        int hotelCapacity = hotelForUpdate.getCapacity();
-        int availableCapacity = hotelCapacity - bookedCapacity;
-
-        if (requestedCapacity > availableCapacity) {
-            throw new InsufficientCapacityException("Hotel has insufficient capacity for the requested number of guests.");
+        // Capacity Check Logic, cancelled bookings hold no capacity
+        boolean occupiesCapacity = existingBooking.getBookingStatus() == BookingStatus.PENDING;
+        if (occupiesCapacity) {
+            // Free the current stay first so the booking does not compete with itself
+            releaseCapacity(existingBooking);
+            admit(hotel, bookingDTO, optimistic);
         }
 
         existingBooking.setHotel(hotel);
@@ -265,6 +553,9 @@ public class BookingService {
         if (existingBooking == null) {
             return false;
         }
+        if (existingBooking.getBookingStatus() == BookingStatus.PENDING) {
+            releaseCapacity(existingBooking);
+        }
         existingBooking.setBookingStatus(BookingStatus.CANCELLED); // Update status to CANCELLED
         bookingRepository.persist(existingBooking); // Persist the updated status
         return true;
@@ -0,0 +1,65 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.service.HotelCache.CachedHotel;
+import com.hrs.api_gateway.utils.BinaryCacheCodec;
+import com.hrs.api_gateway.utils.JsonCacheCodec;
+
+/**
+ * Redis layout of a cached hotel, version 1: expiresAt, delta, a presence byte for the nullable fields, then id,
+ * capacity, name, city and address.
+ */
+final class CachedHotelCodec extends BinaryCacheCodec<CachedHotel> {
+
+    private static final int VERSION = 1;
+    private static final int HAS_HOTEL = 1;
+    private static final int HAS_ID = 2;
+    private static final int HAS_CAPACITY = 4;
+
+    CachedHotelCodec(ObjectMapper objectMapper) {
+        super(VERSION, DEFAULT_COMPRESS_ABOVE, new JsonCacheCodec<>(objectMapper, CachedHotel.class));
+    }
+
+    @Override
+    protected void write(Writer out, CachedHotel value) {
+        out.writeVarLong(value.getExpiresAt());
+        out.writeVarLong(value.getDelta());
+        writeHotel(out, value.getHotel());
+    }
+
+    @Override
+    protected CachedHotel read(Reader in, int version) {
+        long expiresAt = in.readVarLong();
+        long delta = in.readVarLong();
+        return new CachedHotel(readHotel(in), expiresAt, delta);
+    }
+
+    // Also the hotel layout inside cached search pages
+    static void writeHotel(Writer out, HotelDTO hotel) {
+        if (hotel == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(HAS_HOTEL | (hotel.getId() != null ? HAS_ID : 0) | (hotel.getCapacity() != null ? HAS_CAPACITY : 0));
+        if (hotel.getId() != null) {
+            out.writeZigZagLong(hotel.getId());
+        }
+        if (hotel.getCapacity() != null) {
+            out.writeZigZagLong(hotel.getCapacity());
+        }
+        out.writeString(hotel.getName());
+        out.writeString(hotel.getCity());
+        out.writeString(hotel.getAddress());
+    }
+
+    static HotelDTO readHotel(Reader in) {
+        int present = in.readByte();
+        if ((present & HAS_HOTEL) == 0) {
+            return null;
+        }
+        Long id = (present & HAS_ID) != 0 ? in.readZigZagLong() : null;
+        Integer capacity = (present & HAS_CAPACITY) != 0 ? (int) in.readZigZagLong() : null;
+        return new HotelDTO(id, in.readString(), in.readString(), in.readString(), capacity);
+    }
+}
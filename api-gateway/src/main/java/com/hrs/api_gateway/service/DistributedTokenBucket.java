@@ -0,0 +1,172 @@
+package com.hrs.api_gateway.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hrs.api_gateway.utils.CacheKey;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cluster-wide token buckets kept in Redis and refilled atomically by a Lua script, so N gateway instances share
+ * one limit instead of each allowing the configured rate.
+ * Instances lease tokens in batches and spend them locally, only going back to Redis when their lease runs dry.
+ * If Redis is unreachable each instance falls back to its own in-memory bucket.
+ */
+@ApplicationScoped
+public class DistributedTokenBucket {
+
+    private static final Logger LOG = Logger.getLogger(DistributedTokenBucket.class);
+    private static final int MAX_TRACKED_BUCKETS = 100_000;
+
+    // KEYS[1] bucket hash, ARGV: capacity, tokens refilled per millisecond, tokens wanted. Returns the tokens granted.
+    private static final RedisScript LEASE_SCRIPT = new RedisScript("""
+            local capacity = tonumber(ARGV[1])
+            local refill_per_ms = tonumber(ARGV[2])
+            local wanted = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * refill_per_ms)
+            local granted = math.min(wanted, math.floor(tokens))
+            tokens = tokens - granted
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / refill_per_ms) + 1000)
+            return granted
+            """);
+
+    @Inject
+    RedisPipeline redis;
+
+    // Tokens taken from Redis per round trip, larger means fewer round trips but coarser sharing between instances
+    @ConfigProperty(name = "quarkus.rate-limit.lease-size", defaultValue = "10")
+    int leaseSize;
+
+    // Unspent leased tokens are dropped after this, so an idle instance cannot hoard them
+    @ConfigProperty(name = "quarkus.rate-limit.lease-ttl", defaultValue = "PT1S")
+    Duration leaseTtl;
+
+    // Bounded so one bucket per client IP cannot grow without limit, idle clients are dropped
+    private final Cache<String, LeasedTokens> leases = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_BUCKETS)
+            .expireAfterAccess(Duration.ofMinutes(1))
+            .build();
+    private final Cache<String, TokenBucket> fallbackBuckets = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED_BUCKETS)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+
+    public enum LocalDecision {
+        ALLOWED, // Spent a token this instance had leased
+        DENIED, // The shared bucket was empty moments ago, not worth asking again yet
+        ASK_REDIS
+    }
+
+    /**
+     * Decides from what this instance already leased. No I/O, this is the hot path.
+     */
+    public LocalDecision tryAcquireLeased(String bucketId) {
+        LeasedTokens leased = leases.getIfPresent(bucketId);
+        if (leased == null) {
+            return LocalDecision.ASK_REDIS;
+        }
+        return leased.tryTake(System.nanoTime());
+    }
+
+    /**
+     * Leases a fresh batch from the shared bucket and spends one token of it.
+     *
+     * @param refillPerSecond tokens added to the bucket per second, up to capacity
+     * @return false when the shared bucket is empty
+     */
+    public Uni<Boolean> acquire(String bucketId, int capacity, double refillPerSecond) {
+        int wanted = Math.max(1, Math.min(leaseSize, capacity));
+        return redis.eval(LEASE_SCRIPT, List.of(CacheKey.RATE_LIMIT_BUCKET.getKey(bucketId)),
+                        List.of(String.valueOf(capacity), Double.toString(refillPerSecond / 1000), String.valueOf(wanted)))
+                .map(response -> {
+                    int granted = response == null ? 0 : response.toInteger();
+                    LeasedTokens leased = leases.get(bucketId, id -> new LeasedTokens());
+                    if (granted == 0) {
+                        // Rejected callers would otherwise each cost a round trip, wait until a token has refilled
+                        leased.denyFor(System.nanoTime(), (long) (1_000_000_000d / refillPerSecond));
+                    } else if (granted > 1) {
+                        leased.add(granted - 1, System.nanoTime(), leaseTtl.toNanos());
+                    }
+                    return granted > 0;
+                })
+                .onFailure().recoverWithItem(e -> {
+                    LOG.warnf(e, "Rate limit bucket %s unavailable in Redis, limiting on this instance only", bucketId);
+                    return fallbackBuckets.get(bucketId, id -> new TokenBucket(capacity, refillPerSecond)).tryTake();
+                });
+    }
+
+    // Tokens this instance leased from Redis and has not spent yet
+    static class LeasedTokens {
+        private int tokens;
+        private long expiresAtNanos;
+        private boolean denied;
+
+        synchronized LocalDecision tryTake(long nowNanos) {
+            if (nowNanos - expiresAtNanos >= 0) {
+                tokens = 0;
+                denied = false;
+            }
+            if (denied) {
+                return LocalDecision.DENIED;
+            }
+            if (tokens == 0) {
+                return LocalDecision.ASK_REDIS;
+            }
+            tokens--;
+            return LocalDecision.ALLOWED;
+        }
+
+        synchronized void denyFor(long nowNanos, long backoffNanos) {
+            tokens = 0;
+            denied = true;
+            expiresAtNanos = nowNanos + backoffNanos;
+        }
+
+        synchronized void add(int granted, long nowNanos, long ttlNanos) {
+            if (nowNanos - expiresAtNanos >= 0) {
+                tokens = 0; // Whatever was left of the previous lease has expired
+            }
+            tokens += granted;
+            denied = false;
+            expiresAtNanos = nowNanos + ttlNanos;
+        }
+    }
+
+    // Per-instance bucket used while Redis is down, refilled continuously from elapsed time
+    static class TokenBucket {
+        private final int capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefillNanos;
+
+        TokenBucket(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / 1_000_000_000d;
+            this.tokens = capacity; // Start with full bucket
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized boolean tryTake() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.repository.HotelRepository;
+import com.hrs.api_gateway.utils.CommonHelper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Finds hotels with room for a stay without trying to book them. Where occupancy comes from is set by
+ * quarkus.availability-index.occupancy:
+ * <ul>
+ *     <li>database (default): the hotel_night_inventory counters in MySQL, which every instance writes</li>
+ *     <li>materialized: the {@link MaterializedOccupancy} hashes in Redis, one round trip per page; they include
+ *     every instance's bookings a CDC lag late. Falls back to the database while Redis cannot be read</li>
+ * </ul>
+ * The materialized source walks a directory of hotel capacities (id-sorted arrays per city). Hotel changes reach every
+ * instance through the hotel cache invalidation channel. Until the directory is built, queries go to the database.
+ */
+@ApplicationScoped
+public class HotelAvailabilityIndex {
+
+    private static final Logger LOG = Logger.getLogger(HotelAvailabilityIndex.class);
+    private static final HotelEntry[] NO_HOTELS = new HotelEntry[0];
+    private static final String MATERIALIZED = "materialized";
+
+    @Inject
+    HotelRepository hotelRepository;
+
+    @Inject
+    MaterializedOccupancy materializedOccupancy;
+
+    @Inject
+    RedisDataSource redisDataSource;
+
+    // "database" or "materialized" (Redis, maintained by occupancy-stream)
+    @ConfigProperty(name = "quarkus.availability-index.occupancy", defaultValue = "database")
+    String occupancySource;
+
+    private volatile Directory directory; // Replaced as a whole, readers never see a half-applied change
+
+    private PubSubCommands.RedisSubscriber subscriber;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!uses(MATERIALIZED)) {
+            return; // Every query goes to the database, no directory needed
+        }
+        try {
+            subscriber = redisDataSource.pubsub(String.class).subscribe(HotelCache.INVALIDATION_CHANNEL, this::onHotelChanged);
+        } catch (Exception e) {
+            LOG.warnf(e, "Could not subscribe to %s, hotel changes on other instances will not reach the availability index", HotelCache.INVALIDATION_CHANNEL);
+        }
+        try {
+            QuarkusTransaction.requiringNew().run(this::rebuild);
+        } catch (Exception e) {
+            LOG.warn("Could not build hotel availability index, availability will be queried from the database", e);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (subscriber != null) {
+            subscriber.unsubscribe();
+        }
+    }
+
+    /**
+     * Reloads the hotel directory. Only id, city and capacity are read.
+     */
+    public void rebuild() {
+        List<HotelEntry> hotels = new ArrayList<>();
+        try (Stream<Object[]> rows = hotelRepository.streamDirectory()) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                hotels.add(new HotelEntry((Long) row[0], cityKey((String) row[1]), (Integer) row[2]));
+            }
+        }
+        directory = Directory.of(hotels);
+        LOG.infof("Hotel availability index built for %d hotels", hotels.size());
+    }
+
+    public boolean isReady() {
+        return directory != null && uses(MATERIALIZED);
+    }
+
+    /**
+     * Ids of hotels, optionally in one city, that can take the guests on every night of the stay, in id order.
+     *
+     * @param afterId only hotels with a larger id, for keyset paging
+     */
+    public List<Long> findAvailable(String city, LocalDateTime checkinDate, LocalDateTime checkoutDate, int guests, long afterId, int limit) {
+        Directory current = directory;
+        if (current == null || !isReady()) {
+            return findInDatabase(city, checkinDate, checkoutDate, guests, afterId, limit);
+        }
+
+        HotelEntry[] candidates = city == null ? current.all : current.byCity.getOrDefault(cityKey(city), NO_HOTELS);
+        try {
+            return findAvailableMaterialized(candidates, checkinDate, checkoutDate, guests, afterId, limit);
+        } catch (RuntimeException e) {
+            LOG.debug("Materialized occupancy unavailable, querying the database", e);
+            return findInDatabase(city, checkinDate, checkoutDate, guests, afterId, limit);
+        }
+    }
+
+    private List<Long> findAvailableMaterialized(HotelEntry[] candidates, LocalDateTime checkinDate, LocalDateTime checkoutDate,
+                                                 int guests, long afterId, int limit) {
+        LocalDate fromNight = CommonHelper.firstNightOfStay(checkinDate);
+        LocalDate toNight = CommonHelper.endNightOfStay(checkinDate, checkoutDate);
+        List<Long> available = new ArrayList<>(limit);
+        int i = firstAfter(candidates, afterId);
+        while (i < candidates.length && available.size() < limit) {
+            // Only as many hotels as could still fill the page, so a page of mostly free hotels is one round trip
+            List<HotelEntry> chunk = new ArrayList<>();
+            while (i < candidates.length && chunk.size() < limit - available.size()) {
+                HotelEntry hotel = candidates[i++];
+                if (hotel.capacity() >= guests) {
+                    chunk.add(hotel);
+                }
+            }
+            int[] occupancy = materializedOccupancy.maxOccupancy(chunk.stream().map(HotelEntry::id).toList(), fromNight, toNight);
+            for (int j = 0; j < chunk.size(); j++) {
+                if (chunk.get(j).capacity() - occupancy[j] >= guests) {
+                    available.add(chunk.get(j).id());
+                }
+            }
+        }
+        return available;
+    }
+
+    private List<Long> findInDatabase(String city, LocalDateTime checkinDate, LocalDateTime checkoutDate, int guests, long afterId, int limit) {
+        return hotelRepository.findAvailableIds(city == null ? null : cityKey(city), CommonHelper.firstNightOfStay(checkinDate),
+                CommonHelper.endNightOfStay(checkinDate, checkoutDate), guests, afterId, limit);
+    }
+
+    private boolean uses(String source) {
+        return source.equalsIgnoreCase(occupancySource);
+    }
+
+    private void onHotelChanged(String hotelId) {
+        long id;
+        try {
+            id = Long.parseLong(hotelId);
+        } catch (NumberFormatException e) {
+            return; // HotelCache already logs malformed messages
+        }
+        // Pub/sub callbacks must not block, the row is read on a worker thread
+        Infrastructure.getDefaultWorkerPool().execute(() -> {
+            try {
+                Hotel hotel = QuarkusTransaction.requiringNew().call(() -> hotelRepository.findById(id));
+                update(id, hotel == null ? null : new HotelEntry(hotel.getId(), cityKey(hotel.getCity()), hotel.getCapacity()));
+            } catch (Exception e) {
+                LOG.warnf(e, "Could not refresh hotel %s in the availability index", id);
+            }
+        });
+    }
+
+    // Copy-on-write, hotel changes are rare next to availability queries
+    private synchronized void update(long hotelId, HotelEntry hotel) {
+        Directory current = directory;
+        if (current == null) {
+            return;
+        }
+        Map<Long, HotelEntry> hotels = new HashMap<>();
+        for (HotelEntry entry : current.all) {
+            hotels.put(entry.id(), entry);
+        }
+        if (hotel == null) {
+            hotels.remove(hotelId);
+        } else {
+            hotels.put(hotelId, hotel);
+        }
+        directory = Directory.of(hotels.values());
+    }
+
+    // Index of the first hotel with an id above afterId, the arrays are sorted by id
+    private static int firstAfter(HotelEntry[] hotels, long afterId) {
+        int low = 0;
+        int high = hotels.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (hotels[mid].id() <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String cityKey(String city) {
+        return city == null ? "" : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    record HotelEntry(long id, String city, int capacity) {
+    }
+
+    private record Directory(HotelEntry[] all, Map<String, HotelEntry[]> byCity) {
+
+        static Directory of(Iterable<HotelEntry> hotels) {
+            List<HotelEntry> all = new ArrayList<>();
+            Map<String, List<HotelEntry>> byCity = new HashMap<>();
+            for (HotelEntry hotel : hotels) {
+                all.add(hotel);
+                byCity.computeIfAbsent(hotel.city(), city -> new ArrayList<>()).add(hotel);
+            }
+            Map<String, HotelEntry[]> cityArrays = new HashMap<>();
+            byCity.forEach((city, entries) -> cityArrays.put(city, sortedById(entries)));
+            return new Directory(sortedById(all), cityArrays);
+        }
+
+        private static HotelEntry[] sortedById(List<HotelEntry> hotels) {
+            HotelEntry[] sorted = hotels.toArray(NO_HOTELS);
+            Arrays.sort(sorted, Comparator.comparingLong(HotelEntry::id));
+            return sorted;
+        }
+    }
+}
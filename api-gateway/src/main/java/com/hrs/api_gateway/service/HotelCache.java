@@ -0,0 +1,739 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hrs.api_gateway.exception.CacheUnavailableException;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.utils.CacheKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier hotel cache: a bounded in-process Caffeine L1 (W-TinyLFU eviction) in front of the shared Redis L2.
+ * Invalidations are broadcast over Redis pub/sub so every gateway instance drops its L1 copy; the L1 TTL bounds
+ * staleness if a message is ever missed.
+ * <p>
+ * Misses are coalesced so a hot key expiring does not stampede MySQL: concurrent misses in one instance share a
+ * single in-flight load, a short Redis lease lets only one instance reload, and hot keys are refreshed
+ * probabilistically shortly before they expire (XFetch) so they rarely expire under load at all.
+ * <p>
+ * Every invalidation bumps a per-hotel version in Redis and a local counter, and a load only caches its result if
+ * neither moved while it ran, so a load that read the row before an update cannot put the old hotel back. Without
+ * Redis there is no lease to coordinate instances, so each instance caps its own concurrent database loads instead.
+ */
+@ApplicationScoped
+public class HotelCache {
+
+    private static final Logger LOG = Logger.getLogger(HotelCache.class);
+    private static final Duration HOTEL_CACHE_EXPIRATION = Duration.ofHours(1); // Redis copy lives for 1 hour
+    static final String INVALIDATION_CHANNEL = "hotel-cache-invalidation"; // Also followed by HotelAvailabilityIndex
+    private static final Duration LEASE_POLL_INTERVAL = Duration.ofMillis(20);
+    private static final int INVALIDATION_STRIPES = 1024;
+    private static final RedisScript RELEASE_LEASE_SCRIPT = new RedisScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end");
+    // The L2 read and, on a miss, the reload lease in one round trip: {cached value or nil, 1 if the lease was taken,
+    // invalidation version}
+    private static final RedisScript READ_OR_LEASE_SCRIPT = new RedisScript("""
+            local version = redis.call('get', KEYS[3]) or '0'
+            local cached = redis.call('get', KEYS[1])
+            if cached then return {cached, 0, version} end
+            if redis.call('set', KEYS[2], ARGV[1], 'NX', 'PX', ARGV[2]) then return {false, 1, version} end
+            return {false, 0, version}
+            """);
+    // Stores the loaded hotel only if it was not invalidated since the load read the version, then releases our lease
+    private static final RedisScript STORE_AND_RELEASE_SCRIPT = new RedisScript("""
+            local stored = 0
+            if (redis.call('get', KEYS[2]) or '0') == ARGV[3] then
+                redis.call('setex', KEYS[1], ARGV[2], ARGV[1])
+                stored = 1
+            end
+            if redis.call('get', KEYS[3]) == ARGV[4] then redis.call('del', KEYS[3]) end
+            return stored
+            """);
+
+    @Inject
+    RedisPipeline redisPipeline;
+
+    @Inject
+    HotelSearchCache searchCache; // Every hotel change also invalidates cached search pages
+
+    @Inject
+    RedisDataSource redisDataSource; // Pub/sub subscription
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private CachedHotelCodec codec;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @ConfigProperty(name = "quarkus.hotel-cache.l1.max-size", defaultValue = "10000")
+    long l1MaxSize;
+
+    @ConfigProperty(name = "quarkus.hotel-cache.l1.ttl", defaultValue = "PT1M")
+    Duration l1Ttl;
+
+    // How long one instance may hold the reload lease before others give up waiting and load themselves
+    @ConfigProperty(name = "quarkus.hotel-cache.lease", defaultValue = "PT2S")
+    Duration leaseDuration;
+
+    // XFetch beta, above 1 refreshes earlier, 0 disables early refresh
+    @ConfigProperty(name = "quarkus.hotel-cache.early-refresh-beta", defaultValue = "1.0")
+    double earlyRefreshBeta;
+
+    // Concurrent database loads per instance while Redis is unreachable
+    @ConfigProperty(name = "quarkus.hotel-cache.degraded-max-loads", defaultValue = "8")
+    int degradedMaxLoads;
+
+    private Cache<Long, CachedHotel> l1;
+    private final Map<Long, CompletableFuture<CachedHotel>> loadsInFlight = new ConcurrentHashMap<>();
+    // Local invalidations per id stripe, a load that saw one happen does not fill L1
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+    private Semaphore degradedLoadPermits;
+    private PubSubCommands.RedisSubscriber subscriber;
+
+    private Counter l1Hits;
+    private Counter l1Misses;
+    private Counter l2Hits;
+    private Counter l2Misses;
+    private Timer l1Latency;
+    private Timer l2Latency;
+    private Timer loadLatency;
+    private Counter coalesced;
+    private Counter leaseWaits;
+    private Counter earlyRefreshes;
+    private Counter staleLoads;
+    private Counter degradedLoads;
+
+    @PostConstruct
+    void init() {
+        codec = new CachedHotelCodec(objectMapper);
+        degradedLoadPermits = new Semaphore(degradedMaxLoads);
+        l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1Ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "hotel-l1"); // Size, evictions and Caffeine's own hit counts
+
+        l1Hits = tierCounter("l1", "hit");
+        l1Misses = tierCounter("l1", "miss");
+        l2Hits = tierCounter("l2", "hit");
+        l2Misses = tierCounter("l2", "miss");
+        l1Latency = tierTimer("l1");
+        l2Latency = tierTimer("l2");
+        loadLatency = tierTimer("db");
+        coalesced = meterRegistry.counter("hotel.cache.coalesced");
+        leaseWaits = meterRegistry.counter("hotel.cache.lease.waits");
+        earlyRefreshes = meterRegistry.counter("hotel.cache.early.refreshes");
+        staleLoads = meterRegistry.counter("hotel.cache.stale.loads");
+        degradedLoads = meterRegistry.counter("hotel.cache.degraded.loads");
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        try {
+            subscriber = redisDataSource.pubsub(String.class).subscribe(INVALIDATION_CHANNEL, this::onInvalidation);
+        } catch (Exception e) {
+            LOG.warnf(e, "Could not subscribe to %s, L1 entries will only expire after %s", INVALIDATION_CHANNEL, l1Ttl);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (subscriber != null) {
+            subscriber.unsubscribe();
+        }
+    }
+
+    /**
+     * Returns the hotel from L1, then Redis, then the loader, filling the tiers above on the way back.
+     * Loader exceptions (e.g. HotelNotFoundException) propagate to every caller sharing the load and nothing is cached.
+     */
+    public HotelDTO getOrLoad(Long id, Function<Long, HotelDTO> loader) {
+        long start = System.nanoTime();
+        CachedHotel cached = l1.getIfPresent(id);
+        l1Latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (cached != null) {
+            l1Hits.increment();
+            if (shouldRefreshEarly(cached)) {
+                refreshInBackground(id, loader);
+            }
+            return cached.getHotel();
+        }
+        l1Misses.increment();
+
+        CompletableFuture<CachedHotel> load = new CompletableFuture<>();
+        CompletableFuture<CachedHotel> inFlight = loadsInFlight.putIfAbsent(id, load);
+        if (inFlight != null) {
+            coalesced.increment();
+            CachedHotel shared = await(inFlight);
+            // A batch load that did not find the hotel completes with null, load it alone for the loader's exception
+            return shared != null ? shared.getHotel() : loadFromDatabase(id, loader).getHotel();
+        }
+        return runLoad(id, load, loader).getHotel();
+    }
+
+    private void refreshInBackground(Long id, Function<Long, HotelDTO> loader) {
+        CompletableFuture<CachedHotel> load = new CompletableFuture<>();
+        if (loadsInFlight.putIfAbsent(id, load) != null) {
+            return; // Already being loaded or refreshed
+        }
+        Infrastructure.getDefaultWorkerPool().execute(() -> {
+            try {
+                runLoad(id, load, loader);
+            } catch (RuntimeException e) {
+                LOG.debugf(e, "Early refresh of hotel ID: %s failed", id);
+            }
+        });
+    }
+
+    private CachedHotel runLoad(Long id, CompletableFuture<CachedHotel> load, Function<Long, HotelDTO> loader) {
+        try {
+            long seen = invalidations.get(stripe(id));
+            CachedHotel loaded = loadThroughRedis(id, loader);
+            putUnlessInvalidated(id, loaded, seen);
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(id, load);
+        }
+    }
+
+    private CachedHotel loadThroughRedis(Long id, Function<Long, HotelDTO> loader) {
+        String leaseToken = UUID.randomUUID().toString();
+        L2Read read;
+        try {
+            read = l2Latency.record(() -> readAllL2OrLease(List.of(id), leaseToken).get(0));
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read hotel from cache, loading without Redis", e);
+            return loadDegraded(id, loader);
+        }
+        if (read.cached() != null) {
+            l2Hits.increment();
+            LOG.debugf("Cache hit for hotel ID: %s", id);
+            // Refresh early only if no other instance is already doing it, everyone else keeps serving the current copy
+            if (!shouldRefreshEarly(read.cached()) || !tryAcquireLease(id, leaseToken)) {
+                return read.cached();
+            }
+            earlyRefreshes.increment();
+            return loadUnderLease(id, read.version(), leaseToken, loader);
+        }
+        l2Misses.increment();
+
+        if (read.leased()) {
+            return loadUnderLease(id, read.version(), leaseToken, loader);
+        }
+        // Another instance is loading this hotel, wait for it to land in Redis rather than querying MySQL as well
+        leaseWaits.increment();
+        CachedHotel cached;
+        try {
+            cached = awaitOtherLoaders(List.of(id)).get(id);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read hotel from cache, loading without Redis", e);
+            return loadDegraded(id, loader);
+        }
+        if (cached != null) {
+            return cached;
+        }
+        CachedHotel loaded = loadFromDatabase(id, loader);
+        storeAllAndRelease(Map.of(id, read.version()), Map.of(id, loaded), "");
+        return loaded;
+    }
+
+    private CachedHotel loadUnderLease(Long id, String version, String leaseToken, Function<Long, HotelDTO> loader) {
+        CachedHotel loaded;
+        try {
+            loaded = loadFromDatabase(id, loader);
+        } catch (RuntimeException e) {
+            releaseLeases(List.of(id), leaseToken);
+            throw e;
+        }
+        storeAllAndRelease(Map.of(id, version), Map.of(id, loaded), leaseToken);
+        return loaded;
+    }
+
+    // Redis is unreachable, so no lease keeps the other instances away from MySQL: bound this instance's share instead
+    private CachedHotel loadDegraded(Long id, Function<Long, HotelDTO> loader) {
+        return withDegradedPermit(() -> loadFromDatabase(id, loader));
+    }
+
+    private <T> T withDegradedPermit(Supplier<T> load) {
+        degradedLoads.increment();
+        try {
+            if (!degradedLoadPermits.tryAcquire(leaseDuration.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new CacheUnavailableException("Hotel cache unavailable, too many hotels loading from the database");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheUnavailableException("Interrupted waiting to load hotels from the database");
+        }
+        try {
+            return load.get();
+        } finally {
+            degradedLoadPermits.release();
+        }
+    }
+
+    private CachedHotel loadFromDatabase(Long id, Function<Long, HotelDTO> loader) {
+        long start = System.nanoTime();
+        HotelDTO hotelDTO = joiningTransaction(() -> loader.apply(id));
+        long loadNanos = System.nanoTime() - start;
+        loadLatency.record(loadNanos, TimeUnit.NANOSECONDS);
+        return new CachedHotel(hotelDTO, System.currentTimeMillis() + HOTEL_CACHE_EXPIRATION.toMillis(),
+                Math.max(1, TimeUnit.NANOSECONDS.toMillis(loadNanos)));
+    }
+
+    // One loader call for the batch, ids it does not return are left out
+    private Map<Long, CachedHotel> loadAllFromDatabase(Collection<Long> ids, Function<Collection<Long>, Map<Long, HotelDTO>> loader) {
+        List<Long> toLoad = new ArrayList<>(ids);
+        long start = System.nanoTime();
+        Map<Long, HotelDTO> hotelDTOs = joiningTransaction(() -> loader.apply(toLoad));
+        long loadNanos = System.nanoTime() - start;
+        loadLatency.record(loadNanos, TimeUnit.NANOSECONDS);
+        long expiresAt = System.currentTimeMillis() + HOTEL_CACHE_EXPIRATION.toMillis();
+        long delta = Math.max(1, TimeUnit.NANOSECONDS.toMillis(loadNanos));
+        Map<Long, CachedHotel> loaded = new HashMap<>();
+        hotelDTOs.forEach((id, hotelDTO) -> loaded.put(id, new CachedHotel(hotelDTO, expiresAt, delta)));
+        return loaded;
+    }
+
+    // Joins the caller's transaction if there is one; background refreshes need their own for the session
+    <T> T joiningTransaction(Supplier<T> work) {
+        return QuarkusTransaction.joiningExisting().call(work::get);
+    }
+
+    // One round trip: per hotel the version-checked SETEX, then the lease release once the value is visible to the
+    // waiters. Hotels the loader did not find only release their lease.
+    private void storeAllAndRelease(Map<Long, String> versions, Map<Long, CachedHotel> loaded, String leaseToken) {
+        try {
+            List<Response> replies = redisPipeline.await(redisPipeline.pipelined(() -> {
+                List<Uni<Response>> commands = new ArrayList<>(versions.size());
+                versions.forEach((id, version) -> {
+                    CachedHotel hotel = loaded.get(id);
+                    String leaseKey = CacheKey.HOTEL_LOAD_LEASE.getKey(id);
+                    commands.add(hotel == null
+                            ? redisPipeline.eval(RELEASE_LEASE_SCRIPT, List.of(leaseKey), List.of(leaseToken))
+                            : redisPipeline.eval(STORE_AND_RELEASE_SCRIPT,
+                            List.of(CacheKey.HOTEL_BY_ID.getKey(id), CacheKey.HOTEL_VERSION.getKey(id), leaseKey),
+                            List.of(codec.encode(hotel), HOTEL_CACHE_EXPIRATION.getSeconds(), version, leaseToken)));
+                });
+                return Uni.join().all(commands).andFailFast();
+            }));
+            int i = 0;
+            for (Long id : versions.keySet()) {
+                if (loaded.containsKey(id) && replies.get(i).toInteger() == 0) {
+                    staleLoads.increment();
+                    LOG.debugf("Hotel ID: %s changed while it was loading, not caching it", id);
+                }
+                i++;
+            }
+        } catch (Exception e) {
+            LOG.warn("Error writing hotels to cache", e); // Still serve the loaded hotels, leases left behind expire on their own
+        }
+    }
+
+    // The re-check after the put closes the race with an invalidation landing between the first check and the put
+    private void putUnlessInvalidated(Long id, CachedHotel loaded, long seen) {
+        int stripe = stripe(id);
+        if (invalidations.get(stripe) != seen) {
+            staleLoads.increment();
+            return;
+        }
+        l1.put(id, loaded);
+        if (invalidations.get(stripe) != seen) {
+            l1.invalidate(id);
+        }
+    }
+
+    private void invalidateL1(Long id) {
+        invalidations.incrementAndGet(stripe(id)); // Before the invalidate, see putUnlessInvalidated
+        l1.invalidate(id);
+    }
+
+    private static int stripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), INVALIDATION_STRIPES);
+    }
+
+    // XFetch: the closer to expiry and the slower the load, the likelier a read is to trigger the refresh
+    private boolean shouldRefreshEarly(CachedHotel cached) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        double headStartMillis = -cached.getDelta() * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + headStartMillis >= cached.getExpiresAt();
+    }
+
+    // Fails closed: without an answer from Redis another instance may hold the lease, so this one does not load
+    private boolean tryAcquireLease(Long id, String leaseToken) {
+        try {
+            return redisPipeline.await(redisPipeline.send(Request.cmd(Command.SET).arg(CacheKey.HOTEL_LOAD_LEASE.getKey(id))
+                    .arg(leaseToken).arg("NX").arg("PX").arg(leaseDuration.toMillis()))) != null;
+        } catch (Exception e) {
+            LOG.warn("Could not acquire hotel load lease", e);
+            return false;
+        }
+    }
+
+    private void releaseLeases(Collection<Long> ids, String leaseToken) {
+        try {
+            // Only delete our own leases, one may have expired and been taken by another instance meanwhile
+            redisPipeline.await(redisPipeline.pipelined(() -> {
+                List<Uni<Response>> commands = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    commands.add(redisPipeline.eval(RELEASE_LEASE_SCRIPT, List.of(CacheKey.HOTEL_LOAD_LEASE.getKey(id)), List.of(leaseToken)));
+                }
+                return Uni.join().all(commands).andFailFast();
+            }));
+        } catch (Exception e) {
+            LOG.debugf(e, "Could not release hotel load leases, they will expire on their own");
+        }
+    }
+
+    // Polls Redis until the other instances stored the hotels or their leases ran out, returns what landed
+    private Map<Long, CachedHotel> awaitOtherLoaders(Collection<Long> ids) {
+        Map<Long, CachedHotel> landed = new HashMap<>();
+        List<Long> waiting = new ArrayList<>(ids);
+        long deadline = System.nanoTime() + leaseDuration.toNanos();
+        while (!waiting.isEmpty() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(LEASE_POLL_INTERVAL.toNanos());
+            List<byte[]> values = redisPipeline.await(redisPipeline.mget(waiting.stream().map(CacheKey.HOTEL_BY_ID::getKey).toList()));
+            List<Long> stillWaiting = new ArrayList<>();
+            for (int i = 0; i < waiting.size(); i++) {
+                CachedHotel cached = decode(values.get(i));
+                if (cached != null) {
+                    landed.put(waiting.get(i), cached);
+                } else {
+                    stillWaiting.add(waiting.get(i));
+                }
+            }
+            waiting = stillWaiting;
+        }
+        return landed;
+    }
+
+    /**
+     * Batch variant of {@link #getOrLoad}: L1, then one Redis round trip for the rest, then one loader call for the
+     * hotels this instance got the lease for. Misses share the single-flight loads and leases of {@link #getOrLoad},
+     * so a page of ids cannot stampede MySQL either. Ids the loader does not return are left out.
+     *
+     * @throws IllegalArgumentException if an id is null
+     */
+    public Map<Long, HotelDTO> getAllOrLoad(Collection<Long> ids, Function<Collection<Long>, Map<Long, HotelDTO>> loader) {
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Hotel IDs must not be null");
+            }
+        }
+        Map<Long, HotelDTO> hotels = new HashMap<>();
+        long start = System.nanoTime();
+        Map<Long, CachedHotel> inL1 = l1.getAllPresent(ids);
+        l1Latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        inL1.forEach((id, cached) -> hotels.put(id, cached.getHotel()));
+        l1Hits.increment(inL1.size());
+
+        // Misses another caller is already loading join that load, the rest are loaded here as one batch
+        Map<Long, CompletableFuture<CachedHotel>> joined = new HashMap<>();
+        Map<Long, CompletableFuture<CachedHotel>> owned = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (inL1.containsKey(id) || joined.containsKey(id) || owned.containsKey(id)) {
+                continue;
+            }
+            CompletableFuture<CachedHotel> load = new CompletableFuture<>();
+            CompletableFuture<CachedHotel> inFlight = loadsInFlight.putIfAbsent(id, load);
+            if (inFlight != null) {
+                joined.put(id, inFlight);
+            } else {
+                owned.put(id, load);
+            }
+        }
+        if (joined.isEmpty() && owned.isEmpty()) {
+            return hotels;
+        }
+        l1Misses.increment(joined.size() + owned.size());
+        coalesced.increment(joined.size());
+
+        if (!owned.isEmpty()) {
+            runLoads(owned, loader).forEach((id, cached) -> hotels.put(id, cached.getHotel()));
+        }
+        List<Long> failed = new ArrayList<>();
+        joined.forEach((id, load) -> {
+            try {
+                CachedHotel cached = load.join();
+                if (cached != null) {
+                    hotels.put(id, cached.getHotel());
+                }
+            } catch (CompletionException e) {
+                failed.add(id); // A single load that threw, e.g. HotelNotFoundException, the batch loader skips those
+            }
+        });
+        if (!failed.isEmpty()) {
+            loadAllFromDatabase(failed, loader).forEach((id, cached) -> hotels.put(id, cached.getHotel()));
+        }
+        return hotels;
+    }
+
+    // Completes every owned load, with null for hotels the loader did not return
+    private Map<Long, CachedHotel> runLoads(Map<Long, CompletableFuture<CachedHotel>> loads,
+                                            Function<Collection<Long>, Map<Long, HotelDTO>> loader) {
+        Map<Long, Long> seen = new HashMap<>();
+        loads.keySet().forEach(id -> seen.put(id, invalidations.get(stripe(id))));
+        try {
+            Map<Long, CachedHotel> loaded = loadAllThroughRedis(new ArrayList<>(loads.keySet()), loader);
+            loads.forEach((id, load) -> {
+                CachedHotel cached = loaded.get(id);
+                if (cached != null) {
+                    putUnlessInvalidated(id, cached, seen.get(id));
+                }
+                load.complete(cached);
+            });
+            return loaded;
+        } catch (RuntimeException e) {
+            loads.values().forEach(load -> load.completeExceptionally(e));
+            throw e;
+        } finally {
+            loads.forEach(loadsInFlight::remove);
+        }
+    }
+
+    private Map<Long, CachedHotel> loadAllThroughRedis(List<Long> ids, Function<Collection<Long>, Map<Long, HotelDTO>> loader) {
+        String leaseToken = UUID.randomUUID().toString();
+        List<L2Read> reads;
+        try {
+            reads = l2Latency.record(() -> readAllL2OrLease(ids, leaseToken));
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read hotels from cache, loading without Redis", e);
+            return withDegradedPermit(() -> loadAllFromDatabase(ids, loader));
+        }
+        Map<Long, CachedHotel> hotels = new HashMap<>();
+        Map<Long, String> leased = new LinkedHashMap<>();
+        Map<Long, String> waiting = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            L2Read read = reads.get(i);
+            if (read.cached() != null) {
+                hotels.put(ids.get(i), read.cached());
+            } else {
+                (read.leased() ? leased : waiting).put(ids.get(i), read.version());
+            }
+        }
+        l2Hits.increment(hotels.size());
+        l2Misses.increment(leased.size() + waiting.size());
+
+        if (!leased.isEmpty()) {
+            Map<Long, CachedHotel> loaded;
+            try {
+                loaded = loadAllFromDatabase(leased.keySet(), loader);
+            } catch (RuntimeException e) {
+                releaseLeases(leased.keySet(), leaseToken);
+                throw e;
+            }
+            storeAllAndRelease(leased, loaded, leaseToken);
+            hotels.putAll(loaded);
+        }
+        if (!waiting.isEmpty()) {
+            // Other instances are loading these, wait for them to land in Redis rather than querying MySQL as well
+            leaseWaits.increment(waiting.size());
+            try {
+                Map<Long, CachedHotel> landed = awaitOtherLoaders(waiting.keySet());
+                hotels.putAll(landed);
+                waiting.keySet().removeAll(landed.keySet());
+            } catch (RuntimeException e) {
+                LOG.warn("Could not read hotels from cache, loading without Redis", e);
+                hotels.putAll(withDegradedPermit(() -> loadAllFromDatabase(waiting.keySet(), loader)));
+                return hotels;
+            }
+            if (!waiting.isEmpty()) {
+                Map<Long, CachedHotel> loaded = loadAllFromDatabase(waiting.keySet(), loader);
+                storeAllAndRelease(waiting, loaded, "");
+                hotels.putAll(loaded);
+            }
+        }
+        return hotels;
+    }
+
+    /**
+     * Drops the hotel from Redis and from every instance's L1. Inside a transaction this waits for the commit,
+     * otherwise a concurrent reader could re-cache the old row before it is replaced.
+     */
+    public void invalidate(Long hotelId) {
+        if (transactionSynchronizationRegistry.getTransactionKey() == null) {
+            evictEverywhere(hotelId);
+            return;
+        }
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    evictEverywhere(hotelId);
+                }
+            }
+        });
+    }
+
+    private void evictEverywhere(Long hotelId) {
+        invalidateL1(hotelId);
+        searchCache.onHotelChanged();
+        try {
+            // Remove hotel data from Redis, orphan the cached search pages and tell the other instances, one round trip.
+            // The version bump stops loads already running from storing the old row, the generation is bumped before
+            // the broadcast, so an instance that hears it never reads the old one.
+            redisPipeline.await(redisPipeline.pipelined(() -> Uni.combine().all().unis(
+                    redisPipeline.send(Request.cmd(Command.INCR).arg(CacheKey.HOTEL_VERSION.getKey(hotelId))),
+                    redisPipeline.send(Request.cmd(Command.DEL).arg(CacheKey.HOTEL_BY_ID.getKey(hotelId))),
+                    redisPipeline.send(Request.cmd(Command.INCR).arg(HotelSearchCache.GENERATION_KEY)),
+                    redisPipeline.send(Request.cmd(Command.PUBLISH).arg(INVALIDATION_CHANNEL).arg(hotelId.toString()))
+            ).discardItems()));
+            LOG.debugf("Invalidated cache for hotel ID: %s", hotelId);
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to invalidate cache for hotel ID: %s", hotelId);
+        } finally {
+            searchCache.onHotelChanged(); // Again, a search during the round trip may have read the old generation
+        }
+        searchCache.awaitIndexed(hotelId); // And once more when Elasticsearch has the change
+    }
+
+    void onInvalidation(String hotelId) {
+        try {
+            invalidateL1(Long.valueOf(hotelId));
+        } catch (NumberFormatException e) {
+            LOG.warnf("Ignoring malformed hotel cache invalidation: %s", hotelId);
+        }
+    }
+
+    // One read-or-lease script per id, pipelined. Throws if Redis cannot be reached, the caller then loads without it
+    private List<L2Read> readAllL2OrLease(List<Long> ids, String leaseToken) {
+        String leaseMillis = String.valueOf(leaseDuration.toMillis());
+        List<Response> replies = redisPipeline.await(redisPipeline.pipelined(() -> {
+            List<Uni<Response>> commands = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                // All keys in one script, fine on a single Redis node, a cluster would need them in one hash slot
+                commands.add(redisPipeline.eval(READ_OR_LEASE_SCRIPT,
+                        List.of(CacheKey.HOTEL_BY_ID.getKey(id), CacheKey.HOTEL_LOAD_LEASE.getKey(id), CacheKey.HOTEL_VERSION.getKey(id)),
+                        List.of(leaseToken, leaseMillis)));
+            }
+            return Uni.join().all(commands).andFailFast();
+        }));
+        List<L2Read> reads = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Response read = replies.get(i);
+            String version = read.get(2).toString();
+            Response value = read.get(0);
+            CachedHotel cached = value == null ? null : decode(value.toBytes());
+            if (cached != null) {
+                reads.add(new L2Read(cached, false, version));
+            } else if (value == null) {
+                reads.add(new L2Read(null, read.get(1).toInteger() == 1, version));
+            } else {
+                // An unreadable entry is a miss the script did not take the lease for
+                reads.add(new L2Read(null, tryAcquireLease(ids.get(i), leaseToken), version));
+            }
+        }
+        return reads;
+    }
+
+    private record L2Read(CachedHotel cached, boolean leased, String version) {
+    }
+
+    private CachedHotel decode(byte[] cached) {
+        if (cached == null) {
+            return null;
+        }
+        try {
+            CachedHotel cachedHotel = codec.decode(cached);
+            return cachedHotel.getHotel() != null ? cachedHotel : null; // Entries written before the envelope count as misses
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Error deserializing hotel from cache", e); // Treat as a miss and reload
+            return null;
+        }
+    }
+
+    private static CachedHotel await(CompletableFuture<CachedHotel> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // Same exception the loading caller got, e.g. HotelNotFoundException
+            }
+            throw e;
+        }
+    }
+
+    private Counter tierCounter(String tier, String result) {
+        return Counter.builder("hotel.cache.requests")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer tierTimer(String tier) {
+        return Timer.builder("hotel.cache.latency")
+                .tag("tier", tier)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Redis value for a hotel: the DTO plus what XFetch needs, when the entry expires and how long it took to load.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CachedHotel {
+        private HotelDTO hotel;
+        private long expiresAt; // Epoch millis
+        private long delta; // Load time in millis
+    }
+}
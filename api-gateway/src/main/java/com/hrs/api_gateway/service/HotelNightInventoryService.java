@@ -0,0 +1,74 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.exception.InsufficientCapacityException;
+import com.hrs.api_gateway.repository.HotelNightInventoryRepository;
+import com.hrs.api_gateway.utils.CommonHelper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Per hotel-night booked counters in the hotel_night_inventory table.
+ * Bookings are admitted with a guarded UPDATE on the stay's night rows instead of locking the hotel row, so bookings
+ * for one hotel only contend when they share a night. Every change runs in the booking's own transaction, so a
+ * counter never moves without its booking row and nothing needs compensating after a rollback or a crash.
+ */
+@ApplicationScoped
+public class HotelNightInventoryService {
+
+    @Inject
+    HotelNightInventoryRepository inventoryRepository;
+
+    /**
+     * Reserves the stay inside the caller's transaction with a single guarded UPDATE, holding the night rows until commit.
+     *
+     * @throws InsufficientCapacityException if any night of the stay is full
+     */
+    public void reserveInTransaction(Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate, int guests, int capacity) {
+        LocalDate fromNight = CommonHelper.firstNightOfStay(checkinDate);
+        LocalDate toNight = CommonHelper.endNightOfStay(checkinDate, checkoutDate);
+
+        ensureNights(hotelId, fromNight, toNight);
+        int updated = inventoryRepository.incrementWithinCapacity(hotelId, fromNight, toNight, guests, capacity);
+        if (updated < ChronoUnit.DAYS.between(fromNight, toNight)) {
+            // Some nights were already incremented, the caller's rollback undoes them
+            throw new InsufficientCapacityException("Hotel has insufficient capacity for the requested number of guests.");
+        }
+    }
+
+    /**
+     * Adds (or with a negative delta removes) guests without a capacity check, inside the caller's transaction.
+     */
+    public void adjustInTransaction(Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate, int delta) {
+        LocalDate fromNight = CommonHelper.firstNightOfStay(checkinDate);
+        LocalDate toNight = CommonHelper.endNightOfStay(checkinDate, checkoutDate);
+
+        if (delta > 0) {
+            ensureNights(hotelId, fromNight, toNight);
+        }
+        // A missing night has nothing to give back, it is seeded from the PENDING bookings when first needed
+        inventoryRepository.increment(hotelId, fromNight, toNight, delta);
+    }
+
+    /**
+     * Creates the stay's missing night rows. Booking writes call this before they open their transaction, so seeding
+     * runs in a short transaction on the only connection the request holds. Inside a transaction it joins it: the
+     * INSERT skips existing nights and reads the bookings without locking under read-committed, so it needs no
+     * connection of its own. Once every night exists, which is almost always, this is one count.
+     */
+    public void ensureNights(Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate) {
+        ensureNights(hotelId, CommonHelper.firstNightOfStay(checkinDate), CommonHelper.endNightOfStay(checkinDate, checkoutDate));
+    }
+
+    void ensureNights(Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        QuarkusTransaction.joiningExisting().run(() -> {
+            if (inventoryRepository.countNights(hotelId, fromNight, toNight) < ChronoUnit.DAYS.between(fromNight, toNight)) {
+                inventoryRepository.insertMissingNights(hotelId, fromNight, toNight);
+            }
+        });
+    }
+}
@@ -0,0 +1,338 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
+import com.hrs.api_gateway.repository.HotelRepository;
+import com.hrs.api_gateway.utils.CacheKey;
+import com.hrs.api_gateway.utils.SearchHitDecoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.elasticsearch.client.RestClient;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keyword search pages cached in two tiers, an in-process Caffeine L1 in front of Redis, keyed by the normalized
+ * keyword set, page size and cursor.
+ * <p>
+ * Any hotel change makes every cached page obsolete, since it can add, drop or reorder hits of any query. Redis keys
+ * carry a generation counter that the hotel cache bumps with its invalidation, so a change orphans all L2 pages at
+ * once (they expire on their own), and the invalidation broadcast clears every instance's L1. Each instance re-reads
+ * the generation at least every generation-ttl, so a lost broadcast does not keep it on an old generation.
+ * <p>
+ * Elasticsearch sees a change only after the CDC pipeline indexed it, and pages cached in between hold the old
+ * results. The instance that made the change therefore asks Elasticsearch until it returns the hotel as MySQL has
+ * it, then bumps the generation again, however long the pipeline took (up to max-index-lag).
+ */
+@ApplicationScoped
+public class HotelSearchCache {
+
+    private static final Logger LOG = Logger.getLogger(HotelSearchCache.class);
+    static final String GENERATION_KEY = CacheKey.HOTEL_SEARCH.getKey("generation"); // INCR'd on every hotel change
+    private static final int MAX_KEY_LENGTH = 512; // Longer queries are rare, not worth a Redis key
+
+    @Inject
+    RedisPipeline redisPipeline;
+
+    @Inject
+    RedisDataSource redisDataSource; // Pub/sub subscription
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    HotelRepository hotelRepository; // What a changed hotel should look like once indexed
+
+    @Inject
+    RestClient restClient;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "quarkus.search-cache.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "quarkus.search-cache.l1.max-size", defaultValue = "10000")
+    long l1MaxSize;
+
+    // A page read from L1 is at most this old, even when the invalidation broadcast for a change was lost
+    @ConfigProperty(name = "quarkus.search-cache.l1.ttl", defaultValue = "PT30S")
+    Duration l1Ttl;
+
+    @ConfigProperty(name = "quarkus.search-cache.ttl", defaultValue = "PT5M")
+    Duration l2Ttl;
+
+    // How long a generation read from Redis is used before reading it again, L2 pages of a generation that was
+    // bumped without this instance hearing about it are read for at most this long
+    @ConfigProperty(name = "quarkus.search-cache.generation-ttl", defaultValue = "PT1S")
+    Duration generationTtl;
+
+    // How often Elasticsearch is asked whether a changed hotel is indexed yet, and for how long at most
+    @ConfigProperty(name = "quarkus.search-cache.index-poll-interval", defaultValue = "PT0.5S")
+    Duration indexPollInterval;
+
+    @ConfigProperty(name = "quarkus.search-cache.max-index-lag", defaultValue = "PT60S")
+    Duration maxIndexLag;
+
+    private final SearchPageCodec codec = new SearchPageCodec();
+    private final AtomicLong epoch = new AtomicLong(); // Bumped locally on every change, guards against racing fills
+    private volatile Generation generation; // Null until read and after every change
+    private Cache<String, SearchPage<HotelDTO>> l1;
+    private PubSubCommands.RedisSubscriber subscriber;
+    private ScheduledExecutorService indexWatcher;
+
+    private Counter l1Hits;
+    private Counter l1Misses;
+    private Counter l2Hits;
+    private Counter l2Misses;
+
+    @PostConstruct
+    void init() {
+        l1 = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1Ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "hotel-search-l1");
+        indexWatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hotel-search-cache-index-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        l1Hits = tierCounter("l1", "hit");
+        l1Misses = tierCounter("l1", "miss");
+        l2Hits = tierCounter("l2", "hit");
+        l2Misses = tierCounter("l2", "miss");
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        try {
+            subscriber = redisDataSource.pubsub(String.class).subscribe(HotelCache.INVALIDATION_CHANNEL, hotelId -> onHotelChanged());
+        } catch (Exception e) {
+            LOG.warnf(e, "Could not subscribe to %s, cached searches will only expire after %s", HotelCache.INVALIDATION_CHANNEL, l1Ttl);
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (subscriber != null) {
+            subscriber.unsubscribe();
+        }
+        indexWatcher.shutdownNow();
+    }
+
+    /**
+     * Lowercase, deduplicated and sorted keywords of a search query. Order and repetition do not change which hotels
+     * match, so queries that differ only in those share a cache entry.
+     */
+    public static List<String> normalizeKeywords(String query) {
+        TreeSet<String> keywords = new TreeSet<>();
+        for (String keyword : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (!keyword.isEmpty()) {
+                keywords.add(keyword);
+            }
+        }
+        return List.copyOf(keywords);
+    }
+
+    /**
+     * Returns the cached page for these keywords, or runs the search and caches what it returns.
+     * Never blocks, safe on the event loop. Redis failures fall through to the search.
+     */
+    public Uni<SearchPage<HotelDTO>> getOrSearch(List<String> keywords, int pageSize, String cursor,
+                                                 Supplier<Uni<SearchPage<HotelDTO>>> search) {
+        String key = pageSize + ":" + (cursor == null ? "" : cursor) + ":" + String.join(" ", keywords);
+        if (!enabled || key.length() > MAX_KEY_LENGTH) {
+            return search.get();
+        }
+        SearchPage<HotelDTO> cached = l1.getIfPresent(key);
+        if (cached != null) {
+            l1Hits.increment();
+            return Uni.createFrom().item(cached);
+        }
+        l1Misses.increment();
+
+        long startEpoch = epoch.get();
+        return currentGeneration(startEpoch)
+                .flatMap(gen -> readL2(gen, key).flatMap(page -> {
+                    if (page != null) {
+                        l2Hits.increment();
+                        putL1(key, page, startEpoch);
+                        return Uni.createFrom().item(page);
+                    }
+                    l2Misses.increment();
+                    return search.get().invoke(result -> store(gen, key, result, startEpoch));
+                }))
+                .onFailure(CacheUnavailable.class).recoverWithUni(e -> {
+                    LOG.debugf(e.getCause(), "Search cache unavailable, searching without it");
+                    return search.get();
+                });
+    }
+
+    /**
+     * Drops this instance's cached pages and forgets the generation, the next search reads it again from Redis.
+     * Called for local changes directly and for changes on other instances through the invalidation broadcast.
+     */
+    public void onHotelChanged() {
+        epoch.incrementAndGet();
+        generation = null;
+        l1.invalidateAll();
+    }
+
+    /**
+     * Watches Elasticsearch until it returns the hotel as MySQL has it, then orphans every page cached meanwhile by
+     * bumping the generation and broadcasting the change again. Called by the instance that made the change once it
+     * committed. Gives up waiting after max-index-lag and bumps anyway.
+     */
+    public void awaitIndexed(Long hotelId) {
+        if (enabled) {
+            long deadline = System.nanoTime() + maxIndexLag.toNanos();
+            indexWatcher.schedule(() -> pollIndexed(hotelId, deadline), indexPollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void pollIndexed(Long hotelId, long deadline) {
+        boolean indexed = false;
+        try {
+            indexed = isIndexed(hotelId);
+        } catch (Exception e) {
+            LOG.debugf(e, "Could not check whether hotel %s is indexed", hotelId);
+        }
+        if (!indexed && System.nanoTime() - deadline < 0) {
+            indexWatcher.schedule(() -> pollIndexed(hotelId, deadline), indexPollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (!indexed) {
+            LOG.warnf("Hotel %s was not indexed within %s, expiring cached searches anyway", hotelId, maxIndexLag);
+        }
+        onHotelChanged();
+        try {
+            redisPipeline.await(redisPipeline.pipelined(() -> Uni.combine().all().unis(
+                    redisPipeline.send(Request.cmd(Command.INCR).arg(GENERATION_KEY)),
+                    redisPipeline.send(Request.cmd(Command.PUBLISH).arg(HotelCache.INVALIDATION_CHANNEL).arg(hotelId.toString()))
+            ).discardItems()));
+        } catch (Exception e) {
+            LOG.errorf(e, "Failed to expire cached searches after hotel %s was indexed", hotelId);
+        } finally {
+            onHotelChanged(); // A search during the round trip may have read the old generation
+        }
+    }
+
+    // True when a search for the hotel's id finds what MySQL holds now, or finds nothing for a deleted hotel
+    private boolean isIndexed(Long hotelId) throws IOException {
+        Hotel hotel = QuarkusTransaction.requiringNew().call(() -> hotelRepository.findById(hotelId));
+        HotelDTO expected = hotel == null ? null
+                : new HotelDTO(hotel.getId(), hotel.getName(), hotel.getCity(), hotel.getAddress(), hotel.getCapacity());
+
+        ObjectNode query = objectMapper.createObjectNode().put("size", 1);
+        query.putObject("query").putObject("term").put("id", hotelId);
+        SearchHitDecoder.HOTEL_SOURCE_FIELDS.forEach(query.putArray("_source")::add);
+        org.elasticsearch.client.Request request = new org.elasticsearch.client.Request("GET", "/" + HotelService.HOTEL_INDEX + "/_search");
+        request.setJsonEntity(objectMapper.writeValueAsString(query));
+        org.elasticsearch.client.Response response = restClient.performRequest(request); // Blocking, on the watcher thread
+        try (InputStream content = response.getEntity().getContent()) {
+            List<HotelDTO> hits = SearchHitDecoder.decodeHits(objectMapper.getFactory(), content, SearchHitDecoder::readHotel);
+            return Objects.equals(expected, hits.isEmpty() ? null : hits.get(0));
+        }
+    }
+
+    private Uni<Long> currentGeneration(long startEpoch) {
+        Generation known = generation;
+        if (known != null && System.nanoTime() - known.readAtNanos() < generationTtl.toNanos()) {
+            return Uni.createFrom().item(known.value());
+        }
+        long readAtNanos = System.nanoTime();
+        return redisPipeline.send(Request.cmd(Command.GET).arg(GENERATION_KEY))
+                .map(value -> {
+                    long read = value == null ? 0 : value.toLong();
+                    if (epoch.get() == startEpoch) {
+                        generation = new Generation(read, readAtNanos); // Unless another change came in meanwhile
+                    }
+                    return read;
+                })
+                .onFailure().transform(CacheUnavailable::new);
+    }
+
+    private Uni<SearchPage<HotelDTO>> readL2(long gen, String key) {
+        return redisPipeline.send(Request.cmd(Command.GET).arg(l2Key(gen, key)))
+                .map(value -> {
+                    if (value == null) {
+                        return null;
+                    }
+                    try {
+                        return codec.decode(value.toBytes());
+                    } catch (IllegalArgumentException e) {
+                        LOG.warn("Error deserializing search page from cache", e); // Treat as a miss
+                        return null;
+                    }
+                })
+                .onFailure().transform(CacheUnavailable::new);
+    }
+
+    private void store(long gen, String key, SearchPage<HotelDTO> result, long startEpoch) {
+        SearchPage<HotelDTO> page = new SearchPage<>(List.copyOf(result.getItems()), result.getNextCursor());
+        putL1(key, page, startEpoch);
+        redisPipeline.send(Request.cmd(Command.SETEX).arg(l2Key(gen, key)).arg(l2Ttl.getSeconds()).arg(codec.encode(page)))
+                .subscribe().with(ignored -> {
+                }, e -> LOG.debugf(e, "Could not store search page %s in Redis", key));
+    }
+
+    private void putL1(String key, SearchPage<HotelDTO> page, long startEpoch) {
+        l1.put(key, page);
+        if (epoch.get() != startEpoch) {
+            l1.invalidate(key); // A change landed while this page was loading, it may already be outdated
+        }
+    }
+
+    private static String l2Key(long gen, String key) {
+        return CacheKey.HOTEL_SEARCH.getKey(gen + ":" + key);
+    }
+
+    private Counter tierCounter(String tier, String result) {
+        return Counter.builder("hotel.search.cache.requests")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Generation(long value, long readAtNanos) {
+    }
+
+    // Redis could not be asked, distinct from a failing search so only this falls back to searching uncached
+    private static class CacheUnavailable extends RuntimeException {
+        CacheUnavailable(Throwable cause) {
+            super(cause);
+        }
+    }
+}
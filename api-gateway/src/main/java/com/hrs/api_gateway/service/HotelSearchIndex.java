@@ -0,0 +1,197 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
+import com.hrs.api_gateway.repository.HotelRepository;
+import com.hrs.api_gateway.utils.SearchCursor;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keyword search answered in process from a {@link HotelTextIndex} instead of Elasticsearch, enabled with
+ * quarkus.search.engine=embedded. The index is built from MySQL at startup. Hotel changes arrive over the hotel
+ * cache invalidation channel and are queued by id; every refresh interval the queued hotels are read in one query
+ * and swapped in with one index build, like an Elasticsearch refresh. Changes that arrive while the index is being
+ * built stay queued and are applied after it. A full rebuild every rebuild interval repairs anything a lost
+ * invalidation message left behind. Until the index is built, searches go to Elasticsearch.
+ */
+@ApplicationScoped
+public class HotelSearchIndex {
+
+    private static final Logger LOG = Logger.getLogger(HotelSearchIndex.class);
+    private static final String EMBEDDED = "embedded";
+
+    @Inject
+    HotelRepository hotelRepository;
+
+    @Inject
+    RedisDataSource redisDataSource;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    // "elasticsearch" or "embedded"
+    @ConfigProperty(name = "quarkus.search.engine", defaultValue = "elasticsearch")
+    String engine;
+
+    // How long a hotel change may take to become searchable
+    @ConfigProperty(name = "quarkus.search.embedded.refresh-interval", defaultValue = "1S")
+    Duration refreshInterval;
+
+    @ConfigProperty(name = "quarkus.search.embedded.rebuild-interval", defaultValue = "1H")
+    Duration rebuildInterval;
+
+    private volatile HotelTextIndex index; // Replaced as a whole on every refresh
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet(); // Changed hotels not applied to the index yet
+    private PubSubCommands.RedisSubscriber subscriber;
+    private ScheduledExecutorService maintainer; // One thread, so refreshes and rebuilds never overlap
+
+    void onStart(@Observes StartupEvent event) {
+        if (!EMBEDDED.equalsIgnoreCase(engine)) {
+            return;
+        }
+        try {
+            subscriber = redisDataSource.pubsub(String.class).subscribe(HotelCache.INVALIDATION_CHANNEL, this::onHotelChanged);
+        } catch (Exception e) {
+            LOG.warnf(e, "Could not subscribe to %s, hotel changes on other instances will not reach the search index", HotelCache.INVALIDATION_CHANNEL);
+        }
+        try {
+            QuarkusTransaction.requiringNew().run(this::rebuild);
+        } catch (Exception e) {
+            LOG.warn("Could not build hotel search index, searches will go to Elasticsearch until the next rebuild", e);
+        }
+        maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hotel-search-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(() -> maintain(() -> QuarkusTransaction.requiringNew().run(this::refresh), "refresh"),
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        maintainer.scheduleWithFixedDelay(() -> maintain(() -> QuarkusTransaction.requiringNew().run(this::rebuild), "rebuild"),
+                rebuildInterval.toMillis(), rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (subscriber != null) {
+            subscriber.unsubscribe();
+        }
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+    }
+
+    /**
+     * Reloads every hotel's searchable fields from MySQL. Hotels queued meanwhile stay queued for the next refresh.
+     */
+    public void rebuild() {
+        List<HotelDTO> hotels = new ArrayList<>();
+        try (Stream<Object[]> rows = hotelRepository.streamCatalog()) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                hotels.add(new HotelDTO((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (Integer) row[4]));
+            }
+        }
+        index = HotelTextIndex.build(hotels);
+        LOG.infof("Hotel search index built for %d hotels", hotels.size());
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Same results and cursor format as the Elasticsearch search: BM25 score descending, then id.
+     *
+     * @param keywords normalized keywords, see {@link HotelSearchCache#normalizeKeywords}
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public SearchPage<HotelDTO> search(List<String> keywords, int pageSize, String cursor) {
+        HotelTextIndex current = index;
+        float afterScore = Float.POSITIVE_INFINITY;
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            JsonNode sortValues = SearchCursor.decode(objectMapper, cursor, 2);
+            if (!sortValues.get(0).isNumber() || !sortValues.get(1).canConvertToLong()) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            afterScore = sortValues.get(0).floatValue();
+            afterId = sortValues.get(1).asLong();
+        }
+        List<HotelTextIndex.Hit> hits = current.search(keywords, pageSize, afterScore, afterId);
+        List<HotelDTO> hotels = new ArrayList<>(hits.size());
+        for (HotelTextIndex.Hit hit : hits) {
+            hotels.add(hit.hotel());
+        }
+        // A full page may have more behind it, the cursor resumes after its last hit
+        String nextCursor = null;
+        if (hits.size() == pageSize && pageSize > 0) {
+            HotelTextIndex.Hit last = hits.get(hits.size() - 1);
+            nextCursor = SearchCursor.encode("[" + last.score() + "," + last.hotel().getId() + "]");
+        }
+        return new SearchPage<>(hotels, nextCursor);
+    }
+
+    void onHotelChanged(String hotelId) {
+        try {
+            pending.add(Long.parseLong(hotelId)); // Read on the next refresh, pub/sub callbacks must not block
+        } catch (NumberFormatException e) {
+            // HotelCache already logs malformed messages
+        }
+    }
+
+    /**
+     * Applies the queued hotel changes: their current rows are read in one query and the index is rebuilt once.
+     * Does nothing until the first build, the queue is kept for after it.
+     */
+    void refresh() {
+        HotelTextIndex current = index;
+        if (current == null || pending.isEmpty()) {
+            return;
+        }
+        // Taken off the queue before the read, so a change committed after it is queued again and not lost
+        List<Long> ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+        Map<Long, HotelDTO> changes = new HashMap<>();
+        try {
+            ids.forEach(id -> changes.put(id, null)); // Ids without a row were deleted
+            for (Hotel hotel : hotelRepository.findByIds(ids)) {
+                changes.put(hotel.getId(), new HotelDTO(hotel.getId(), hotel.getName(), hotel.getCity(), hotel.getAddress(), hotel.getCapacity()));
+            }
+        } catch (RuntimeException e) {
+            pending.addAll(ids);
+            throw e;
+        }
+        index = current.with(changes);
+    }
+
+    // Scheduled tasks stop repeating after an exception, so failures are logged and retried on the next run
+    private void maintain(Runnable task, String name) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            LOG.warnf(e, "Hotel search index %s failed", name);
+        }
+    }
+}
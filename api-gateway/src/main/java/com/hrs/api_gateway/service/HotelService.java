@@ -1,154 +1,194 @@
 package com.hrs.api_gateway.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.hrs.api_gateway.entity.Hotel;
 import com.hrs.api_gateway.exception.HotelNotFoundException;
 import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
 import com.hrs.api_gateway.repository.HotelRepository;
-import com.hrs.api_gateway.utils.CacheKey;
-import io.quarkus.redis.client.RedisClient;
+import com.hrs.api_gateway.utils.ElasticsearchHelper;
+import com.hrs.api_gateway.utils.SearchCursor;
+import com.hrs.api_gateway.utils.SearchHitDecoder;
+import com.hrs.api_gateway.utils.SearchQueryBuilder;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.unchecked.Unchecked;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.entity.NStringEntity;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.jboss.logging.Logger;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class HotelService {
 
     private static final Logger LOG = Logger.getLogger(HotelService.class);
-    private static final Duration HOTEL_CACHE_EXPIRATION = Duration.ofHours(1); // Cache hotel data for 1 hour
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final String HOTEL_INDEX = "connect.hrs_booking.hotels";
+    static final String HOTEL_INDEX = "connect.hrs_booking.hotels";
+    @Inject
+    ObjectMapper objectMapper;
     @Inject
     HotelRepository hotelRepository;
     @Inject
-    RedisClient redisClient;
+    HotelCache hotelCache;
+    @Inject
+    HotelSearchCache searchCache;
+    @Inject
+    HotelSearchIndex searchIndex;
     @Inject
     RestClient restClient;
+    @Inject
+    HotelAvailabilityIndex availabilityIndex;
+    @Inject
+    @VirtualThreads
+    ExecutorService searchExecutor;
+
+    @ConfigProperty(name = "quarkus.search.default-page-size", defaultValue = "20")
+    int defaultPageSize;
+
+    @ConfigProperty(name = "quarkus.search.max-page-size", defaultValue = "100")
+    int maxPageSize;
+
+    @ConfigProperty(name = "quarkus.availability.max-nights", defaultValue = "365")
+    int maxNights;
+
+    public Uni<SearchPage<HotelDTO>> searchHotels(String query, Integer size, String cursor) {
+        int pageSize = SearchCursor.pageSize(size, defaultPageSize, maxPageSize);
+        List<String> keywords = HotelSearchCache.normalizeKeywords(query);
+        if (searchIndex.isReady()) {
+            // quarkus.search.engine=embedded: answered in memory, no network hop and nothing to cache. Scoring a large
+            // index is CPU work the event loop must not wait on, so it runs on a virtual thread
+            return Uni.createFrom().item(() -> searchIndex.search(keywords, pageSize, cursor))
+                    .runSubscriptionOn(searchExecutor);
+        }
+        // Repeated queries are answered from the search cache, Elasticsearch only sees the misses
+        return searchCache.getOrSearch(keywords, pageSize, cursor, () -> searchElasticsearch(keywords, pageSize, cursor));
+    }
 
-    public List<HotelDTO> searchHotels(String query) throws IOException {
+    private Uni<SearchPage<HotelDTO>> searchElasticsearch(List<String> keywords, int pageSize, String cursor) {
         // Construct Elasticsearch query JSON payload manually
-        String searchQueryJson = buildSearchQueryJson(query);
+        String searchQueryJson;
+        try {
+            searchQueryJson = SearchQueryBuilder.hotelQuery(objectMapper, keywords, pageSize, cursor);
+        } catch (IOException | IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
         HttpEntity entity = new NStringEntity(searchQueryJson, ContentType.APPLICATION_JSON);
 
         Request request = new Request("GET", "/" + HOTEL_INDEX + "/_search"); // Index: "hotel", Endpoint: _search
         request.setEntity(entity);
 
-        Response response = restClient.performRequest(request);
+        return ElasticsearchHelper.performRequestAsync(restClient, request)
+                .map(Unchecked.function(response -> readSearchResponse(response, pageSize)));
+    }
 
+    private SearchPage<HotelDTO> readSearchResponse(Response response, int pageSize) throws IOException {
         if (response.getStatusLine().getStatusCode() != 200) {
             throw new IOException("Elasticsearch search failed: " + response.getStatusLine());
         }
 
-        String responseBody = org.apache.http.util.EntityUtils.toString(response.getEntity());
-        com.fasterxml.jackson.databind.JsonNode jsonResponse = objectMapper.readTree(responseBody);
-
-        return mapRestClientResponseToHotelDTOs(jsonResponse); // Map from JSON response
-    }
-
-    private String buildSearchQueryJson(String query) throws IOException {
-        ObjectNode boolQueryNode = objectMapper.createObjectNode();
-        com.fasterxml.jackson.databind.node.ArrayNode shouldClauses = objectMapper.createArrayNode(); // ArrayNode for SHOULD clauses
-
-        // Split query into keywords
-        String[] keywords = query.toLowerCase().split("\\s+"); // Split by whitespace, lowercase
-
-        // Add a SHOULD clause for each keyword and each field (name, city, address)
-        for (String keyword : keywords) {
-            ObjectNode matchNameNode = objectMapper.createObjectNode();
-            matchNameNode.put("name", keyword);
-            shouldClauses.add(objectMapper.createObjectNode().set("match", matchNameNode)); // Match in name
-
-            ObjectNode matchCityNode = objectMapper.createObjectNode();
-            matchCityNode.put("city", keyword);
-            shouldClauses.add(objectMapper.createObjectNode().set("match", matchCityNode)); // Match in city
-
-            ObjectNode matchAddressNode = objectMapper.createObjectNode();
-            matchAddressNode.put("address", keyword);
-            shouldClauses.add(objectMapper.createObjectNode().set("match", matchAddressNode)); // Match in address
+        // Decode hits straight from the response stream into DTOs
+        try (InputStream content = response.getEntity().getContent()) {
+            SearchPage<HotelDTO> page = SearchHitDecoder.decodePage(objectMapper.getFactory(), content, SearchHitDecoder::readHotel);
+            if (page.getItems().size() < pageSize) {
+                page.setNextCursor(null); // A short page is the last one
+            }
+            return page;
         }
-
-        boolQueryNode.set("should", shouldClauses); // Set SHOULD clauses in bool query
-        boolQueryNode.put("minimum_should_match", 1); // At least one SHOULD clause must match
-
-        ObjectNode boolQueryWrapper = objectMapper.createObjectNode(); // Wrap bool query in a query node
-        boolQueryWrapper.set("bool", boolQueryNode);
-
-        ObjectNode rootNode = objectMapper.createObjectNode(); // Root query node
-        rootNode.set("query", boolQueryWrapper);
-
-        return objectMapper.writeValueAsString(rootNode);
     }
 
-    private List<HotelDTO> mapRestClientResponseToHotelDTOs(com.fasterxml.jackson.databind.JsonNode jsonResponse) {
-        List<HotelDTO> hotelDTOs = new ArrayList<>();
-        com.fasterxml.jackson.databind.JsonNode hitsNode = jsonResponse.path("hits").path("hits");
-        if (hitsNode.isArray()) {
-            for (com.fasterxml.jackson.databind.JsonNode hit : hitsNode) {
-                try {
-                    Hotel hotel = objectMapper.readValue(hit.path("_source").toString(), Hotel.class);
-                    hotelDTOs.add(mapToDto(hotel));
-                } catch (IOException e) {
-                    e.printStackTrace(); // Handle JSON parsing error
-                }
+    /**
+     * Hotels that can take the guests on every night from checkin to checkout, optionally in one city, in id order.
+     *
+     * @throws IllegalArgumentException if the stay, guest count or cursor is invalid
+     */
+    public SearchPage<HotelDTO> findAvailableHotels(String city, LocalDate checkin, LocalDate checkout, Integer guests, Integer size, String cursor) {
+        if (checkin == null || checkout == null) {
+            throw new IllegalArgumentException("checkin and checkout are required.");
+        }
+        if (!checkout.isAfter(checkin)) {
+            throw new IllegalArgumentException("checkout must be after checkin.");
+        }
+        if (ChronoUnit.DAYS.between(checkin, checkout) > maxNights) {
+            throw new IllegalArgumentException("A stay can be at most " + maxNights + " nights.");
+        }
+        int guestCount = guests == null ? 1 : guests;
+        if (guestCount < 1) {
+            throw new IllegalArgumentException("guests must be at least 1.");
+        }
+        int pageSize = SearchCursor.pageSize(size, defaultPageSize, maxPageSize);
+        long afterId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            JsonNode lastId = SearchCursor.decode(objectMapper, cursor, 1).get(0);
+            if (!lastId.canConvertToLong()) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
             }
+            afterId = lastId.asLong();
         }
-        return hotelDTOs;
-    }
+        String cityFilter = city == null || city.isBlank() ? null : city;
 
+        List<Long> ids = availabilityIndex.findAvailable(cityFilter, checkin.atStartOfDay(), checkout.atStartOfDay(), guestCount, afterId, pageSize);
+        // A full page may have more behind it, the cursor resumes after its last hotel
+        String nextCursor = ids.size() < pageSize ? null : SearchCursor.encode("[" + ids.get(ids.size() - 1) + "]");
+        return new SearchPage<>(getHotels(ids), nextCursor);
+    }
 
     @Transactional
     public HotelDTO createHotel(HotelDTO hotelDTO) throws IOException {
         Hotel hotel = mapToEntity(hotelDTO);
         hotelRepository.persist(hotel);
+        invalidateHotelCache(hotel.id); // Nothing cached yet, but the broadcast adds the hotel to every availability index
         return mapToDto(hotel);
     }
 
     public HotelDTO getHotel(Long id) {
-        String cacheKey = CacheKey.HOTEL_BY_ID.getKey(id);
-
-        // 1. Check Cache First
-        if (redisClient.get(cacheKey) != null) {
-            String cachedHotelJson = redisClient.get(cacheKey).toString();
-            if (cachedHotelJson != null) {
-                LOG.debugf("Cache hit for hotel ID: %s", id);
-                try {
-                    return objectMapper.readValue(cachedHotelJson, HotelDTO.class); // Deserialize from cache
-                } catch (IOException e) {
-                    LOG.warn("Error deserializing hotel from cache", e); // Log error, but fall back to DB
-                }
-            }
-        }
+        // L1, then Redis, then the database
+        return hotelCache.getOrLoad(id, this::loadHotel);
+    }
+
+    /**
+     * Resolves many hotels with one Redis round trip and at most one IN query for the hotels this instance loads, in the
+     * order asked for. Unknown ids are skipped.
+     */
+    public List<HotelDTO> getHotels(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        Map<Long, HotelDTO> hotels = hotelCache.getAllOrLoad(distinctIds, this::loadHotels);
+        return distinctIds.stream()
+                .map(hotels::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Map<Long, HotelDTO> loadHotels(Collection<Long> ids) {
+        return hotelRepository.findByIds(ids).stream()
+                .map(this::mapToDto)
+                .collect(Collectors.toMap(HotelDTO::getId, Function.identity()));
+    }
 
-        // 2. If Cache Miss, Retrieve from Database
+    private HotelDTO loadHotel(Long id) {
         Hotel hotel = hotelRepository.findById(id);
         if (hotel == null) {
             throw new HotelNotFoundException("Hotel not found with id: " + id);
         }
-        HotelDTO hotelDTO = mapToDto(hotel);
-
-        // 3. Store in Cache
-        try {
-            redisClient.setex(cacheKey, String.valueOf(HOTEL_CACHE_EXPIRATION.getSeconds()), objectMapper.writeValueAsString(hotelDTO)); // Serialize to JSON and cache
-            LOG.debugf("Cache miss, stored hotel ID: %s in cache", id);
-        } catch (IOException e) {
-            LOG.warn("Error serializing hotel to cache", e); // Log cache serialization error
-        }
-
-        // 4. Return HotelDTO
-        return hotelDTO;
+        return mapToDto(hotel);
     }
 
     @Transactional
@@ -181,9 +221,7 @@ public class HotelService {
     }
 
     private void invalidateHotelCache(Long hotelId) {
-        String cacheKey = CacheKey.HOTEL_BY_ID.getKey(hotelId);
-        redisClient.del(List.of(cacheKey)); // Remove hotel data from Redis cache
-        LOG.debugf("Invalidated cache for hotel ID: %s", hotelId);
+        hotelCache.invalidate(hotelId); // Evicts Redis and every instance's L1 once the transaction commits
     }
 
     public HotelDTO mapToDto(Hotel hotel) {
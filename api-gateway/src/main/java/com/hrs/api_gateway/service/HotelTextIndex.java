@@ -0,0 +1,306 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.model.HotelDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable inverted index over hotel name, city and address, scored like the Elasticsearch keyword search:
+ * every keyword token is a should clause on each field, a hotel's score is the sum of the BM25 scores of the
+ * clauses it matches, ties broken by id. Documents are numbered in id order and posting lists are plain int
+ * arrays of document numbers with their term frequencies. A batch of changes builds a new index, readers never see
+ * a partial one.
+ */
+final class HotelTextIndex {
+
+    private static final float K1 = 1.2f; // Elasticsearch BM25 defaults
+    private static final float B = 0.75f;
+    private static final HotelDTO[] NO_HOTELS = new HotelDTO[0];
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final HotelDTO[] hotels; // By document number, ascending id
+    private final long[] ids; // Same order, read on every candidate without touching the DTO
+    private final Field[] fields;
+
+    private HotelTextIndex(HotelDTO[] hotels, Field[] fields) {
+        this.hotels = hotels;
+        this.ids = new long[hotels.length];
+        for (int doc = 0; doc < hotels.length; doc++) {
+            ids[doc] = hotels[doc].getId();
+        }
+        this.fields = fields;
+    }
+
+    record Hit(HotelDTO hotel, float score) {
+    }
+
+    static HotelTextIndex build(Collection<HotelDTO> catalog) {
+        HotelDTO[] hotels = catalog.toArray(NO_HOTELS);
+        Arrays.sort(hotels, Comparator.comparingLong(HotelDTO::getId));
+        Field[] fields = {
+                Field.build(hotels, HotelDTO::getName),
+                Field.build(hotels, HotelDTO::getCity),
+                Field.build(hotels, HotelDTO::getAddress)
+        };
+        return new HotelTextIndex(hotels, fields);
+    }
+
+    /**
+     * A new index with the hotels added or replaced, in one build however many changed.
+     *
+     * @param changes hotels by id, a null value removes the hotel
+     */
+    HotelTextIndex with(Map<Long, HotelDTO> changes) {
+        Map<Long, HotelDTO> catalog = new HashMap<>((hotels.length + changes.size()) * 2);
+        for (HotelDTO existing : hotels) {
+            catalog.put(existing.getId(), existing);
+        }
+        changes.forEach((hotelId, hotel) -> {
+            if (hotel == null) {
+                catalog.remove(hotelId);
+            } else {
+                catalog.put(hotelId, hotel);
+            }
+        });
+        return build(catalog.values());
+    }
+
+    int size() {
+        return hotels.length;
+    }
+
+    /**
+     * Best matches first, then by id, starting after the given position. The first page starts after
+     * (+Infinity, Long.MIN_VALUE).
+     *
+     * @param afterScore score of the last hit of the previous page
+     * @param afterId    id of the last hit of the previous page
+     */
+    List<Hit> search(List<String> keywords, int limit, float afterScore, long afterId) {
+        Scratch scratch = SCRATCH.get();
+        scratch.reset(hotels.length);
+        for (String keyword : keywords) {
+            for (String token : tokenize(keyword)) {
+                for (Field field : fields) {
+                    field.score(token, scratch);
+                }
+            }
+        }
+
+        // Bounded heap keeping the best `limit` hits after the cursor, its root is the worst of them
+        int[] heap = new int[Math.max(1, limit)];
+        int heapSize = 0;
+        for (int i = 0; i < scratch.touchedCount; i++) {
+            int doc = scratch.touched[i];
+            float score = scratch.scores[doc];
+            if (!ranksAfter(score, ids[doc], afterScore, afterId)) {
+                continue;
+            }
+            if (heapSize < limit) {
+                heap[heapSize] = doc;
+                siftUp(heap, heapSize++, scratch.scores);
+            } else if (limit > 0 && ranksAfter(scratch.scores[heap[0]], ids[heap[0]], score, ids[doc])) {
+                heap[0] = doc;
+                siftDown(heap, heapSize, scratch.scores);
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            hits.add(new Hit(hotels[heap[i]], scratch.scores[heap[i]]));
+        }
+        hits.sort((a, b) -> ranksAfter(a.score(), a.hotel().getId(), b.score(), b.hotel().getId()) ? 1 : -1);
+        return hits;
+    }
+
+    /**
+     * Lowercased runs of letters and digits, close to the standard analyzer Elasticsearch indexes hotels with.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // True when (score, id) comes after (otherScore, otherId): lower score, or same score and higher id
+    private static boolean ranksAfter(float score, long id, float otherScore, long otherId) {
+        return score < otherScore || (score == otherScore && id > otherId);
+    }
+
+    // Min-heap on rank: the root is the hit that ranks last
+    private void siftUp(int[] heap, int index, float[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(heap[index], heap[parent], scores)) {
+                return;
+            }
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, float[] scores) {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && worse(heap[child + 1], heap[child], scores)) {
+                child++;
+            }
+            if (!worse(heap[child], heap[index], scores)) {
+                return;
+            }
+            swap(heap, index, child);
+            index = child;
+        }
+    }
+
+    private boolean worse(int doc, int other, float[] scores) {
+        return ranksAfter(scores[doc], ids[doc], scores[other], ids[other]);
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private record Postings(int[] docs, int[] freqs) {
+    }
+
+    private static final class Field {
+        private final Map<String, Postings> terms;
+        private final float[] norms; // BM25 length normalization per document, k1 * (1 - b + b * length / average)
+        private final int docCount; // Documents with at least one token in this field
+
+        private Field(Map<String, Postings> terms, float[] norms, int docCount) {
+            this.terms = terms;
+            this.norms = norms;
+            this.docCount = docCount;
+        }
+
+        static Field build(HotelDTO[] hotels, Function<HotelDTO, String> value) {
+            Map<String, IntPairs> building = new HashMap<>();
+            int[] lengths = new int[hotels.length];
+            int docCount = 0;
+            long totalLength = 0;
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (int doc = 0; doc < hotels.length; doc++) {
+                List<String> tokens = tokenize(value.apply(hotels[doc]));
+                lengths[doc] = tokens.size();
+                if (tokens.isEmpty()) {
+                    continue;
+                }
+                docCount++;
+                totalLength += tokens.size();
+                frequencies.clear();
+                for (String token : tokens) {
+                    frequencies.merge(token, 1, Integer::sum);
+                }
+                int document = doc;
+                frequencies.forEach((token, freq) -> building.computeIfAbsent(token, t -> new IntPairs()).add(document, freq));
+            }
+            Map<String, Postings> terms = new HashMap<>(building.size() * 2);
+            building.forEach((token, pairs) -> terms.put(token, pairs.toPostings()));
+            float averageLength = docCount == 0 ? 1 : (float) totalLength / docCount;
+            float[] norms = new float[hotels.length];
+            for (int doc = 0; doc < hotels.length; doc++) {
+                norms[doc] = K1 * (1 - B + B * lengths[doc] / averageLength);
+            }
+            return new Field(terms, norms, docCount);
+        }
+
+        // Adds this token's BM25 score on this field to every document containing it
+        void score(String token, Scratch scratch) {
+            Postings postings = terms.get(token);
+            if (postings == null) {
+                return;
+            }
+            int df = postings.docs().length;
+            float idf = (float) Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            int[] docs = postings.docs();
+            int[] freqs = postings.freqs();
+            for (int i = 0; i < df; i++) {
+                int doc = docs[i];
+                int tf = freqs[i];
+                scratch.add(doc, idf * tf / (tf + norms[doc]));
+            }
+        }
+    }
+
+    // Growable (document, frequency) pairs while a field is built, documents arrive in ascending order
+    private static final class IntPairs {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size++] = freq;
+        }
+
+        Postings toPostings() {
+            return new Postings(Arrays.copyOf(docs, size), Arrays.copyOf(freqs, size));
+        }
+    }
+
+    // Per-thread score accumulator, so a query allocates nothing proportional to the catalog
+    private static final class Scratch {
+        private float[] scores = new float[0];
+        private boolean[] seen = new boolean[0];
+        private int[] touched = new int[16];
+        private int touchedCount;
+
+        void reset(int documents) {
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                if (doc < scores.length) {
+                    scores[doc] = 0;
+                    seen[doc] = false;
+                }
+            }
+            touchedCount = 0;
+            if (scores.length < documents) {
+                scores = new float[documents];
+                seen = new boolean[documents];
+            }
+        }
+
+        void add(int doc, float score) {
+            if (!seen[doc]) {
+                seen[doc] = true;
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = doc;
+            }
+            scores[doc] += score;
+        }
+    }
+}
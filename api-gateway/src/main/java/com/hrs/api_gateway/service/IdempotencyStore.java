@@ -0,0 +1,146 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.IdempotentResponse;
+import com.hrs.api_gateway.utils.CacheKey;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Idempotency records in Redis. A request reserves its key with SET NX before the handler runs, so of two
+ * concurrent retries only one executes; the other waits for the first one's response and replays it.
+ * A key holds either "pending:&lt;token&gt;" while its request is in flight or the {@link IdempotentResponse}
+ * encoded by {@link IdempotentResponseCodec}.
+ */
+@ApplicationScoped
+public class IdempotencyStore {
+
+    private static final Logger LOG = Logger.getLogger(IdempotencyStore.class);
+    private static final String PENDING_PREFIX = "pending:";
+    private static final byte[] PENDING_PREFIX_BYTES = PENDING_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(25);
+    // Only the request holding the reservation may complete or release it, it may have expired and been taken over
+    private static final RedisScript COMPLETE_SCRIPT = new RedisScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('set', KEYS[1], ARGV[2], 'PX', ARGV[3]) else return nil end");
+    private static final RedisScript RELEASE_SCRIPT = new RedisScript(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end");
+
+    @Inject
+    RedisPipeline redis;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private IdempotentResponseCodec codec;
+
+    // How long a stored response is replayed for
+    @ConfigProperty(name = "quarkus.idempotency.ttl", defaultValue = "PT10M")
+    Duration ttl;
+
+    // Upper bound on a handler run, a reservation left behind by a crashed instance frees up after this
+    @ConfigProperty(name = "quarkus.idempotency.reservation-ttl", defaultValue = "PT30S")
+    Duration reservationTtl;
+
+    // How long a duplicate waits for the in-flight request before giving up with 409
+    @ConfigProperty(name = "quarkus.idempotency.wait-timeout", defaultValue = "PT10S")
+    Duration waitTimeout;
+
+    @PostConstruct
+    void init() {
+        codec = new IdempotentResponseCodec(objectMapper);
+    }
+
+    /**
+     * Reserves the key for this request, or waits for the request already holding it.
+     *
+     * @return null when this request now holds the reservation and should run, otherwise the response to replay
+     * @throws IllegalStateException (as failure) if the other request is still running after the wait timeout
+     */
+    public Uni<IdempotentResponse> reserveOrAwait(String key, String token) {
+        return reserveOrAwait(key, token, System.nanoTime() + waitTimeout.toNanos());
+    }
+
+    private Uni<IdempotentResponse> reserveOrAwait(String key, String token, long deadlineNanos) {
+        Request reserve = Request.cmd(Command.SET).arg(key).arg(PENDING_PREFIX + token)
+                .arg("NX").arg("PX").arg(reservationTtl.toMillis());
+        return redis.send(reserve).flatMap(reserved -> {
+            if (reserved != null) {
+                return Uni.createFrom().nullItem(); // First request with this key
+            }
+            return awaitResponse(key, token, deadlineNanos);
+        });
+    }
+
+    private Uni<IdempotentResponse> awaitResponse(String key, String token, long deadlineNanos) {
+        return redis.send(Request.cmd(Command.GET).arg(key)).flatMap(value -> {
+            if (value == null) {
+                // The other request failed and released the key, try to run this one instead
+                return reserveOrAwait(key, token, deadlineNanos);
+            }
+            byte[] stored = value.toBytes();
+            if (!isPending(stored)) {
+                meterRegistry.counter("idempotency.replays").increment();
+                return Uni.createFrom().item(decode(stored));
+            }
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                return Uni.createFrom().failure(new IllegalStateException("Request with this Idempotency-Key is still in progress"));
+            }
+            return Uni.createFrom().voidItem().onItem().delayIt().by(POLL_INTERVAL)
+                    .flatMap(ignored -> awaitResponse(key, token, deadlineNanos));
+        });
+    }
+
+    /**
+     * Stores the response of the request holding the reservation, replacing its pending marker.
+     */
+    public Uni<Void> complete(String key, String token, IdempotentResponse response) {
+        byte[] encoded = codec.encode(response);
+        return redis.eval(COMPLETE_SCRIPT, List.of(key), List.of(PENDING_PREFIX + token, encoded, String.valueOf(ttl.toMillis())))
+                .invoke(stored -> {
+                    if (stored == null) {
+                        LOG.warnf("Idempotency reservation %s expired before its response was stored", key);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Drops the reservation without storing anything, so a retry runs the request again.
+     */
+    public Uni<Void> release(String key, String token) {
+        return redis.eval(RELEASE_SCRIPT, List.of(key), List.of(PENDING_PREFIX + token)).replaceWithVoid();
+    }
+
+    // Namespaced per route and authenticated user, so two users reusing the same key never see each other's response
+    public static String key(String namespace, String method, String path, String idempotencyKey) {
+        return CacheKey.IDEMPOTENCY.getKey(namespace + ":" + method + ":" + path + ":" + idempotencyKey);
+    }
+
+    private static boolean isPending(byte[] stored) {
+        return stored.length >= PENDING_PREFIX_BYTES.length
+                && Arrays.equals(stored, 0, PENDING_PREFIX_BYTES.length, PENDING_PREFIX_BYTES, 0, PENDING_PREFIX_BYTES.length);
+    }
+
+    private IdempotentResponse decode(byte[] stored) {
+        try {
+            return codec.decode(stored);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unreadable idempotency record", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.IdempotentResponse;
+import com.hrs.api_gateway.utils.BinaryCacheCodec;
+import com.hrs.api_gateway.utils.JsonCacheCodec;
+
+/**
+ * Redis layout of a stored idempotent response, version 1: status, media type, body. Large bodies (search pages,
+ * batch results) are LZ4 compressed.
+ */
+final class IdempotentResponseCodec extends BinaryCacheCodec<IdempotentResponse> {
+
+    private static final int VERSION = 1;
+
+    IdempotentResponseCodec(ObjectMapper objectMapper) {
+        super(VERSION, DEFAULT_COMPRESS_ABOVE, new JsonCacheCodec<>(objectMapper, IdempotentResponse.class));
+    }
+
+    @Override
+    protected void write(Writer out, IdempotentResponse value) {
+        out.writeVarInt(value.getStatus());
+        out.writeString(value.getMediaType());
+        out.writeString(value.getBody());
+    }
+
+    @Override
+    protected IdempotentResponse read(Reader in, int version) {
+        return new IdempotentResponse(in.readVarInt(), in.readString(), in.readString());
+    }
+}
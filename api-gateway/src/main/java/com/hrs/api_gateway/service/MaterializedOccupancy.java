@@ -0,0 +1,64 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.utils.CacheKey;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nightly occupancy as materialized in Redis by occupancy-stream: one hash per hotel, occupancy:{hotelId}, from ISO
+ * night to booked guests. Built from the bookings CDC topic, so it includes bookings taken by every instance, a CDC
+ * lag behind MySQL.
+ */
+@ApplicationScoped
+public class MaterializedOccupancy {
+
+    @Inject
+    RedisPipeline redisPipeline;
+
+    /**
+     * Highest number of guests booked on any night in [fromNight, toNight), per hotel in the order given. One HMGET
+     * per hotel, all in one round trip. Blocks, call it from a worker or virtual thread.
+     */
+    public int[] maxOccupancy(List<Long> hotelIds, LocalDate fromNight, LocalDate toNight) {
+        if (hotelIds.isEmpty()) {
+            return new int[0];
+        }
+        List<String> nights = new ArrayList<>();
+        for (LocalDate night = fromNight; night.isBefore(toNight); night = night.plusDays(1)) {
+            nights.add(night.toString());
+        }
+        List<Integer> busiest = redisPipeline.await(redisPipeline.pipelined(() -> {
+            List<Uni<Integer>> replies = new ArrayList<>(hotelIds.size());
+            for (Long hotelId : hotelIds) {
+                Request hmget = Request.cmd(Command.HMGET).arg(CacheKey.OCCUPANCY.getKey(hotelId));
+                nights.forEach(hmget::arg);
+                replies.add(redisPipeline.send(hmget).map(MaterializedOccupancy::max));
+            }
+            return Uni.join().all(replies).andFailFast();
+        }));
+        int[] occupancy = new int[busiest.size()];
+        for (int i = 0; i < occupancy.length; i++) {
+            occupancy[i] = busiest.get(i);
+        }
+        return occupancy;
+    }
+
+    // Nights without a field have no guests
+    private static int max(Response nights) {
+        int max = 0;
+        for (Response guests : nights) {
+            if (guests != null) {
+                max = Math.max(max, guests.toInteger());
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,46 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.entity.Booking;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.mysqlclient.MySQLClient;
+import io.vertx.mutiny.mysqlclient.MySQLPool;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Booking ids for the reactive path, from the same booking_id_seq table Hibernate draws from. Each round trip
+ * reserves a block of {@link Booking#ID_ALLOCATION_SIZE} ids the way Hibernate's pooled optimizer does (the value
+ * read is the highest id of the block), so both paths can run side by side without handing out an id twice.
+ */
+@ApplicationScoped
+public class ReactiveBookingIdAllocator {
+
+    @Inject
+    MySQLPool pool;
+
+    private long next = 1; // Next id to hand out from the current block
+    private long last; // Last id of the current block, 0 before the first block
+
+    public Uni<Long> nextId() {
+        synchronized (this) {
+            if (next <= last) {
+                return Uni.createFrom().item(next++);
+            }
+        }
+        // Runs on the pool, so callers take the id before opening their transaction; otherwise a refill would wait for
+        // a second connection while holding one. The sequence row is never held until a booking commits
+        return pool.query("UPDATE booking_id_seq SET next_val = LAST_INSERT_ID(next_val + " + Booking.ID_ALLOCATION_SIZE + ")")
+                .execute()
+                .map(rows -> takeFromBlock(rows.property(MySQLClient.LAST_INSERTED_ID) - Booking.ID_ALLOCATION_SIZE));
+    }
+
+    private synchronized long takeFromBlock(long blockHigh) {
+        // A concurrent caller may have refilled first, its block is used up before this one would be.
+        // The losing block is dropped, ids only have to be unique, not gapless
+        if (next > last) {
+            next = blockHigh - Booking.ID_ALLOCATION_SIZE + 1;
+            last = blockHigh;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,230 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.entity.BookingStatus;
+import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.exception.BookingNotFoundException;
+import com.hrs.api_gateway.exception.HotelNotFoundException;
+import com.hrs.api_gateway.exception.InsufficientCapacityException;
+import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.repository.ReactiveBookingRepository;
+import com.hrs.api_gateway.repository.ReactiveHotelNightInventoryRepository;
+import com.hrs.api_gateway.repository.ReactiveHotelRepository;
+import com.hrs.api_gateway.repository.ReactiveUserRepository;
+import com.hrs.api_gateway.utils.CommonHelper;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.mysqlclient.MySQLPool;
+import io.vertx.mutiny.sqlclient.SqlConnection;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Function;
+
+/**
+ * The booking read/write path of {@link BookingService} on the reactive MySQL client, used when
+ * quarkus.persistence.mode=reactive. Same admission rules, but every statement is a non-blocking call on the
+ * event loop, so a booking holds no thread while it waits for MySQL.
+ */
+@ApplicationScoped
+public class ReactiveBookingService {
+
+    private static final String OPTIMISTIC_ADMISSION = "optimistic";
+
+    @Inject
+    MySQLPool pool;
+    @Inject
+    ReactiveBookingRepository bookingRepository;
+    @Inject
+    ReactiveHotelRepository hotelRepository;
+    @Inject
+    ReactiveUserRepository userRepository;
+    @Inject
+    ReactiveHotelNightInventoryRepository inventoryRepository;
+    @Inject
+    ReactiveBookingIdAllocator idAllocator;
+    @Inject
+    BookingAdmissionRetry admissionRetry;
+
+    @ConfigProperty(name = "quarkus.booking-admission.mode", defaultValue = OPTIMISTIC_ADMISSION)
+    String admissionMode;
+
+    public Uni<BookingDTO> getBooking(Long id) {
+        return bookingRepository.findById(pool, id)
+                .onItem().ifNull().failWith(() -> new BookingNotFoundException("Booking not found with id: " + id));
+    }
+
+    public Uni<BookingDTO> createBooking(BookingDTO bookingDTO) {
+        return admitWithRetry(bookingDTO, optimistic -> insertBooking(bookingDTO, optimistic));
+    }
+
+    private Uni<BookingDTO> insertBooking(BookingDTO bookingDTO, boolean optimistic) {
+        // The id is taken before the transaction opens: a block refill needs a pool connection of its own. A booking
+        // that then fails leaves a gap, ids only have to be unique
+        return idAllocator.nextId().flatMap(id -> pool.withTransaction(connection -> findHotel(connection, bookingDTO.getHotelId())
+                        .call(hotel -> requireUser(connection, bookingDTO.getUserId()))
+                        .call(hotel -> admit(connection, hotel, bookingDTO, optimistic))
+                        .flatMap(hotel -> {
+                            BookingDTO booking = new BookingDTO(id, hotel.getId(), bookingDTO.getUserId(), bookingDTO.getCheckinDate(),
+                                    bookingDTO.getCheckoutDate(), bookingDTO.getNumberOfGuests(), bookingDTO.getTotalPrice(), BookingStatus.PENDING);
+                            return bookingRepository.insert(connection, booking).replaceWith(booking);
+                        })));
+    }
+
+    public Uni<BookingDTO> updateBooking(Long id, BookingDTO bookingDTO) {
+        return admitWithRetry(bookingDTO, optimistic -> replaceBooking(id, bookingDTO, optimistic));
+    }
+
+    private Uni<BookingDTO> replaceBooking(Long id, BookingDTO bookingDTO, boolean optimistic) {
+        return pool.withTransaction(connection -> bookingRepository.findByIdForUpdate(connection, id)
+                        .onItem().ifNull().failWith(() -> new BookingNotFoundException("Booking not found with id: " + id))
+                        .flatMap(existingBooking -> hotelRepository.findById(connection, bookingDTO.getHotelId())
+                                .onItem().ifNull().failWith(() -> new IllegalArgumentException("Hotel not found with id: " + bookingDTO.getHotelId()))
+                                .call(hotel -> requireUser(connection, bookingDTO.getUserId()))
+                                .flatMap(hotel -> {
+                                    BookingDTO updatedBooking = new BookingDTO(id, hotel.getId(), bookingDTO.getUserId(), bookingDTO.getCheckinDate(),
+                                            bookingDTO.getCheckoutDate(), bookingDTO.getNumberOfGuests(), bookingDTO.getTotalPrice(), existingBooking.getBookingStatus());
+                                    // Cancelled bookings hold no capacity
+                                    Uni<Void> capacity = Uni.createFrom().voidItem();
+                                    if (existingBooking.getBookingStatus() == BookingStatus.PENDING) {
+                                        // Free the current stay first so the booking does not compete with itself
+                                        capacity = releaseCapacity(connection, existingBooking)
+                                                .chain(() -> admit(connection, hotel, updatedBooking, optimistic));
+                                    }
+                                    return capacity
+                                            .chain(() -> bookingRepository.update(connection, updatedBooking))
+                                            .replaceWith(updatedBooking);
+                                })));
+    }
+
+    public Uni<Boolean> deleteBooking(Long id) {
+        return pool.withTransaction(connection -> bookingRepository.findByIdForUpdate(connection, id)
+                        .flatMap(existingBooking -> {
+                            if (existingBooking == null) {
+                                return Uni.createFrom().item(false);
+                            }
+                            Uni<Void> release = existingBooking.getBookingStatus() == BookingStatus.PENDING
+                                    ? releaseCapacity(connection, existingBooking)
+                                    : Uni.createFrom().voidItem();
+                            return release
+                                    .chain(() -> bookingRepository.updateStatus(connection, id, BookingStatus.CANCELLED))
+                                    .map(updated -> true);
+                        }));
+    }
+
+    private Uni<Hotel> findHotel(SqlConnection connection, Long hotelId) {
+        return hotelRepository.findById(connection, hotelId)
+                .onItem().ifNull().failWith(() -> new HotelNotFoundException("Hotel not found with id: " + hotelId));
+    }
+
+    private Uni<Void> requireUser(SqlConnection connection, Long userId) {
+        return userRepository.exists(connection, userId)
+                .invoke(exists -> {
+                    if (!exists) {
+                        throw new IllegalArgumentException("User not found with id: " + userId);
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    // Seeds the stay's night rows, then runs a booking write in its own transaction. Optimistic admission runs it again
+    // when MySQL picked it as a deadlock victim or its lock wait timed out, and once more queued behind the hotel row
+    // lock when the retries are used up
+    private <T> Uni<T> admitWithRetry(BookingDTO stay, Function<Boolean, Uni<T>> write) {
+        Uni<Void> seeded = seedNights(stay);
+        if (!isOptimisticAdmission()) {
+            return seeded.chain(() -> write.apply(false));
+        }
+        return seeded.chain(() -> admissionRetry.retry(() -> write.apply(true), () -> write.apply(false)));
+    }
+
+    // Before the booking transaction takes its connection, so seeding never waits for a second one. Incomplete input
+    // is left for the write to reject
+    private Uni<Void> seedNights(BookingDTO stay) {
+        if (stay.getHotelId() == null || stay.getCheckinDate() == null || stay.getCheckoutDate() == null) {
+            return Uni.createFrom().voidItem();
+        }
+        LocalDate fromNight = CommonHelper.firstNightOfStay(stay.getCheckinDate());
+        LocalDate toNight = CommonHelper.endNightOfStay(stay.getCheckinDate(), stay.getCheckoutDate());
+        return pool.withTransaction(connection -> ensureNights(connection, stay.getHotelId(), fromNight, toNight));
+    }
+
+    // Reserves capacity for the stay, fails with InsufficientCapacityException if any night is full
+    private Uni<Void> admit(SqlConnection connection, Hotel hotel, BookingDTO bookingDTO, boolean optimistic) {
+        if (!isOptimisticAdmission()) {
+            return admitUnderHotelLock(connection, hotel.getId(), bookingDTO);
+        }
+        if (!optimistic) {
+            // The same nights kept colliding, queue behind the hotel row lock, then take the guarded UPDATE like
+            // everyone else since optimistic bookers never lock the hotel
+            return hotelRepository.findByIdForUpdate(connection, hotel.getId())
+                    .onItem().ifNull().failWith(() -> new HotelNotFoundException("Hotel not found with id: " + hotel.getId()))
+                    .flatMap(hotelForUpdate -> reserveNights(connection, hotelForUpdate, bookingDTO));
+        }
+        return reserveNights(connection, hotel, bookingDTO);
+    }
+
+    // One guarded UPDATE holding the night rows until commit, same as the blocking path
+    private Uni<Void> reserveNights(SqlConnection connection, Hotel hotel, BookingDTO bookingDTO) {
+        LocalDate fromNight = CommonHelper.firstNightOfStay(bookingDTO.getCheckinDate());
+        LocalDate toNight = CommonHelper.endNightOfStay(bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate());
+        long nightCount = ChronoUnit.DAYS.between(fromNight, toNight);
+        return ensureNights(connection, hotel.getId(), fromNight, toNight)
+                .chain(() -> inventoryRepository.incrementWithinCapacity(connection, hotel.getId(), fromNight, toNight, bookingDTO.getNumberOfGuests(), hotel.getCapacity()))
+                .invoke(updated -> {
+                    if (updated < nightCount) {
+                        // Some nights were already incremented, the rollback undoes them
+                        throw new InsufficientCapacityException("Hotel has insufficient capacity for the requested number of guests.");
+                    }
+                })
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> admitUnderHotelLock(SqlConnection connection, Long hotelId, BookingDTO bookingDTO) {
+        return hotelRepository.findByIdForUpdate(connection, hotelId)
+                .onItem().ifNull().failWith(() -> new HotelNotFoundException("Hotel not found with id: " + hotelId))
+                .flatMap(hotelForUpdate -> getBookedCapacity(connection, hotelId, bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate())
+                        .flatMap(bookedCapacity -> {
+                            int requestedCapacity = bookingDTO.getNumberOfGuests();
+                            if (requestedCapacity > hotelForUpdate.getCapacity() - bookedCapacity) {
+                                return Uni.createFrom().failure(new InsufficientCapacityException("Hotel has insufficient capacity for the requested number of guests."));
+                            }
+                            // Keep the night counters in step so switching admission modes needs no rebuild
+                            return adjustNights(connection, hotelId, bookingDTO.getCheckinDate(), bookingDTO.getCheckoutDate(), requestedCapacity);
+                        }));
+    }
+
+    // Guests of the PENDING bookings overlapping the stay, summed in MySQL
+    private Uni<Integer> getBookedCapacity(SqlConnection connection, Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate) {
+        return bookingRepository.sumGuestsOverlapping(connection, hotelId, checkinDate, checkoutDate);
+    }
+
+    private Uni<Void> releaseCapacity(SqlConnection connection, BookingDTO booking) {
+        return adjustNights(connection, booking.getHotelId(), booking.getCheckinDate(), booking.getCheckoutDate(), -booking.getNumberOfGuests());
+    }
+
+    private Uni<Void> adjustNights(SqlConnection connection, Long hotelId, LocalDateTime checkinDate, LocalDateTime checkoutDate, int delta) {
+        LocalDate fromNight = CommonHelper.firstNightOfStay(checkinDate);
+        LocalDate toNight = CommonHelper.endNightOfStay(checkinDate, checkoutDate);
+        // A missing night has nothing to give back, it is seeded from the PENDING bookings when first needed
+        Uni<Void> seeded = delta > 0 ? ensureNights(connection, hotelId, fromNight, toNight) : Uni.createFrom().voidItem();
+        return seeded
+                .chain(() -> inventoryRepository.increment(connection, hotelId, fromNight, toNight, delta))
+                .replaceWithVoid();
+    }
+
+    // Creates missing nights on the given connection, same as the JDBC path. Seeded up front by admitWithRetry, so
+    // inside the booking transaction this is one count; the INSERT skips existing nights and reads without locks
+    private Uni<Void> ensureNights(SqlConnection connection, Long hotelId, LocalDate fromNight, LocalDate toNight) {
+        return inventoryRepository.countNights(connection, hotelId, fromNight, toNight)
+                .flatMap(present -> present < ChronoUnit.DAYS.between(fromNight, toNight)
+                        ? inventoryRepository.insertMissingNights(connection, hotelId, fromNight, toNight).replaceWithVoid()
+                        : Uni.createFrom().voidItem());
+    }
+
+    private boolean isOptimisticAdmission() {
+        return OPTIMISTIC_ADMISSION.equalsIgnoreCase(admissionMode);
+    }
+}
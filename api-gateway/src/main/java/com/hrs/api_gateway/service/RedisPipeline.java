@@ -0,0 +1,231 @@
+package com.hrs.api_gateway.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.RedisConnection;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Redis access for the gateway. Commands are sent as soon as they are issued and the returned Uni completes with
+ * the reply, but commands issued together share one connection and one round trip:
+ * <ul>
+ *     <li>on an event loop, everything issued during the current tick (by any request) goes out as one pipeline</li>
+ *     <li>on a worker or virtual thread, everything issued inside {@link #pipelined} does</li>
+ * </ul>
+ * Each command still gets its own reply or error, a failing command does not fail the others in its pipeline.
+ * Per-command latency is recorded as redis.command.latency{command=...}, from issue to reply.
+ */
+@ApplicationScoped
+public class RedisPipeline {
+
+    private static final Logger LOG = Logger.getLogger(RedisPipeline.class);
+    private static final String NO_SCRIPT = "NOSCRIPT";
+
+    @Inject
+    Redis redis;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    // Bound for callers that wait for a reply on a worker or virtual thread
+    @ConfigProperty(name = "quarkus.redis.timeout", defaultValue = "10s")
+    Duration timeout;
+
+    // Commands issued on this thread that have not been written yet, null when no pipeline is open
+    private final ThreadLocal<List<Pending>> open = new ThreadLocal<>();
+    private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+    private DistributionSummary pipelineSizes;
+
+    private record Pending(Request request, Request noScriptFallback, String command, long startNanos, CompletableFuture<Response> reply) {
+    }
+
+    @PostConstruct
+    void init() {
+        pipelineSizes = DistributionSummary.builder("redis.pipeline.size")
+                .description("Commands written per round trip")
+                .register(meterRegistry);
+    }
+
+    public Uni<Response> send(Request request) {
+        return issue(request, null);
+    }
+
+    /**
+     * Runs a script by SHA1, sending the source again only if this Redis node does not have it cached yet.
+     * Arguments are sent as is when byte arrays, as their string value otherwise.
+     */
+    public Uni<Response> eval(RedisScript script, List<String> keys, List<?> args) {
+        Request evalsha = scriptRequest(Request.cmd(Command.EVALSHA).arg(script.sha1()), keys, args);
+        Request eval = scriptRequest(Request.cmd(Command.EVAL).arg(script.source()), keys, args);
+        return issue(evalsha, eval);
+    }
+
+    /**
+     * Values of the keys in key order, null for a missing key. One MGET.
+     */
+    public Uni<List<byte[]>> mget(List<String> keys) {
+        Request mget = Request.cmd(Command.MGET);
+        keys.forEach(mget::arg);
+        return send(mget).map(values -> {
+            List<byte[]> result = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                Response value = values == null ? null : values.get(i);
+                result.add(value == null ? null : value.toBytes());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * SETEX of every entry with the same TTL, pipelined into one round trip.
+     */
+    public Uni<Void> setex(Map<String, byte[]> values, Duration ttl) {
+        if (values.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return pipelined(() -> {
+            List<Uni<Response>> replies = new ArrayList<>(values.size());
+            values.forEach((key, value) -> replies.add(send(Request.cmd(Command.SETEX).arg(key).arg(ttl.getSeconds()).arg(value))));
+            return Uni.join().all(replies).andFailFast().replaceWithVoid();
+        });
+    }
+
+    /**
+     * Sends every command issued by the supplier in one pipeline. Already inside a pipeline (an event loop tick or
+     * an outer call), the commands simply join it.
+     */
+    public <T> Uni<T> pipelined(Supplier<Uni<T>> commands) {
+        if (open.get() != null) {
+            return commands.get();
+        }
+        List<Pending> pipeline = new ArrayList<>();
+        open.set(pipeline);
+        try {
+            return commands.get();
+        } finally {
+            open.remove();
+            write(pipeline);
+        }
+    }
+
+    // Blocks a worker or virtual thread for a reply, never call this on the event loop
+    public <T> T await(Uni<T> reply) {
+        return reply.await().atMost(timeout);
+    }
+
+    private Uni<Response> issue(Request request, Request noScriptFallback) {
+        Pending pending = new Pending(request, noScriptFallback, request.command().toString(), System.nanoTime(), new CompletableFuture<>());
+        List<Pending> pipeline = open.get();
+        if (pipeline != null) {
+            pipeline.add(pending);
+        } else if (Context.isOnEventLoopThread()) {
+            // First command of this tick, everything issued on this event loop until it yields goes out with it
+            List<Pending> tick = new ArrayList<>();
+            tick.add(pending);
+            open.set(tick);
+            Vertx.currentContext().runOnContext(ignored -> {
+                open.remove();
+                write(tick);
+            });
+        } else {
+            write(List.of(pending));
+        }
+        return Uni.createFrom().completionStage(pending.reply());
+    }
+
+    private void write(List<Pending> pipeline) {
+        if (pipeline.isEmpty()) {
+            return;
+        }
+        pipelineSizes.record(pipeline.size());
+        if (pipeline.size() == 1) {
+            Pending pending = pipeline.get(0);
+            redis.send(pending.request()).subscribe().with(reply -> complete(pending, reply), failure -> fail(pending, failure));
+            return;
+        }
+        // One connection for the whole pipeline: requests are written back to back and replies matched in order
+        redis.connect().subscribe().with(connection -> {
+            AtomicInteger outstanding = new AtomicInteger(pipeline.size());
+            Runnable done = () -> {
+                if (outstanding.decrementAndGet() == 0) {
+                    connection.closeAndForget();
+                }
+            };
+            for (Pending pending : pipeline) {
+                send(connection, pending, done);
+            }
+        }, failure -> pipeline.forEach(pending -> fail(pending, failure)));
+    }
+
+    private void send(RedisConnection connection, Pending pending, Runnable done) {
+        connection.send(pending.request()).subscribe().with(reply -> {
+            complete(pending, reply);
+            done.run();
+        }, failure -> {
+            fail(pending, failure);
+            done.run();
+        });
+    }
+
+    private void complete(Pending pending, Response reply) {
+        record(pending);
+        pending.reply().complete(reply);
+    }
+
+    private void fail(Pending pending, Throwable failure) {
+        if (pending.noScriptFallback() != null && failure.getMessage() != null && failure.getMessage().startsWith(NO_SCRIPT)) {
+            // Node restarted or flushed its script cache, EVAL loads the script again
+            LOG.debugf("Script not cached in Redis, sending it with EVAL");
+            redis.send(pending.noScriptFallback()).subscribe().with(reply -> complete(pending, reply), retryFailure -> {
+                record(pending);
+                pending.reply().completeExceptionally(retryFailure);
+            });
+            return;
+        }
+        record(pending);
+        pending.reply().completeExceptionally(failure);
+    }
+
+    private void record(Pending pending) {
+        latencies.computeIfAbsent(pending.command(), command -> Timer.builder("redis.command.latency")
+                        .tag("command", command)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(System.nanoTime() - pending.startNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static Request scriptRequest(Request request, List<String> keys, List<?> args) {
+        request.arg(keys.size());
+        keys.forEach(request::arg);
+        for (Object arg : args) {
+            if (arg instanceof byte[] bytes) {
+                request.arg(bytes);
+            } else {
+                request.arg(String.valueOf(arg));
+            }
+        }
+        return request;
+    }
+}
@@ -0,0 +1,33 @@
+package com.hrs.api_gateway.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * A Lua script sent by SHA1 (EVALSHA), so the body only crosses the wire the first time a Redis node needs it.
+ * {@link RedisPipeline#eval} falls back to EVAL when the node answers NOSCRIPT.
+ */
+public final class RedisScript {
+
+    private final String source;
+    private final String sha1;
+
+    public RedisScript(String source) {
+        this.source = source;
+        try {
+            this.sha1 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public String sha1() {
+        return sha1;
+    }
+}
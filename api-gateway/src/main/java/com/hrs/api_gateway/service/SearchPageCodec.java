@@ -0,0 +1,44 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
+import com.hrs.api_gateway.utils.BinaryCacheCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Redis layout of a cached hotel search page, version 1: next cursor, hotel count, then each hotel as in
+ * {@link CachedHotelCodec}. Full pages are usually above the LZ4 threshold.
+ */
+final class SearchPageCodec extends BinaryCacheCodec<SearchPage<HotelDTO>> {
+
+    private static final int VERSION = 1;
+
+    SearchPageCodec() {
+        super(VERSION, DEFAULT_COMPRESS_ABOVE, null); // Search pages were never cached as JSON
+    }
+
+    @Override
+    protected void write(Writer out, SearchPage<HotelDTO> page) {
+        out.writeString(page.getNextCursor());
+        out.writeVarInt(page.getItems().size());
+        for (HotelDTO hotel : page.getItems()) {
+            CachedHotelCodec.writeHotel(out, hotel);
+        }
+    }
+
+    @Override
+    protected SearchPage<HotelDTO> read(Reader in, int version) {
+        String nextCursor = in.readString();
+        int size = in.readVarInt();
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid search page size " + size);
+        }
+        List<HotelDTO> hotels = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            hotels.add(CachedHotelCodec.readHotel(in));
+        }
+        return new SearchPage<>(hotels, nextCursor);
+    }
+}
@@ -0,0 +1,231 @@
+package com.hrs.api_gateway.utils;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary cache values. Layout: a schema version byte, a flags byte, then the fields written by the
+ * subclass as varints and length-prefixed UTF-8. Bodies above a threshold are LZ4 compressed when that saves
+ * space, prefixed with their uncompressed length.
+ * <p>
+ * The version byte lets the layout roll forward: a new instance writes the next version and still reads older
+ * ones, an older instance treats a newer version as a miss. Values starting with '{' are JSON written before this
+ * codec and are read with the legacy codec.
+ */
+public abstract class BinaryCacheCodec<T> implements CacheCodec<T> {
+
+    public static final int DEFAULT_COMPRESS_ABOVE = 1024; // Bytes, smaller bodies do not compress enough to pay off
+    private static final int HEADER_LENGTH = 2;
+    private static final int FLAG_LZ4 = 1;
+    private static final int MAX_BODY_LENGTH = 64 * 1024 * 1024; // Guards the allocation against a corrupt length
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestJavaInstance(); // Pure Java, no native library to load
+
+    private final int version;
+    private final int compressAbove;
+    private final CacheCodec<T> legacy;
+
+    /**
+     * @param version       schema version written by this codec, 1 to 31 so it never collides with JSON text
+     * @param compressAbove body length from which LZ4 is tried
+     * @param legacy        reads values written before the binary format, null if there are none
+     */
+    protected BinaryCacheCodec(int version, int compressAbove, CacheCodec<T> legacy) {
+        if (version < 1 || version > 31) {
+            throw new IllegalArgumentException("Schema version must be between 1 and 31");
+        }
+        this.version = version;
+        this.compressAbove = compressAbove;
+        this.legacy = legacy;
+    }
+
+    protected abstract void write(Writer out, T value);
+
+    /**
+     * @param version schema version the value was written with, at most the version of this codec
+     */
+    protected abstract T read(Reader in, int version);
+
+    @Override
+    public final byte[] encode(T value) {
+        Writer out = new Writer();
+        out.buffer[0] = (byte) version;
+        out.length = HEADER_LENGTH;
+        write(out, value);
+        int bodyLength = out.length - HEADER_LENGTH;
+        if (bodyLength < compressAbove) {
+            return out.toBytes();
+        }
+        LZ4Compressor compressor = LZ4.fastCompressor();
+        byte[] compressed = new byte[HEADER_LENGTH + 5 + compressor.maxCompressedLength(bodyLength)];
+        compressed[0] = (byte) version;
+        compressed[1] = FLAG_LZ4;
+        int offset = Writer.putVarInt(compressed, HEADER_LENGTH, bodyLength);
+        int compressedLength = compressor.compress(out.buffer, HEADER_LENGTH, bodyLength, compressed, offset, compressed.length - offset);
+        if (offset + compressedLength >= out.length) {
+            return out.toBytes(); // Incompressible, keep it plain
+        }
+        return Arrays.copyOf(compressed, offset + compressedLength);
+    }
+
+    @Override
+    public final T decode(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Empty cache value");
+        }
+        if (bytes[0] == '{' && legacy != null) {
+            return legacy.decode(bytes);
+        }
+        int written = bytes[0];
+        if (written < 1 || written > version || bytes.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Unknown cache value version " + written);
+        }
+        try {
+            if ((bytes[1] & FLAG_LZ4) == 0) {
+                return read(new Reader(bytes, HEADER_LENGTH), written);
+            }
+            Reader header = new Reader(bytes, HEADER_LENGTH);
+            int bodyLength = header.readVarInt();
+            if (bodyLength < 0 || bodyLength > MAX_BODY_LENGTH) {
+                throw new IllegalArgumentException("Invalid cache value length " + bodyLength);
+            }
+            byte[] body = new byte[bodyLength];
+            LZ4SafeDecompressor decompressor = LZ4.safeDecompressor();
+            int decompressed = decompressor.decompress(bytes, header.position, bytes.length - header.position, body, 0, bodyLength);
+            if (decompressed != bodyLength) {
+                throw new IllegalArgumentException("Truncated cache value");
+            }
+            return read(new Reader(body, 0), written);
+        } catch (ArrayIndexOutOfBoundsException | LZ4Exception e) {
+            throw new IllegalArgumentException("Corrupt cache value", e);
+        }
+    }
+
+    /**
+     * Appends fields: unsigned and zigzag varints, and strings as varint (UTF-8 length + 1) with 0 for null.
+     */
+    public static final class Writer {
+        private byte[] buffer = new byte[128];
+        private int length;
+
+        private Writer() {
+        }
+
+        public void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte) value;
+        }
+
+        public void writeVarInt(int value) {
+            ensure(5);
+            length = putVarInt(buffer, length, value);
+        }
+
+        public void writeZigZagLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        public void writeByte(int value) {
+            ensure(1);
+            buffer[length++] = (byte) value;
+        }
+
+        public void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buffer, length, utf8.length);
+            length += utf8.length;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+
+        private byte[] toBytes() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private static int putVarInt(byte[] target, int offset, int value) {
+            while ((value & ~0x7F) != 0) {
+                target[offset++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            target[offset++] = (byte) value;
+            return offset;
+        }
+    }
+
+    /**
+     * Reads what {@link Writer} wrote, in the same order.
+     */
+    public static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        private Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        public long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        public int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        public long readZigZagLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        public String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("String runs past the end of the value");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.hrs.api_gateway.utils;
+
+/**
+ * Turns a cached value into the bytes stored in Redis and back.
+ */
+public interface CacheCodec<T> {
+
+    byte[] encode(T value);
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a value this codec can read, callers treat it as a miss
+     */
+    T decode(byte[] bytes);
+}
@@ -1,7 +1,13 @@
 package com.hrs.api_gateway.utils;
 
 public enum CacheKey {
-    HOTEL_BY_ID("hotel:");
+    HOTEL_BY_ID("hotel:"),
+    HOTEL_LOAD_LEASE("hotel-lease:"), // Held by the one instance reloading a hotel into Redis
+    HOTEL_VERSION("hotel-version:"), // Bumped on every hotel invalidation, loads started before it are not cached
+    HOTEL_SEARCH("hotel-search:"), // Search pages per generation and normalized query, plus the generation counter
+    RATE_LIMIT_BUCKET("rate-limit:"), // Shared token bucket per route and client
+    IDEMPOTENCY("idempotency:"), // Reservation or stored response per client, route and Idempotency-Key
+    OCCUPANCY("occupancy:"); // Booked guests per night of a hotel, written by occupancy-stream from the bookings CDC topic
 
     private final String prefix;
 
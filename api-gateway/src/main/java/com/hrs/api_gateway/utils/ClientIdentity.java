@@ -0,0 +1,38 @@
+package com.hrs.api_gateway.utils;
+
+import io.vertx.core.http.HttpServerRequest;
+import jakarta.ws.rs.container.ContainerRequestContext;
+
+import java.security.Principal;
+
+/**
+ * Who is calling. Only identities the gateway has verified count: a header the client picks freely, such as an
+ * unchecked API key, would give it a fresh rate-limit bucket per request.
+ */
+public class ClientIdentity {
+
+    // Rate-limit bucket: the authenticated user, then the caller's address
+    public static String resolve(ContainerRequestContext requestContext, HttpServerRequest request) {
+        String user = user(requestContext);
+        if (user != null) {
+            return user;
+        }
+        // Honours X-Forwarded-For when quarkus.http.proxy.proxy-address-forwarding is enabled behind the load balancer
+        if (request != null && request.remoteAddress() != null) {
+            return "ip:" + request.remoteAddress().hostAddress();
+        }
+        return "default-client";
+    }
+
+    // Idempotency namespace: the authenticated user, otherwise one shared namespace. Never the address, a retry
+    // leaving through another NAT or load balancer address must still find the first attempt
+    public static String idempotencyNamespace(ContainerRequestContext requestContext) {
+        String user = user(requestContext);
+        return user != null ? user : "anonymous";
+    }
+
+    private static String user(ContainerRequestContext requestContext) {
+        Principal user = requestContext.getSecurityContext() == null ? null : requestContext.getSecurityContext().getUserPrincipal();
+        return user == null ? null : "user:" + user.getName();
+    }
+}
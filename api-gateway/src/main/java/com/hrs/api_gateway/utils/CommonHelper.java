@@ -3,32 +3,21 @@ package com.hrs.api_gateway.utils;
 import com.hrs.api_gateway.model.BookingDTO;
 import com.hrs.api_gateway.model.HotelDTO;
 import jakarta.ws.rs.BadRequestException;
-import org.jsoup.Jsoup;
-import org.jsoup.safety.Safelist;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CommonHelper {
 
-    private static final Safelist SAFE_LIST = Safelist.basic();
-
     public static boolean isValidBookingInput(BookingDTO bookingDTO) {
-        return isSafeHtml(bookingDTO.getCheckinDate().toString()) &&
-                isSafeHtml(bookingDTO.getCheckoutDate().toString());
+        return InputValidators.isValid(bookingDTO);
     }
 
     public static boolean isValidHotelInput(HotelDTO hotelDTO) {
-        return isSafeHtml(hotelDTO.getName()) &&
-                isSafeHtml(hotelDTO.getCity()) &&
-                isSafeHtml(hotelDTO.getAddress());
-    }
-
-    private static boolean isSafeHtml(String html) {
-        if (html == null) return true;
-        String cleanedHtml = Jsoup.clean(html, SAFE_LIST);
-        return cleanedHtml.equals(html);
+        return InputValidators.isValid(hotelDTO);
     }
 
     public static LocalDate parseLocalDate(String dateStr) {
@@ -42,6 +31,36 @@ public class CommonHelper {
         }
     }
 
+    // Parses "1,2,3" into ids, an absent or blank list is empty
+    public static List<Long> parseIdList(String ids) {
+        List<Long> parsed = new ArrayList<>();
+        if (ids == null || ids.trim().isEmpty()) {
+            return parsed;
+        }
+        try {
+            for (String id : ids.split(",")) {
+                if (!id.isBlank()) {
+                    parsed.add(Long.parseLong(id.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid ids. Expected a comma separated list of numeric IDs.");
+        }
+        return parsed;
+    }
+
+    // First night occupied by a stay
+    public static LocalDate firstNightOfStay(LocalDateTime checkinDate) {
+        return checkinDate.toLocalDate();
+    }
+
+    // Night after the last one occupied by a stay (exclusive); a same-day stay still occupies the check-in night
+    public static LocalDate endNightOfStay(LocalDateTime checkinDate, LocalDateTime checkoutDate) {
+        LocalDate firstNight = firstNightOfStay(checkinDate);
+        LocalDate checkoutDay = checkoutDate.toLocalDate();
+        return checkoutDay.isAfter(firstNight) ? checkoutDay : firstNight.plusDays(1);
+    }
+
     public static LocalDateTime parseLocalDateTime(String dateTimeString) {
         if (dateTimeString == null || dateTimeString.trim().isEmpty()) {
             return null;
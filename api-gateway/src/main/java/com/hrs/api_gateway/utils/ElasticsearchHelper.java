@@ -0,0 +1,29 @@
+package com.hrs.api_gateway.utils;
+
+import io.smallrye.mutiny.Uni;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+
+public class ElasticsearchHelper {
+
+    // Sends the request on the client's I/O reactor, no worker thread waits for the response
+    public static Uni<Response> performRequestAsync(RestClient restClient, Request request) {
+        return Uni.createFrom().emitter(emitter -> {
+            Cancellable cancellable = restClient.performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    emitter.complete(response);
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    emitter.fail(exception);
+                }
+            });
+            emitter.onTermination(cancellable::cancel); // Abort the HTTP exchange if the caller goes away
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package com.hrs.api_gateway.utils;
+
+/**
+ * Checks a request body for unsafe input before it reaches a service. Registered per type in {@link InputValidators}.
+ */
+@FunctionalInterface
+public interface InputValidator<T> {
+
+    boolean isValid(T input);
+}
@@ -0,0 +1,41 @@
+package com.hrs.api_gateway.utils;
+
+import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.model.HotelDTO;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Input validators by request body type. A validator only looks at free text fields, typed fields (ids, numbers,
+ * dates, enums) were already parsed by Jackson and cannot carry markup. Register a validator for every new
+ * request DTO, validating a type without one fails instead of passing silently.
+ */
+public final class InputValidators {
+
+    private static final Map<Class<?>, InputValidator<?>> VALIDATORS = new ConcurrentHashMap<>();
+
+    static {
+        register(HotelDTO.class, hotel -> SafeText.isSafe(hotel.getName())
+                && SafeText.isSafe(hotel.getCity())
+                && SafeText.isSafe(hotel.getAddress()));
+        register(BookingDTO.class, booking -> true); // Ids, dates, numbers and a status enum, no text
+    }
+
+    private InputValidators() {
+    }
+
+    public static <T> void register(Class<T> type, InputValidator<? super T> validator) {
+        VALIDATORS.put(type, validator);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> boolean isValid(T input) {
+        if (input == null) return true;
+        InputValidator<? super T> validator = (InputValidator<? super T>) VALIDATORS.get(input.getClass());
+        if (validator == null) {
+            throw new IllegalStateException("No input validator registered for " + input.getClass().getName());
+        }
+        return validator.isValid(input);
+    }
+}
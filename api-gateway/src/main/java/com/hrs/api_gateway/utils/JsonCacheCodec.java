@@ -0,0 +1,38 @@
+package com.hrs.api_gateway.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Jackson JSON, the format cache values were written in before {@link BinaryCacheCodec}. Still read so entries
+ * written by an older instance stay hits during a rolling deploy.
+ */
+public final class JsonCacheCodec<T> implements CacheCodec<T> {
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+
+    public JsonCacheCodec(ObjectMapper objectMapper, Class<T> type) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unreadable " + type.getSimpleName(), e);
+        }
+    }
+}
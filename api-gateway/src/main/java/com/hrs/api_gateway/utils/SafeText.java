@@ -0,0 +1,46 @@
+package com.hrs.api_gateway.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.safety.Safelist;
+
+/**
+ * XSS check for free text fields. A string is safe when Jsoup's basic safelist would leave it unchanged. Most
+ * input (names, cities, addresses) contains nothing Jsoup would touch, so one pass over the characters decides
+ * it without allocating. Only text with markup characters, entities, control characters or whitespace Jsoup
+ * normalizes is parsed and sanitized.
+ */
+public final class SafeText {
+
+    private static final Safelist SAFE_LIST = Safelist.basic();
+
+    private SafeText() {
+    }
+
+    public static boolean isSafe(String text) {
+        if (text == null) return true;
+        return !needsSanitizing(text) || isSafeSanitized(text);
+    }
+
+    // The full check: parse, clean and compare. Same answer as isSafe, for text that needs it and for benchmarks
+    public static boolean isSafeSanitized(String text) {
+        if (text == null) return true;
+        return Jsoup.clean(text, SAFE_LIST).equals(text);
+    }
+
+    // True when Jsoup.clean could return something else: escaped < > & or nbsp, escaped control characters,
+    // or whitespace collapsed, trimmed or turned into a space
+    static boolean needsSanitizing(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                if (i == 0 || i == length - 1 || text.charAt(i - 1) == ' ') {
+                    return true;
+                }
+            } else if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == 0x7F || c == 0xA0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package com.hrs.api_gateway.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque page tokens for keyset pagination: the sort values of a page's last hit, base64url encoded.
+ * Handed back as search_after, so page N costs Elasticsearch the same as page 1.
+ */
+public class SearchCursor {
+
+    public static String encode(String sortValuesJson) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sortValuesJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode} for a sort of this length
+     */
+    public static ArrayNode decode(ObjectMapper objectMapper, String cursor, int sortLength) {
+        try {
+            JsonNode sortValues = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+            if (sortValues instanceof ArrayNode arrayNode && arrayNode.size() == sortLength && allScalar(arrayNode)) {
+                return arrayNode;
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            // Fall through to the same error as a well-formed but foreign token
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    // Picks the page size to request, the default when none was asked for, never above the configured maximum
+    public static int pageSize(Integer requested, int defaultSize, int maxSize) {
+        if (requested == null || requested < 1) {
+            return Math.min(defaultSize, maxSize);
+        }
+        return Math.min(requested, maxSize);
+    }
+
+    private static boolean allScalar(ArrayNode sortValues) {
+        for (JsonNode value : sortValues) {
+            if (!value.isValueNode()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
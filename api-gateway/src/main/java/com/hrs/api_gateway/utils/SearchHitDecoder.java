@@ -0,0 +1,157 @@
+package com.hrs.api_gateway.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.hrs.api_gateway.entity.BookingStatus;
+import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes Elasticsearch search responses token by token, straight from the response bytes into DTOs.
+ * No JsonNode tree, intermediate String or entity is built; everything outside hits.hits[]._source is skipped.
+ */
+public class SearchHitDecoder {
+
+    @FunctionalInterface
+    public interface SourceReader<T> {
+        // Called with the parser on the START_OBJECT of a hit's _source, must consume up to its END_OBJECT
+        T read(JsonParser parser) throws IOException;
+    }
+
+    public static <T> List<T> decodeHits(JsonFactory jsonFactory, InputStream content, SourceReader<T> sourceReader) throws IOException {
+        return decodePage(jsonFactory, content, sourceReader).getItems();
+    }
+
+    /**
+     * Decodes the hits and turns the sort values of the last one into the cursor for the next page.
+     * The cursor is null when the request carried no sort or nothing matched.
+     */
+    public static <T> SearchPage<T> decodePage(JsonFactory jsonFactory, InputStream content, SourceReader<T> sourceReader) throws IOException {
+        SearchPage<T> page = new SearchPage<>(new ArrayList<>(), null);
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return page;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && "hits".equals(field)) {
+                    readHitsObject(jsonFactory, parser, sourceReader, page);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return page;
+    }
+
+    private static <T> void readHitsObject(JsonFactory jsonFactory, JsonParser parser, SourceReader<T> sourceReader, SearchPage<T> page) throws IOException {
+        String lastSortValues = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "hits".equals(field)) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String sortValues = readHit(jsonFactory, parser, sourceReader, page.getItems());
+                    if (sortValues != null) {
+                        lastSortValues = sortValues;
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (lastSortValues != null) {
+            page.setNextCursor(SearchCursor.encode(lastSortValues));
+        }
+    }
+
+    // Returns the hit's sort array as raw JSON, or null when the hit has none
+    private static <T> String readHit(JsonFactory jsonFactory, JsonParser parser, SourceReader<T> sourceReader, List<T> results) throws IOException {
+        String sortValues = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT && "_source".equals(field)) {
+                results.add(sourceReader.read(parser));
+            } else if (token == JsonToken.START_ARRAY && "sort".equals(field)) {
+                sortValues = copyStructure(jsonFactory, parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return sortValues;
+    }
+
+    private static String copyStructure(JsonFactory jsonFactory, JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter(32);
+        try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+
+    // _source fields readHotel understands, requested as _source includes so nothing else is shipped
+    public static final List<String> HOTEL_SOURCE_FIELDS = List.of("id", "name", "city", "address", "capacity");
+
+    // _source fields readBooking understands
+    public static final List<String> BOOKING_SOURCE_FIELDS = List.of("id", "hotel_id", "user_id", "check_in_date", "check_out_date",
+            "number_of_guests", "total_price", "booking_status");
+
+    // _source layout written by CDCToESHotelTransformation
+    public static HotelDTO readHotel(JsonParser parser) throws IOException {
+        HotelDTO hotelDTO = new HotelDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> hotelDTO.setId(longValue(parser));
+                case "name" -> hotelDTO.setName(parser.getValueAsString());
+                case "city" -> hotelDTO.setCity(parser.getValueAsString());
+                case "address" -> hotelDTO.setAddress(parser.getValueAsString());
+                case "capacity" -> hotelDTO.setCapacity(intValue(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return hotelDTO;
+    }
+
+    // _source layout written by CDCToESBookingTransformation
+    public static BookingDTO readBooking(JsonParser parser) throws IOException {
+        BookingDTO bookingDTO = new BookingDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> bookingDTO.setId(longValue(parser));
+                case "hotel_id" -> bookingDTO.setHotelId(longValue(parser));
+                case "user_id" -> bookingDTO.setUserId(longValue(parser));
+                case "check_in_date" -> bookingDTO.setCheckinDate(CommonHelper.parseLocalDateTime(parser.getValueAsString()));
+                case "check_out_date" -> bookingDTO.setCheckoutDate(CommonHelper.parseLocalDateTime(parser.getValueAsString()));
+                case "number_of_guests" -> bookingDTO.setNumberOfGuests(intValue(parser));
+                case "total_price" -> bookingDTO.setTotalPrice(longValue(parser));
+                case "booking_status" -> {
+                    String status = parser.getValueAsString();
+                    bookingDTO.setBookingStatus(status == null ? null : BookingStatus.valueOf(status));
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return bookingDTO;
+    }
+
+    private static Long longValue(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsLong();
+    }
+
+    private static Integer intValue(JsonParser parser) throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getValueAsInt();
+    }
+}
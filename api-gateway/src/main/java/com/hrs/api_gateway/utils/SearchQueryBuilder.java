@@ -0,0 +1,122 @@
+package com.hrs.api_gateway.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Builds the Elasticsearch request bodies for hotel and booking search, one page each, sorted on a unique key so
+ * search_after can resume from a {@link SearchCursor}.
+ */
+public class SearchQueryBuilder {
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not issued for a hotel search
+     */
+    public static String hotelQuery(ObjectMapper objectMapper, List<String> keywords, int pageSize, String cursor) throws IOException {
+        ObjectNode boolQueryNode = objectMapper.createObjectNode();
+        ArrayNode shouldClauses = objectMapper.createArrayNode(); // ArrayNode for SHOULD clauses
+
+        // Add a SHOULD clause for each keyword and each field (name, city, address)
+        for (String keyword : keywords) {
+            ObjectNode matchNameNode = objectMapper.createObjectNode();
+            matchNameNode.put("name", keyword);
+            shouldClauses.add(objectMapper.createObjectNode().set("match", matchNameNode)); // Match in name
+
+            ObjectNode matchCityNode = objectMapper.createObjectNode();
+            matchCityNode.put("city", keyword);
+            shouldClauses.add(objectMapper.createObjectNode().set("match", matchCityNode)); // Match in city
+
+            ObjectNode matchAddressNode = objectMapper.createObjectNode();
+            matchAddressNode.put("address", keyword);
+            shouldClauses.add(objectMapper.createObjectNode().set("match", matchAddressNode)); // Match in address
+        }
+
+        boolQueryNode.set("should", shouldClauses); // Set SHOULD clauses in bool query
+        boolQueryNode.put("minimum_should_match", 1); // At least one SHOULD clause must match
+
+        ObjectNode boolQueryWrapper = objectMapper.createObjectNode(); // Wrap bool query in a query node
+        boolQueryWrapper.set("bool", boolQueryNode);
+
+        ObjectNode rootNode = objectMapper.createObjectNode(); // Root query node
+        rootNode.set("query", boolQueryWrapper);
+        rootNode.put("size", pageSize);
+        rootNode.put("track_total_hits", false); // Nobody reads the total, counting it would scan every match
+        rootNode.set("_source", objectMapper.valueToTree(SearchHitDecoder.HOTEL_SOURCE_FIELDS));
+        // Best matches first, id breaks score ties so search_after never skips or repeats a hotel
+        ArrayNode sort = rootNode.putArray("sort");
+        sort.addObject().put("_score", "desc");
+        sort.addObject().put("id", "asc");
+        if (cursor != null && !cursor.isBlank()) {
+            rootNode.set("search_after", SearchCursor.decode(objectMapper, cursor, sort.size()));
+        }
+
+        return objectMapper.writeValueAsString(rootNode);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not issued for a booking search
+     */
+    public static String bookingQuery(ObjectMapper objectMapper, Long userId, Long hotelId, LocalDate checkinDate, LocalDate checkoutDate,
+                                      int pageSize, String cursor) throws IOException {
+        ObjectNode boolQueryNode = objectMapper.createObjectNode();
+        ArrayNode mustClauses = objectMapper.createArrayNode();
+        ArrayNode filterClauses = objectMapper.createArrayNode();
+
+        if (userId != null) {
+            mustClauses.add(objectMapper.createObjectNode().putPOJO("term", objectMapper.createObjectNode().put("user_id", userId))); // Search by User ID (exact match)
+        }
+        if (hotelId != null) {
+            mustClauses.add(objectMapper.createObjectNode().putPOJO("term", objectMapper.createObjectNode().put("hotel_id", hotelId))); // Search by Hotel ID (exact match)
+        }
+        if (checkinDate != null) {
+            filterClauses.add(createRangeQuery(objectMapper, "check_in_date", formatDateForElasticsearch(checkinDate), null, true, true)); // gte checkinDate (Find bookings with check-in date ON or AFTER provided date) - ADJUSTED LOGIC
+        }
+        if (checkoutDate != null) {
+            filterClauses.add(createRangeQuery(objectMapper, "check_out_date", null, formatDateForElasticsearch(checkoutDate), true, true)); // lte checkoutDate (Find bookings with check-out date ON or BEFORE provided date) - ADJUSTED LOGIC
+        }
+
+        ObjectNode boolQuery = objectMapper.createObjectNode();
+        if (!mustClauses.isEmpty()) {
+            boolQuery.putPOJO("must", mustClauses);
+        }
+        if (!filterClauses.isEmpty()) {
+            boolQuery.putPOJO("filter", objectMapper.createArrayNode().addAll(filterClauses));
+        }
+        boolQueryNode.set("bool", boolQuery);
+
+        ObjectNode rootNode = objectMapper.createObjectNode();
+        rootNode.set("query", boolQueryNode);
+        rootNode.put("size", pageSize);
+        rootNode.put("track_total_hits", false); // Nobody reads the total, counting it would scan every match
+        rootNode.set("_source", objectMapper.valueToTree(SearchHitDecoder.BOOKING_SOURCE_FIELDS));
+        // Unique sort key, so search_after resumes exactly where the previous page stopped
+        rootNode.putArray("sort").addObject().put("id", "asc");
+        if (cursor != null && !cursor.isBlank()) {
+            rootNode.set("search_after", SearchCursor.decode(objectMapper, cursor, 1));
+        }
+
+        return objectMapper.writeValueAsString(rootNode);
+    }
+
+    private static ObjectNode createRangeQuery(ObjectMapper objectMapper, String field, String gte, String lte, boolean includeLower, boolean includeUpper) {
+        ObjectNode rangeNode = objectMapper.createObjectNode();
+        ObjectNode fieldRange = objectMapper.createObjectNode();
+        if (gte != null) fieldRange.put("gte", gte); // gte (greater-than-or-equal-to) for start date
+        if (lte != null) fieldRange.put("lte", lte); // lte (less-than-or-equal-to) for end date
+        fieldRange.put("include_lower", includeLower);
+        fieldRange.put("include_upper", includeUpper);
+        rangeNode.set(field, fieldRange);
+        return objectMapper.createObjectNode().set("range", rangeNode);
+    }
+
+    private static String formatDateForElasticsearch(LocalDate date) {
+        if (date == null) return null;
+        return DateTimeFormatter.ISO_DATE.format(date);
+    }
+}
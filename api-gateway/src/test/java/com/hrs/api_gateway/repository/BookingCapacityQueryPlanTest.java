@@ -0,0 +1,93 @@
+package com.hrs.api_gateway.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.entity.BookingStatus;
+import io.quarkus.test.TestTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+public class BookingCapacityQueryPlanTest {
+
+    private static final long HOTEL_ID = 900_001L;
+    private static final long OTHER_HOTEL_ID = 900_002L;
+    private static final long USER_ID = 900_001L;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    BookingRepository bookingRepository;
+
+    @Test
+    @TestTransaction
+    public void testCapacityQueryReadsOnlyTheCoveringIndex() throws Exception {
+        seedBookings();
+
+        String plan = (String) entityManager.createNativeQuery("EXPLAIN FORMAT=JSON " + BookingRepository.SUM_GUESTS_OVERLAPPING)
+                .setParameter("hotelId", HOTEL_ID)
+                .setParameter("status", "PENDING")
+                .setParameter("checkinDate", LocalDateTime.of(2030, 1, 10, 14, 0))
+                .setParameter("checkoutDate", LocalDateTime.of(2030, 1, 12, 11, 0))
+                .getSingleResult();
+
+        JsonNode table = objectMapper.readTree(plan).path("query_block").path("table");
+        assertEquals("idx_bookings_capacity", table.path("key").asText(), plan);
+        // No row lookups, number_of_guests comes from the index
+        assertTrue(table.path("using_index").asBoolean(), plan);
+    }
+
+    @Test
+    @TestTransaction
+    public void testSumGuestsOverlapping() {
+        seedBookings();
+
+        // Nights of Jan 10 and 11, 2030: the PENDING stays overlapping them, cancelled ones and the other hotel excluded
+        int guests = bookingRepository.sumGuestsOverlapping(HOTEL_ID, BookingStatus.PENDING,
+                LocalDateTime.of(2030, 1, 10, 14, 0), LocalDateTime.of(2030, 1, 12, 11, 0));
+        assertEquals(3, guests);
+    }
+
+    private void seedBookings() {
+        entityManager.createNativeQuery("INSERT INTO users (id, username, email, password) VALUES (:id, 'plan.test', 'plan.test@example.com', 'x')")
+                .setParameter("id", USER_ID).executeUpdate();
+        for (long hotelId : new long[]{HOTEL_ID, OTHER_HOTEL_ID}) {
+            entityManager.createNativeQuery("INSERT INTO hotels (id, name, city, address, capacity) VALUES (:id, 'Plan Hotel', 'Plan City', '1 Plan St', 100)")
+                    .setParameter("id", hotelId).executeUpdate();
+        }
+        long id = 900_000L;
+        // Enough bookings on other days and hotels that a full scan of the hotel would be visible in the plan
+        for (int day = 1; day <= 28; day++) {
+            insertBooking(++id, HOTEL_ID, LocalDateTime.of(2030, 2, day, 14, 0), 1, day % 4 == 0 ? "CANCELLED" : "PENDING");
+            insertBooking(++id, OTHER_HOTEL_ID, LocalDateTime.of(2030, 1, day, 14, 0), 1, "PENDING");
+        }
+        insertBooking(++id, HOTEL_ID, LocalDateTime.of(2030, 1, 9, 14, 0), 2, "PENDING"); // Jan 9 to 11
+        insertBooking(++id, HOTEL_ID, LocalDateTime.of(2030, 1, 11, 14, 0), 1, "PENDING"); // Jan 11 to 13
+        insertBooking(++id, HOTEL_ID, LocalDateTime.of(2030, 1, 10, 14, 0), 4, "CANCELLED");
+        insertBooking(++id, HOTEL_ID, LocalDateTime.of(2030, 1, 12, 14, 0), 5, "PENDING"); // Starts on checkout day
+    }
+
+    private void insertBooking(long id, long hotelId, LocalDateTime checkinDate, int guests, String status) {
+        entityManager.createNativeQuery("INSERT INTO bookings (id, hotel_id, user_id, check_in_date, check_out_date, number_of_guests, total_price, booking_status) "
+                        + "VALUES (:id, :hotelId, :userId, :checkinDate, :checkoutDate, :guests, 100, :status)")
+                .setParameter("id", id)
+                .setParameter("hotelId", hotelId)
+                .setParameter("userId", USER_ID)
+                .setParameter("checkinDate", checkinDate)
+                .setParameter("checkoutDate", checkinDate.plusDays(2).withHour(11))
+                .setParameter("guests", guests)
+                .setParameter("status", status)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,157 @@
+package com.hrs.api_gateway.resource;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@TestProfile(BookingAdmissionConcurrencyTest.SmallPool.class)
+public class BookingAdmissionConcurrencyTest {
+
+    // Far fewer connections than bookers, a booking that needed a second connection would starve the pool
+    public static class SmallPool implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "quarkus.datasource.jdbc.max-size", "4",
+                    "quarkus.datasource.jdbc.acquisition-timeout", "5S");
+        }
+    }
+
+    private static final long HOTEL_ID = 910_001L;
+    private static final long USER_ID = 910_001L;
+    private static final int CAPACITY = 10;
+    private static final int BOOKERS = 30;
+
+    @Inject
+    EntityManager entityManager;
+
+    @BeforeEach
+    void seedHotel() {
+        // Committed up front, the bookers run in their own transactions
+        QuarkusTransaction.requiringNew().run(() -> {
+            entityManager.createNativeQuery("DELETE FROM hotel_night_inventory WHERE hotel_id = :id").setParameter("id", HOTEL_ID).executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM bookings WHERE hotel_id = :id").setParameter("id", HOTEL_ID).executeUpdate();
+            entityManager.createNativeQuery("INSERT IGNORE INTO users (id, username, email, password) VALUES (:id, 'admission.test', 'admission.test@example.com', 'x')")
+                    .setParameter("id", USER_ID).executeUpdate();
+            entityManager.createNativeQuery("INSERT IGNORE INTO hotels (id, name, city, address, capacity) VALUES (:id, 'Admission Hotel', 'Admission City', '1 Admission St', :capacity)")
+                    .setParameter("id", HOTEL_ID)
+                    .setParameter("capacity", CAPACITY)
+                    .executeUpdate();
+        });
+    }
+
+    @Test
+    public void testSameNightBookersNeverDeadlock() throws Exception {
+        // Every booker wants the same three nights, none of which has a counter row yet
+        Map<String, Object> booking = booking("2031-03-10T14:00:00", "2031-03-13T11:00:00");
+
+        List<Integer> statuses = race(i -> post("/api/v1/bookings", booking));
+
+        int created = 0;
+        for (int code : statuses) {
+            assertTrue(code == 201 || code == 409, "Booker got " + code);
+            created += code == 201 ? 1 : 0;
+        }
+        assertEquals(CAPACITY, created);
+        assertEveryNightBooked(3, CAPACITY);
+    }
+
+    @Test
+    public void testBatchAndSingleBookersShareUnseededNights() throws Exception {
+        // Batches lock the hotel row, single bookers do not; both seed the same unseeded nights
+        Map<String, Object> booking = booking("2031-04-10T14:00:00", "2031-04-12T11:00:00");
+
+        List<Integer> statuses = race(i -> i % 3 == 0
+                ? post("/api/v1/bookings/batch", List.of(booking))
+                : post("/api/v1/bookings", booking));
+
+        int created = 0;
+        for (int code : statuses) {
+            // A one-item all-or-nothing batch answers with its item's status
+            assertTrue(code == 201 || code == 409, "Booker got " + code);
+            created += code == 201 ? 1 : 0;
+        }
+        assertEquals(CAPACITY, created);
+        assertEveryNightBooked(2, CAPACITY);
+    }
+
+    private Map<String, Object> booking(String checkin, String checkout) {
+        return Map.of(
+                "hotelId", HOTEL_ID,
+                "userId", USER_ID,
+                "checkinDate", checkin,
+                "checkoutDate", checkout,
+                "numberOfGuests", 1,
+                "totalPrice", 100);
+    }
+
+    private int post(String path, Object body) {
+        return given()
+                .contentType(ContentType.JSON)
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .body(body)
+                .when()
+                .post(path)
+                .then()
+                .extract()
+                .statusCode();
+    }
+
+    // Starts every booker at once and collects the status codes
+    private List<Integer> race(IntFunction<Integer> booker) throws Exception {
+        ExecutorService bookers = Executors.newFixedThreadPool(BOOKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < BOOKERS; i++) {
+                int bookerIndex = i;
+                futures.add(bookers.submit(() -> {
+                    start.await();
+                    return booker.apply(bookerIndex);
+                }));
+            }
+            start.countDown();
+
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                statuses.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return statuses;
+        } finally {
+            bookers.shutdownNow();
+        }
+    }
+
+    private void assertEveryNightBooked(int nights, int guests) {
+        List<?> booked = QuarkusTransaction.requiringNew().call(() -> entityManager
+                .createNativeQuery("SELECT booked FROM hotel_night_inventory WHERE hotel_id = :id ORDER BY night")
+                .setParameter("id", HOTEL_ID)
+                .getResultList());
+        assertEquals(nights, booked.size());
+        for (Object nightBooked : booked) {
+            assertEquals(guests, ((Number) nightBooked).intValue());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.IdempotentResponse;
+import com.hrs.api_gateway.service.HotelCache.CachedHotel;
+import com.hrs.api_gateway.utils.CacheCodec;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry points for the JMH benchmarks module into package-private service internals, so the benchmarks can live in
+ * their own package. Test code, it only ships in the gateway's test-jar.
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * The binary codec HotelCache stores hotels in Redis with.
+     */
+    public static CacheCodec<CachedHotel> hotelCodec(ObjectMapper objectMapper) {
+        return new CachedHotelCodec(objectMapper);
+    }
+
+    /**
+     * The binary codec IdempotencyStore stores responses in Redis with.
+     */
+    public static CacheCodec<IdempotentResponse> responseCodec(ObjectMapper objectMapper) {
+        return new IdempotentResponseCodec(objectMapper);
+    }
+
+    /**
+     * The embedded search index over a fixed catalog.
+     */
+    public static final class TextIndex {
+        private final HotelTextIndex index;
+
+        public TextIndex(Collection<HotelDTO> catalog) {
+            index = HotelTextIndex.build(catalog);
+        }
+
+        /**
+         * First page of a keyword search, best match first.
+         */
+        public List<?> search(List<String> keywords, int limit) {
+            return index.search(keywords, limit, Float.POSITIVE_INFINITY, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Tokens one instance leased from a shared rate limit bucket, the per-request hot path of the rate limiter.
+     */
+    public static final class LeasedTokens {
+        private final DistributedTokenBucket.LeasedTokens leased = new DistributedTokenBucket.LeasedTokens();
+
+        public DistributedTokenBucket.LocalDecision tryTake(long nowNanos) {
+            return leased.tryTake(nowNanos);
+        }
+
+        public void add(int granted, long nowNanos, long ttlNanos) {
+            leased.add(granted, nowNanos, ttlNanos);
+        }
+    }
+
+    /**
+     * The in-memory bucket the rate limiter falls back to while Redis is down.
+     */
+    public static final class LocalTokenBucket {
+        private final DistributedTokenBucket.TokenBucket bucket;
+
+        public LocalTokenBucket(int capacity, double refillPerSecond) {
+            bucket = new DistributedTokenBucket.TokenBucket(capacity, refillPerSecond);
+        }
+
+        public boolean tryTake() {
+            return bucket.tryTake();
+        }
+    }
+}
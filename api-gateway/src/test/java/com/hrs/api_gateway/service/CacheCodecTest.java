@@ -0,0 +1,93 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.IdempotentResponse;
+import com.hrs.api_gateway.model.SearchPage;
+import com.hrs.api_gateway.service.HotelCache.CachedHotel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CachedHotelCodec hotelCodec = new CachedHotelCodec(objectMapper);
+    private final IdempotentResponseCodec responseCodec = new IdempotentResponseCodec(objectMapper);
+
+    @Test
+    public void testHotelRoundTrip() {
+        CachedHotel full = new CachedHotel(new HotelDTO(1042L, "Caf\u00E9 Z\u00FCrich \uD83D\uDE00", "Z\u00FCrich", "Bahnhofstrasse 1", 120),
+                1_760_000_000_000L, 7);
+        CachedHotel sparse = new CachedHotel(new HotelDTO(null, null, "", null, null), 0, 0);
+        CachedHotel negative = new CachedHotel(new HotelDTO(-1L, "a", "b", "c", -5), 1, 1);
+        for (CachedHotel hotel : new CachedHotel[]{full, sparse, negative}) {
+            assertEquals(hotel, hotelCodec.decode(hotelCodec.encode(hotel)));
+        }
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJson() throws Exception {
+        CachedHotel hotel = new CachedHotel(new HotelDTO(1042L, "Grand Hotel", "Paris", "12 Rue de Rivoli", 120), 1_760_000_000_000L, 7);
+        assertTrue(hotelCodec.encode(hotel).length < objectMapper.writeValueAsBytes(hotel).length / 2);
+    }
+
+    @Test
+    public void testReadsJsonWrittenBeforeTheBinaryFormat() throws Exception {
+        CachedHotel hotel = new CachedHotel(new HotelDTO(7L, "Grand Hotel", "Paris", "12 Rue de Rivoli", 80), 123L, 4);
+        assertEquals(hotel, hotelCodec.decode(objectMapper.writeValueAsBytes(hotel)));
+
+        IdempotentResponse response = new IdempotentResponse(201, "application/json", "{\"id\":1}");
+        assertEquals(response, responseCodec.decode(objectMapper.writeValueAsBytes(response)));
+    }
+
+    @Test
+    public void testLargeBodiesAreCompressed() {
+        String body = "{\"hotels\":[" + "{\"id\":1,\"name\":\"Grand Hotel\",\"city\":\"Paris\"},".repeat(200) + "]}";
+        IdempotentResponse response = new IdempotentResponse(200, "application/json", body);
+        byte[] encoded = responseCodec.encode(response);
+        assertTrue(encoded.length < body.length() / 4);
+        assertEquals(response, responseCodec.decode(encoded));
+
+        IdempotentResponse empty = new IdempotentResponse(204, null, null);
+        assertEquals(empty, responseCodec.decode(responseCodec.encode(empty)));
+    }
+
+    @Test
+    public void testSearchPageRoundTrip() {
+        SearchPageCodec pageCodec = new SearchPageCodec();
+        List<HotelDTO> hotels = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            hotels.add(new HotelDTO(id, "Grand Hotel " + id, "Paris", id + " Rue de Rivoli", 80));
+        }
+        for (SearchPage<HotelDTO> page : List.of(new SearchPage<>(hotels, "WzcuMjUsNTBd"), new SearchPage<HotelDTO>(List.of(), null))) {
+            assertEquals(page, pageCodec.decode(pageCodec.encode(page)));
+        }
+    }
+
+    @Test
+    public void testSearchKeywordsAreNormalized() {
+        assertEquals(List.of("grand", "paris"), HotelSearchCache.normalizeKeywords("  Paris grand PARIS\tGrand "));
+        assertEquals(List.of(), HotelSearchCache.normalizeKeywords(" "));
+    }
+
+    @Test
+    public void testRejectsUnknownVersionsAndCorruptValues() {
+        byte[] encoded = hotelCodec.encode(new CachedHotel(new HotelDTO(1L, "a", "b", "c", 1), 1, 1));
+        byte[] newer = encoded.clone();
+        newer[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> hotelCodec.decode(newer));
+        assertThrows(IllegalArgumentException.class, () -> hotelCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> hotelCodec.decode(new byte[0]));
+
+        String body = "x".repeat(4096);
+        byte[] compressed = responseCodec.encode(new IdempotentResponse(200, "text/plain", body));
+        assertThrows(IllegalArgumentException.class, () -> responseCodec.decode(Arrays.copyOf(compressed, compressed.length - 2)));
+    }
+}
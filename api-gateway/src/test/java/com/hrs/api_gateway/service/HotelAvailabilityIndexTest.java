@@ -0,0 +1,116 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.repository.HotelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HotelAvailabilityIndexTest {
+
+    private static final LocalDateTime CHECKIN = LocalDateTime.of(2024, 7, 1, 14, 0);
+    private static final LocalDateTime CHECKOUT = LocalDateTime.of(2024, 7, 4, 11, 0);
+    private static final List<Long> FROM_DATABASE = List.of(-1L);
+
+    private final List<String> databaseQueries = new ArrayList<>();
+    private final Map<Long, Integer> occupancy = new HashMap<>(); // Busiest night of the stay per hotel, in Redis
+    private HotelAvailabilityIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new HotelAvailabilityIndex();
+        index.materializedOccupancy = new MaterializedOccupancy() {
+            @Override
+            public int[] maxOccupancy(List<Long> hotelIds, LocalDate fromNight, LocalDate toNight) {
+                return hotelIds.stream().mapToInt(id -> occupancy.getOrDefault(id, 0)).toArray();
+            }
+        };
+        index.hotelRepository = new HotelRepository() {
+            @Override
+            public Stream<Object[]> streamDirectory() {
+                return Stream.of(
+                        new Object[]{4L, "Paris", 2},
+                        new Object[]{1L, " paris ", 10},
+                        new Object[]{7L, "PARIS", 5},
+                        new Object[]{3L, "Lyon", 10},
+                        new Object[]{9L, "Paris", 8});
+            }
+
+            @Override
+            public List<Long> findAvailableIds(String cityKey, LocalDate fromNight, LocalDate toNight, int guests, long afterId, int limit) {
+                databaseQueries.add(cityKey + " " + fromNight + ".." + toNight + " " + guests + " " + afterId + " " + limit);
+                return FROM_DATABASE;
+            }
+        };
+    }
+
+    @Test
+    public void testDatabaseIsTheDefaultSource() {
+        index.rebuild();
+
+        assertEquals(FROM_DATABASE, index.findAvailable(" PARIS", CHECKIN, CHECKOUT, 2, 0, 20));
+        // Same city key as the directory, the SQL compares LOWER(TRIM(h.city))
+        assertEquals(List.of("paris 2024-07-01..2024-07-04 2 0 20"), databaseQueries);
+    }
+
+    @Test
+    public void testMaterializedSourceMatchesCityTrimmedAndCaseInsensitive() {
+        index.occupancySource = "materialized";
+        index.rebuild();
+        occupancy.put(9L, 7);
+        occupancy.put(7L, 3);
+
+        // 4 is too small, 9 has one room left, 7 has two left on the busiest night of the stay
+        assertEquals(List.of(1L), index.findAvailable("Paris ", CHECKIN, CHECKOUT, 3, 0, 20));
+        assertEquals(List.of(1L, 4L, 7L), index.findAvailable("paris", CHECKIN, CHECKOUT, 2, 0, 20));
+        assertEquals(List.of(3L), index.findAvailable("LYON", CHECKIN, CHECKOUT, 3, 0, 20));
+        assertEquals(List.of(), index.findAvailable("Berlin", CHECKIN, CHECKOUT, 1, 0, 20));
+        assertEquals(List.of(), databaseQueries);
+    }
+
+    @Test
+    public void testMaterializedSourcePagesByCursor() {
+        index.occupancySource = "materialized";
+        index.rebuild();
+
+        assertEquals(List.of(1L, 3L), index.findAvailable(null, CHECKIN, CHECKOUT, 2, 0, 2));
+        assertEquals(List.of(4L, 7L), index.findAvailable(null, CHECKIN, CHECKOUT, 2, 3, 2));
+        assertEquals(List.of(9L), index.findAvailable(null, CHECKIN, CHECKOUT, 2, 7, 2));
+        assertEquals(List.of(), index.findAvailable(null, CHECKIN, CHECKOUT, 2, 9, 2));
+        // Cursor between ids and within a city
+        assertEquals(List.of(7L, 9L), index.findAvailable("paris", CHECKIN, CHECKOUT, 5, 2, 5));
+    }
+
+    @Test
+    public void testFallsBackToDatabaseUntilBuilt() {
+        index.occupancySource = "materialized";
+
+        assertEquals(FROM_DATABASE, index.findAvailable("Paris", CHECKIN, CHECKOUT, 1, 0, 20));
+        index.rebuild();
+        assertEquals(List.of(1L, 4L, 7L, 9L), index.findAvailable("Paris", CHECKIN, CHECKOUT, 1, 0, 20));
+        assertEquals(1, databaseQueries.size());
+    }
+
+    @Test
+    public void testMaterializedSourceFallsBackToDatabaseWhenRedisFails() {
+        index.occupancySource = "materialized";
+        index.materializedOccupancy = new MaterializedOccupancy() {
+            @Override
+            public int[] maxOccupancy(List<Long> hotelIds, LocalDate fromNight, LocalDate toNight) {
+                throw new IllegalStateException("Redis down");
+            }
+        };
+        index.rebuild();
+
+        assertEquals(FROM_DATABASE, index.findAvailable("Paris", CHECKIN, CHECKOUT, 1, 0, 20));
+        assertEquals(List.of("paris 2024-07-01..2024-07-04 1 0 20"), databaseQueries);
+    }
+}
@@ -0,0 +1,285 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.exception.CacheUnavailableException;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.utils.CacheKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import io.vertx.redis.client.impl.types.BulkType;
+import io.vertx.redis.client.impl.types.MultiType;
+import io.vertx.redis.client.impl.types.NumberType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotelCacheTest {
+
+    // Values of the in-memory Redis, byte[] for hotels and strings for leases and versions
+    private final Map<String, Object> store = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile boolean redisDown;
+    private HotelCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new HotelCache() {
+            @Override
+            <T> T joiningTransaction(Supplier<T> work) {
+                return work.get();
+            }
+        };
+        cache.objectMapper = new ObjectMapper();
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.l1MaxSize = 100;
+        cache.l1Ttl = Duration.ofMinutes(1);
+        cache.leaseDuration = Duration.ofMillis(200);
+        cache.earlyRefreshBeta = 0;
+        cache.degradedMaxLoads = 1;
+        cache.redisPipeline = new FakeRedis();
+        cache.init();
+    }
+
+    @Test
+    public void testRedisDownCoalescesLoadsPerHotel() throws Exception {
+        redisDown = true;
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HotelDTO>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(executor.submit(() -> cache.getOrLoad(1L, id -> {
+                    loading.countDown();
+                    await(release);
+                    return hotel(id);
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50); // Let the other readers join the load
+            release.countDown();
+            for (Future<HotelDTO> read : reads) {
+                assertEquals(1L, read.get(5, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testRedisDownCapsConcurrentLoads() throws Exception {
+        redisDown = true;
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<HotelDTO> first = executor.submit(() -> cache.getOrLoad(1L, id -> {
+                loading.countDown();
+                await(release);
+                return hotel(id);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // The only permit is taken, a second hotel waits one lease duration and gives up rather than query MySQL
+            assertThrows(CacheUnavailableException.class, () -> cache.getOrLoad(2L, this::hotel));
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2L, cache.getOrLoad(2L, this::hotel).getId());
+    }
+
+    @Test
+    public void testLoadInvalidatedMidwayIsNotCached() {
+        cache.getOrLoad(1L, id -> {
+            // The row was read before an update committed elsewhere, which bumped the version and broadcast
+            store.merge(CacheKey.HOTEL_VERSION.getKey(id), "1", (a, b) -> String.valueOf(Long.parseLong((String) a) + 1));
+            cache.onInvalidation(id.toString());
+            return hotel(id);
+        });
+
+        assertFalse(store.containsKey(CacheKey.HOTEL_BY_ID.getKey(1L)));
+        assertFalse(store.containsKey(CacheKey.HOTEL_LOAD_LEASE.getKey(1L)));
+        cache.getOrLoad(1L, this::hotel); // Neither L1 nor Redis kept the stale copy
+        assertEquals(2, loads.get());
+        assertTrue(store.containsKey(CacheKey.HOTEL_BY_ID.getKey(1L)));
+        cache.getOrLoad(1L, this::hotel);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testLeaseHeldElsewhereWaitsForTheValue() {
+        store.put(CacheKey.HOTEL_LOAD_LEASE.getKey(1L), "other-instance");
+        Function<Long, HotelDTO> loader = this::hotel;
+
+        // The other instance never stores it, so after the lease duration this one loads it
+        assertEquals(1L, cache.getOrLoad(1L, loader).getId());
+        assertEquals(1, loads.get());
+        assertEquals("other-instance", store.get(CacheKey.HOTEL_LOAD_LEASE.getKey(1L)));
+    }
+
+    @Test
+    public void testBatchJoinsSingleLoadsAndLoadsTheRestOnce() throws Exception {
+        List<List<Long>> batches = new ArrayList<>();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<HotelDTO> single = executor.submit(() -> cache.getOrLoad(1L, id -> {
+                loading.countDown();
+                await(release);
+                return hotel(id);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Map<Long, HotelDTO>> batch = executor.submit(() -> cache.getAllOrLoad(List.of(1L, 2L, 3L), ids -> hotels(ids, batches, 3L)));
+            Thread.sleep(50); // Let the batch load 2 and 3 and join the load of 1
+            release.countDown();
+
+            assertEquals(List.of(1L, 2L), batch.get(5, TimeUnit.SECONDS).keySet().stream().sorted().toList());
+            single.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(List.of(List.of(2L, 3L)), batches);
+        assertEquals(2, loads.get());
+        assertFalse(store.containsKey(CacheKey.HOTEL_LOAD_LEASE.getKey(3L))); // Not found, lease released
+    }
+
+    @Test
+    public void testBatchRejectsNullIds() {
+        assertThrows(IllegalArgumentException.class, () -> cache.getAllOrLoad(Arrays.asList(1L, null), ids -> Map.of()));
+    }
+
+    @Test
+    public void testBatchWaitsForHotelsLeasedElsewhere() {
+        List<List<Long>> batches = new ArrayList<>();
+        store.put(CacheKey.HOTEL_LOAD_LEASE.getKey(2L), "other-instance");
+
+        Map<Long, HotelDTO> hotels = cache.getAllOrLoad(List.of(1L, 2L), ids -> hotels(ids, batches));
+        assertEquals(2, hotels.size());
+        // The leased hotel first, the other one after its lease ran out without a value landing
+        assertEquals(List.of(List.of(1L), List.of(2L)), batches);
+        assertTrue(store.containsKey(CacheKey.HOTEL_BY_ID.getKey(1L)));
+        assertTrue(store.containsKey(CacheKey.HOTEL_BY_ID.getKey(2L)));
+
+        cache.getAllOrLoad(List.of(1L, 2L), ids -> hotels(ids, batches));
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void testBatchWithRedisDownLoadsOnce() {
+        redisDown = true;
+        List<List<Long>> batches = new ArrayList<>();
+
+        assertEquals(3, cache.getAllOrLoad(List.of(1L, 2L, 3L), ids -> hotels(ids, batches)).size());
+        assertEquals(List.of(List.of(1L, 2L, 3L)), batches);
+    }
+
+    private Map<Long, HotelDTO> hotels(Collection<Long> ids, List<List<Long>> batches, Long... unknownIds) {
+        batches.add(List.copyOf(ids));
+        Map<Long, HotelDTO> hotels = new HashMap<>();
+        for (Long id : ids) {
+            if (!List.of(unknownIds).contains(id)) {
+                hotels.put(id, hotel(id));
+            }
+        }
+        return hotels;
+    }
+
+    private HotelDTO hotel(Long id) {
+        loads.incrementAndGet();
+        return new HotelDTO(id, "Hotel " + id, "Paris", id + " Main Street", 10);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs the hotel cache scripts in Java, told apart by their key and argument counts
+    private class FakeRedis extends RedisPipeline {
+
+        @Override
+        public Uni<Response> eval(RedisScript script, List<String> keys, List<?> args) {
+            if (redisDown) {
+                return Uni.createFrom().failure(new IllegalStateException("Redis down"));
+            }
+            if (keys.size() == 3 && args.size() == 2) { // Read or lease
+                MultiType reply = MultiType.create(3, false);
+                Object cached = store.get(keys.get(0));
+                reply.add(cached == null ? null : BulkType.create(Buffer.buffer((byte[]) cached), false));
+                boolean leased = cached == null && store.putIfAbsent(keys.get(1), args.get(0)) == null;
+                reply.add(NumberType.create(leased ? 1 : 0));
+                reply.add(BulkType.create(Buffer.buffer((String) store.getOrDefault(keys.get(2), "0")), false));
+                return Uni.createFrom().item(Response.newInstance(reply));
+            }
+            if (keys.size() == 3) { // Store and release
+                boolean stored = store.getOrDefault(keys.get(1), "0").equals(args.get(2));
+                if (stored) {
+                    store.put(keys.get(0), args.get(0));
+                }
+                store.remove(keys.get(2), args.get(3));
+                return Uni.createFrom().item(Response.newInstance(NumberType.create(stored ? 1 : 0)));
+            }
+            store.remove(keys.get(0), args.get(0)); // Release
+            return Uni.createFrom().item(Response.newInstance(NumberType.create(1)));
+        }
+
+        @Override
+        public Uni<List<byte[]>> mget(List<String> keys) {
+            if (redisDown) {
+                return Uni.createFrom().failure(new IllegalStateException("Redis down"));
+            }
+            List<byte[]> values = new ArrayList<>();
+            keys.forEach(key -> values.add((byte[]) store.get(key)));
+            return Uni.createFrom().item(values);
+        }
+
+        @Override
+        public Uni<Response> send(Request request) {
+            if (redisDown) {
+                return Uni.createFrom().failure(new IllegalStateException("Redis down"));
+            }
+            return Uni.createFrom().nullItem(); // Only GETs while waiting for another instance, which never stores
+        }
+
+        @Override
+        public <T> Uni<T> pipelined(Supplier<Uni<T>> commands) {
+            return commands.get();
+        }
+
+        @Override
+        public <T> T await(Uni<T> reply) {
+            return reply.await().indefinitely();
+        }
+    }
+}
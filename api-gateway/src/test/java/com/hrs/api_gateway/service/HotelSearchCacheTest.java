@@ -0,0 +1,122 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.SearchPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import io.vertx.redis.client.impl.types.NumberType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HotelSearchCacheTest {
+
+    private final Map<Command, AtomicInteger> commands = new ConcurrentHashMap<>();
+    private final AtomicInteger searches = new AtomicInteger();
+    private HotelSearchCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new HotelSearchCache();
+        cache.enabled = true;
+        cache.l1MaxSize = 100;
+        cache.l1Ttl = Duration.ofMinutes(1);
+        cache.l2Ttl = Duration.ofMinutes(5);
+        cache.generationTtl = Duration.ofHours(1);
+        cache.indexPollInterval = Duration.ofMillis(1);
+        cache.maxIndexLag = Duration.ZERO;
+        cache.meterRegistry = new SimpleMeterRegistry();
+        cache.redisPipeline = new RedisPipeline() {
+            @Override
+            public Uni<Response> send(Request request) {
+                commands.computeIfAbsent(request.command(), command -> new AtomicInteger()).incrementAndGet();
+                if (Command.GET.equals(request.command())) {
+                    return Uni.createFrom().nullItem(); // No generation yet and every page read is a miss
+                }
+                return Uni.createFrom().item(Response.newInstance(NumberType.create(1)));
+            }
+
+            @Override
+            public <T> Uni<T> pipelined(Supplier<Uni<T>> commands) {
+                return commands.get();
+            }
+
+            @Override
+            public <T> T await(Uni<T> reply) {
+                return reply.await().indefinitely();
+            }
+        };
+        cache.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.onStop(null);
+    }
+
+    @Test
+    public void testGenerationIsReusedWithinItsTtl() {
+        search("paris");
+        search("lyon");
+
+        // One generation read, then one page read per search
+        assertEquals(3, count(Command.GET));
+        assertEquals(2, count(Command.SETEX));
+    }
+
+    @Test
+    public void testGenerationIsReadAgainAfterItsTtl() {
+        cache.generationTtl = Duration.ZERO;
+        search("paris");
+        search("lyon");
+
+        assertEquals(4, count(Command.GET));
+    }
+
+    @Test
+    public void testL1ServesRepeatedSearches() {
+        search("paris");
+        search("paris");
+
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testUnconfirmedIndexingStillExpiresSearchesAfterMaxLag() throws InterruptedException {
+        search("paris");
+        // No database or Elasticsearch here, so the hotel never shows up as indexed
+        cache.awaitIndexed(5L);
+        for (int i = 0; i < 500 && count(Command.PUBLISH) == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, count(Command.INCR));
+        assertEquals(1, count(Command.PUBLISH));
+        search("paris"); // The L1 page was dropped
+        assertEquals(2, searches.get());
+    }
+
+    private void search(String keyword) {
+        cache.getOrSearch(List.of(keyword), 10, null, () -> {
+            searches.incrementAndGet();
+            return Uni.createFrom().item(new SearchPage<>(List.of(new HotelDTO(1L, "Grand", "Paris", "1 Main Street", 10)), null));
+        }).await().indefinitely();
+    }
+
+    private int count(Command command) {
+        AtomicInteger count = commands.get(command);
+        return count == null ? 0 : count.get();
+    }
+}
@@ -0,0 +1,104 @@
+package com.hrs.api_gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.repository.HotelRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HotelSearchIndexTest {
+
+    private final Map<Long, Hotel> table = new TreeMap<>();
+    private HotelSearchIndex index;
+    private boolean databaseDown;
+
+    @BeforeEach
+    public void setUp() {
+        put(1L, "Grand Hotel", "Paris");
+        put(2L, "Small Hotel", "Lyon");
+        index = new HotelSearchIndex();
+        index.objectMapper = new ObjectMapper();
+        index.hotelRepository = new HotelRepository() {
+            @Override
+            public Stream<Object[]> streamCatalog() {
+                return table.values().stream()
+                        .map(hotel -> new Object[]{hotel.getId(), hotel.getName(), hotel.getCity(), hotel.getAddress(), hotel.getCapacity()});
+            }
+
+            @Override
+            public List<Hotel> findByIds(Collection<Long> ids) {
+                if (databaseDown) {
+                    throw new IllegalStateException("MySQL down");
+                }
+                return ids.stream().map(table::get).filter(hotel -> hotel != null).toList();
+            }
+        };
+    }
+
+    @Test
+    public void testChangesBeforeTheFirstBuildAreKept() {
+        index.onHotelChanged("2");
+        index.refresh();
+        assertFalse(index.isReady());
+
+        index.rebuild();
+        put(2L, "Small Hotel", "Paris"); // Committed after the catalog was read
+        index.refresh();
+        assertEquals(List.of(1L, 2L), ids("paris"));
+    }
+
+    @Test
+    public void testRefreshAppliesQueuedChangesInOneBatch() {
+        index.rebuild();
+        put(3L, "Paris Inn", "Nice");
+        table.remove(1L);
+        index.onHotelChanged("3");
+        index.onHotelChanged("1");
+        index.onHotelChanged("not-an-id");
+        assertEquals(List.of(1L), ids("paris")); // Not searchable before the refresh
+
+        index.refresh();
+        assertEquals(List.of(3L), ids("paris"));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsTheQueue() {
+        index.rebuild();
+        put(1L, "Grand Hotel", "Berlin");
+        index.onHotelChanged("1");
+
+        databaseDown = true;
+        assertThrows(IllegalStateException.class, index::refresh);
+        assertEquals(List.of(1L), ids("paris"));
+
+        databaseDown = false;
+        index.refresh();
+        assertEquals(List.of(), ids("paris"));
+        assertEquals(List.of(1L), ids("berlin"));
+    }
+
+    private List<Long> ids(String keyword) {
+        return index.search(List.of(keyword), 10, null).getItems().stream().map(HotelDTO::getId).toList();
+    }
+
+    private void put(Long id, String name, String city) {
+        Hotel hotel = new Hotel();
+        hotel.setId(id);
+        hotel.setName(name);
+        hotel.setCity(city);
+        hotel.setAddress(id + " Main Street");
+        hotel.setCapacity(10);
+        table.put(id, hotel);
+    }
+}
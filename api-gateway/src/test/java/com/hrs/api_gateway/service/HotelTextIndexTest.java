@@ -0,0 +1,91 @@
+package com.hrs.api_gateway.service;
+
+import com.hrs.api_gateway.model.HotelDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotelTextIndexTest {
+
+    @Test
+    public void testTokenize() {
+        assertEquals(List.of("12", "rue", "de", "rivoli"), HotelTextIndex.tokenize("12, Rue-de Rivoli"));
+        assertEquals(List.of("caf\u00E9", "z\u00FCrich"), HotelTextIndex.tokenize("Caf\u00E9 Z\u00DCRICH!"));
+        assertEquals(List.of(), HotelTextIndex.tokenize(" - "));
+        assertEquals(List.of(), HotelTextIndex.tokenize(null));
+    }
+
+    @Test
+    public void testMatchesInMoreFieldsRankHigher() {
+        HotelTextIndex index = HotelTextIndex.build(List.of(
+                new HotelDTO(1L, "Seaside Inn", "Nice", "1 Paris Street", 10),
+                new HotelDTO(2L, "Grand Paris", "Paris", "2 Main Street", 10),
+                new HotelDTO(3L, "Hotel Berlin", "Berlin", "3 Unter den Linden", 10),
+                new HotelDTO(4L, "Paris Lodge", "Lyon", "4 Rue Royale", 10)));
+
+        List<Long> ids = ids(index.search(List.of("paris"), 10, Float.POSITIVE_INFINITY, Long.MIN_VALUE));
+        assertEquals(3, ids.size());
+        assertEquals(2L, ids.get(0)); // Name and city
+        assertTrue(ids.containsAll(List.of(1L, 4L)));
+        assertEquals(List.of(), index.search(List.of("madrid"), 10, Float.POSITIVE_INFINITY, Long.MIN_VALUE));
+    }
+
+    @Test
+    public void testPagingVisitsEveryMatchOnce() {
+        List<HotelDTO> catalog = new ArrayList<>();
+        for (long id = 1; id <= 95; id++) {
+            // Many equal scores, the id breaks the ties
+            catalog.add(new HotelDTO(id, "Hotel " + (id % 3 == 0 ? "Grand" : "Small"), id % 2 == 0 ? "Paris" : "Lyon", id + " Main Street", 10));
+        }
+        HotelTextIndex index = HotelTextIndex.build(catalog);
+
+        List<HotelTextIndex.Hit> all = index.search(List.of("grand", "paris"), 100, Float.POSITIVE_INFINITY, Long.MIN_VALUE);
+        Set<Long> seen = new HashSet<>();
+        List<Long> paged = new ArrayList<>();
+        float afterScore = Float.POSITIVE_INFINITY;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<HotelTextIndex.Hit> page = index.search(List.of("grand", "paris"), 7, afterScore, afterId);
+            for (HotelTextIndex.Hit hit : page) {
+                assertTrue(seen.add(hit.hotel().getId()));
+                paged.add(hit.hotel().getId());
+            }
+            if (page.size() < 7) {
+                break;
+            }
+            afterScore = page.get(page.size() - 1).score();
+            afterId = page.get(page.size() - 1).hotel().getId();
+        }
+        assertEquals(ids(all), paged);
+    }
+
+    @Test
+    public void testUpdatesReplaceAndRemoveHotels() {
+        HotelTextIndex index = HotelTextIndex.build(List.of(
+                new HotelDTO(1L, "Grand Hotel", "Paris", "1 Main Street", 10),
+                new HotelDTO(2L, "Small Hotel", "Lyon", "2 Main Street", 10)));
+
+        HotelTextIndex renamed = index.with(Map.of(2L, new HotelDTO(2L, "Small Hotel", "Paris", "2 Main Street", 10)));
+        assertEquals(List.of(1L), ids(index.search(List.of("paris"), 10, Float.POSITIVE_INFINITY, Long.MIN_VALUE)));
+        assertEquals(2, renamed.search(List.of("paris"), 10, Float.POSITIVE_INFINITY, Long.MIN_VALUE).size());
+
+        Map<Long, HotelDTO> batch = new HashMap<>();
+        batch.put(1L, null);
+        batch.put(3L, new HotelDTO(3L, "Paris Inn", "Nice", "3 Main Street", 10));
+        HotelTextIndex changed = renamed.with(batch);
+        assertEquals(2, changed.size());
+        assertEquals(List.of(2L, 3L), ids(changed.search(List.of("paris"), 10, Float.POSITIVE_INFINITY, Long.MIN_VALUE)));
+    }
+
+    private static List<Long> ids(List<HotelTextIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.hotel().getId()).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.hrs.api_gateway.utils;
+
+import com.hrs.api_gateway.model.HotelDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SafeTextTest {
+
+    @Test
+    public void testScanAgreesWithJsoup() {
+        List<String> inputs = List.of("Grand Hotel de Paris", "12 Rue de Rivoli", "Caf\u00E9 Z\u00FCrich", "quote \" '", "",
+                "Hotel & Spa", "Tom &amp; Jerry", "x > y", "<b>bold</b>", "<script>alert(1)</script>",
+                "<img src=x onerror=alert(1)>", "a  b", " leading", "trailing ", "a\tb", "a\nb", "a\u00A0b", "a\u0000b",
+                "emoji \uD83D\uDE00", "line\u2028separator");
+        for (String input : inputs) {
+            assertEquals(SafeText.isSafeSanitized(input), SafeText.isSafe(input), input);
+        }
+    }
+
+    @Test
+    public void testScanAgreesWithJsoupOnRandomText() {
+        Random random = new Random(42);
+        char[] alphabet = "ab <>&;/=\"' \t\n\u00A0\u0000\u007F\u00E9#x1".toCharArray();
+        for (int i = 0; i < 20_000; i++) {
+            char[] text = new char[random.nextInt(12)];
+            for (int j = 0; j < text.length; j++) {
+                text[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String input = new String(text);
+            assertEquals(SafeText.isSafeSanitized(input), SafeText.isSafe(input), input);
+        }
+    }
+
+    @Test
+    public void testPlainTextSkipsSanitizing() {
+        assertFalse(SafeText.needsSanitizing("Grand Hotel de Paris"));
+        assertTrue(SafeText.needsSanitizing("Grand <Hotel>"));
+    }
+
+    @Test
+    public void testValidatorsByType() {
+        assertTrue(InputValidators.isValid(new HotelDTO(null, "Grand Hotel", "Paris", "12 Rue de Rivoli", 100)));
+        assertFalse(InputValidators.isValid(new HotelDTO(null, "<script>alert(1)</script>", "Paris", "12 Rue de Rivoli", 100)));
+        assertThrows(IllegalStateException.class, () -> InputValidators.isValid("unregistered"));
+    }
+}
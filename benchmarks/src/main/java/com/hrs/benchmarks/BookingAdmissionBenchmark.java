@@ -0,0 +1,119 @@
+package com.hrs.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Booking TPS for 1, 8 and 64 concurrent bookers hitting one hotel through a running gateway.
+ * Run once per QUARKUS_BOOKING_ADMISSION_MODE (optimistic, locking) to compare admission paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class BookingAdmissionBenchmark {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    @Param("http://localhost:8080")
+    String baseUrl;
+
+    @Param("1")
+    long userId;
+
+    @Param("100000")
+    int hotelCapacity;
+
+    // Distinct nights the bookers spread over, 1 models a flash sale where everyone wants the same night
+    @Param({"1", "30"})
+    int nightSpread;
+
+    private HttpClient client;
+    private long hotelId;
+    private LocalDate firstNight;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long created;
+        public long conflicts;
+        public long errors;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            created = 0;
+            conflicts = 0;
+            errors = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        firstNight = LocalDate.now().plusDays(ThreadLocalRandom.current().nextInt(30, 3000));
+
+        // A fresh hotel per trial so earlier runs do not eat into its capacity
+        String hotelJson = String.format("{\"name\":\"Benchmark Hotel\",\"city\":\"Benchmark\",\"address\":\"1 Load St\",\"capacity\":%d}", hotelCapacity);
+        HttpResponse<String> response = client.send(post("/api/v1/hotels", hotelJson), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID_PATTERN.matcher(response.body());
+        if (response.statusCode() != 201 || !matcher.find()) {
+            throw new IllegalStateException("Could not create benchmark hotel: " + response.statusCode() + " " + response.body());
+        }
+        hotelId = Long.parseLong(matcher.group(1));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int oneBooker(Outcomes outcomes) throws IOException, InterruptedException {
+        return book(outcomes);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int eightBookers(Outcomes outcomes) throws IOException, InterruptedException {
+        return book(outcomes);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int sixtyFourBookers(Outcomes outcomes) throws IOException, InterruptedException {
+        return book(outcomes);
+    }
+
+    private int book(Outcomes outcomes) throws IOException, InterruptedException {
+        LocalDate checkin = firstNight.plusDays(ThreadLocalRandom.current().nextInt(nightSpread));
+        String bookingJson = String.format(
+                "{\"hotelId\":%d,\"userId\":%d,\"checkinDate\":\"%sT14:00:00\",\"checkoutDate\":\"%sT11:00:00\",\"numberOfGuests\":1,\"totalPrice\":100}",
+                hotelId, userId, checkin, checkin.plusDays(1));
+        int status = client.send(post("/api/v1/bookings", bookingJson), HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 201) {
+            outcomes.created++;
+        } else if (status == 409) {
+            outcomes.conflicts++;
+        } else {
+            outcomes.errors++;
+        }
+        return status;
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.hrs.benchmarks;
+
+import com.hrs.api_gateway.entity.Booking;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fallback capacity check straight against MySQL with 1M seeded bookings: the SUM over idx_bookings_capacity
+ * against the same SUM forced off the index, and against the old approach of loading every overlapping booking
+ * and adding up the guests client side. Bookings are seeded once into hotels of the "CapacityBenchmark" city and
+ * reused by later runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class BookingCapacityQueryBenchmark {
+
+    private static final String SEED_CITY = "CapacityBenchmark";
+    private static final String OVERLAP = "WHERE hotel_id = ? AND booking_status = 'PENDING' AND check_in_date < ? AND check_out_date > ?";
+    private static final LocalDateTime FIRST_CHECKIN = LocalDateTime.of(2031, 1, 1, 14, 0);
+
+    @Param("jdbc:mysql://localhost:3306/hrs_booking?rewriteBatchedStatements=true")
+    String jdbcUrl;
+
+    @Param("hrs")
+    String username;
+
+    @Param("hrs.com")
+    String password;
+
+    @Param("1")
+    long userId;
+
+    @Param("1000000")
+    int bookings;
+
+    @Param("100")
+    int hotels;
+
+    private final List<Long> hotelIds = new ArrayList<>();
+
+    @State(Scope.Thread)
+    public static class Statements {
+        Connection connection;
+        PreparedStatement sum;
+        PreparedStatement sumIgnoringIndex;
+        PreparedStatement list;
+
+        @Setup(Level.Trial)
+        public void open(BookingCapacityQueryBenchmark benchmark) throws SQLException {
+            connection = DriverManager.getConnection(benchmark.jdbcUrl, benchmark.username, benchmark.password);
+            sum = connection.prepareStatement("SELECT COALESCE(SUM(number_of_guests), 0) FROM bookings " + OVERLAP);
+            // The plan before the index: only the hotel_id foreign key index to narrow the scan
+            sumIgnoringIndex = connection.prepareStatement("SELECT COALESCE(SUM(number_of_guests), 0) FROM bookings IGNORE INDEX (idx_bookings_capacity) " + OVERLAP);
+            // What the list() + stream() fallback sent: whole rows, summed in Java
+            list = connection.prepareStatement("SELECT id, hotel_id, user_id, check_in_date, check_out_date, number_of_guests, total_price, booking_status FROM bookings " + OVERLAP);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password)) {
+            try (PreparedStatement existing = connection.prepareStatement("SELECT id FROM hotels WHERE city = ? ORDER BY id")) {
+                existing.setString(1, SEED_CITY);
+                try (ResultSet rows = existing.executeQuery()) {
+                    while (rows.next()) {
+                        hotelIds.add(rows.getLong(1));
+                    }
+                }
+            }
+            if (!hotelIds.isEmpty()) {
+                return; // Seeded by an earlier run
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO hotels (name, city, address, capacity) VALUES ('Capacity Benchmark Hotel', ?, '1 Load St', 1000000)", Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < hotels; i++) {
+                    insert.setString(1, SEED_CITY);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        hotelIds.add(keys.getLong(1));
+                    }
+                }
+            }
+            long firstId = reserveBookingIds(connection, bookings);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO bookings (id, hotel_id, user_id, check_in_date, check_out_date, number_of_guests, total_price, booking_status) VALUES (?, ?, ?, ?, ?, ?, 100, ?)")) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < bookings; i++) {
+                    LocalDateTime checkin = FIRST_CHECKIN.plusDays(random.nextInt(730));
+                    insert.setLong(1, firstId + i);
+                    insert.setLong(2, hotelIds.get(i % hotelIds.size()));
+                    insert.setLong(3, userId);
+                    insert.setTimestamp(4, Timestamp.valueOf(checkin));
+                    insert.setTimestamp(5, Timestamp.valueOf(checkin.plusDays(1 + random.nextInt(7)).withHour(11)));
+                    insert.setInt(6, 1 + random.nextInt(4));
+                    insert.setString(7, random.nextInt(5) == 0 ? "CANCELLED" : "PENDING");
+                    insert.addBatch();
+                    if ((i + 1) % 5000 == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            try (Statement analyze = connection.createStatement()) {
+                analyze.execute("ANALYZE TABLE bookings");
+            }
+        }
+    }
+
+    // Takes ids from booking_id_seq like the gateway does, the value read is the top of a Booking.ID_ALLOCATION_SIZE block
+    private static long reserveBookingIds(Connection connection, int count) throws SQLException {
+        try (Statement update = connection.createStatement()) {
+            update.executeUpdate("UPDATE booking_id_seq SET next_val = LAST_INSERT_ID(next_val + " + count + ")");
+            try (ResultSet key = update.executeQuery("SELECT LAST_INSERT_ID()")) {
+                key.next();
+                return key.getLong(1) - count - Booking.ID_ALLOCATION_SIZE + 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public int sumOverCoveringIndex(Statements statements) throws SQLException {
+        return sum(statements.sum);
+    }
+
+    @Benchmark
+    public int sumWithoutCoveringIndex(Statements statements) throws SQLException {
+        return sum(statements.sumIgnoringIndex);
+    }
+
+    @Benchmark
+    public int listAndSumInJava(Statements statements) throws SQLException {
+        bindStay(statements.list);
+        int guests = 0;
+        try (ResultSet rows = statements.list.executeQuery()) {
+            while (rows.next()) {
+                guests += rows.getInt("number_of_guests");
+            }
+        }
+        return guests;
+    }
+
+    private int sum(PreparedStatement query) throws SQLException {
+        bindStay(query);
+        try (ResultSet rows = query.executeQuery()) {
+            rows.next();
+            return rows.getInt(1);
+        }
+    }
+
+    // A random week-long stay in a random seeded hotel
+    private void bindStay(PreparedStatement query) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime checkin = FIRST_CHECKIN.plusDays(random.nextInt(730));
+        query.setLong(1, hotelIds.get(random.nextInt(hotelIds.size())));
+        query.setTimestamp(2, Timestamp.valueOf(checkin.plusDays(7)));
+        query.setTimestamp(3, Timestamp.valueOf(checkin));
+    }
+}
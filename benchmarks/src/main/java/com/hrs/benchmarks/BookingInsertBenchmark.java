@@ -0,0 +1,112 @@
+package com.hrs.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Booking inserts per second through a running gateway, one booking per POST /api/v1/bookings (batchSize=1)
+ * or batchSize bookings per POST /api/v1/bookings/batch. The inserted counter is the number to compare;
+ * run it against builds before and after a persistence change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(8)
+public class BookingInsertBenchmark {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    @Param("http://localhost:8080")
+    String baseUrl;
+
+    @Param("1")
+    long userId;
+
+    @Param({"1", "10", "50"})
+    int batchSize;
+
+    private HttpClient client;
+    private long hotelId;
+    private LocalDate firstNight;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Inserts {
+        public long inserted;
+        public long errors;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inserted = 0;
+            errors = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        firstNight = LocalDate.now().plusDays(ThreadLocalRandom.current().nextInt(30, 3000));
+
+        // Capacity is never the limit here, only the write path is measured
+        String hotelJson = "{\"name\":\"Insert Benchmark Hotel\",\"city\":\"Benchmark\",\"address\":\"1 Load St\",\"capacity\":100000000}";
+        HttpResponse<String> response = client.send(post("/api/v1/hotels", hotelJson), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID_PATTERN.matcher(response.body());
+        if (response.statusCode() != 201 || !matcher.find()) {
+            throw new IllegalStateException("Could not create benchmark hotel: " + response.statusCode() + " " + response.body());
+        }
+        hotelId = Long.parseLong(matcher.group(1));
+    }
+
+    @Benchmark
+    public int insert(Inserts inserts) throws IOException, InterruptedException {
+        if (batchSize == 1) {
+            int status = client.send(post("/api/v1/bookings", booking()), HttpResponse.BodyHandlers.discarding()).statusCode();
+            count(inserts, status, 1);
+            return status;
+        }
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < batchSize; i++) {
+            batch.append(i == 0 ? "" : ",").append(booking());
+        }
+        int status = client.send(post("/api/v1/bookings/batch?mode=all-or-nothing", batch.append(']').toString()), HttpResponse.BodyHandlers.discarding()).statusCode();
+        count(inserts, status, batchSize);
+        return status;
+    }
+
+    private void count(Inserts inserts, int status, int bookings) {
+        if (status == 201) {
+            inserts.inserted += bookings;
+        } else {
+            inserts.errors++;
+        }
+    }
+
+    private String booking() {
+        LocalDate checkin = firstNight.plusDays(ThreadLocalRandom.current().nextInt(365));
+        return String.format(
+                "{\"hotelId\":%d,\"userId\":%d,\"checkinDate\":\"%sT14:00:00\",\"checkoutDate\":\"%sT11:00:00\",\"numberOfGuests\":1,\"totalPrice\":100}",
+                hotelId, userId, checkin, checkin.plusDays(1));
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
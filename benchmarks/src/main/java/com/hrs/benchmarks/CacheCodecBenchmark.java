@@ -0,0 +1,91 @@
+package com.hrs.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.model.IdempotentResponse;
+import com.hrs.api_gateway.service.BenchmarkSupport;
+import com.hrs.api_gateway.service.HotelCache.CachedHotel;
+import com.hrs.api_gateway.utils.CacheCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of Redis cache values: the binary codecs against the Jackson JSON they replaced, for a
+ * cached hotel, a small idempotent response and a page of search results (LZ4 compressed by the binary codec).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    @Param({"hotel", "response", "page"})
+    String value;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CacheCodec<CachedHotel> hotelCodec = BenchmarkSupport.hotelCodec(objectMapper);
+    private final CacheCodec<IdempotentResponse> responseCodec = BenchmarkSupport.responseCodec(objectMapper);
+
+    private Object decoded;
+    private Class<?> type;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws Exception {
+        switch (value) {
+            case "hotel" -> {
+                decoded = new CachedHotel(new HotelDTO(1042L, "Grand Hotel de Paris", "Paris", "12 Rue de Rivoli", 120),
+                        1_760_000_000_000L, 7);
+                type = CachedHotel.class;
+            }
+            case "response" -> {
+                decoded = new IdempotentResponse(201, "application/json",
+                        "{\"id\":1042,\"hotelId\":7,\"checkIn\":\"2025-06-01\",\"checkOut\":\"2025-06-04\",\"status\":\"PENDING\"}");
+                type = IdempotentResponse.class;
+            }
+            default -> {
+                StringBuilder page = new StringBuilder("{\"hotels\":[");
+                for (int i = 0; i < 50; i++) {
+                    page.append(i == 0 ? "" : ",").append("{\"id\":").append(1000 + i)
+                            .append(",\"name\":\"Grand Hotel ").append(i).append("\",\"city\":\"Paris\",\"address\":\"")
+                            .append(i).append(" Rue de Rivoli\",\"capacity\":").append(80 + i).append('}');
+                }
+                decoded = new IdempotentResponse(200, "application/json", page.append("],\"cursor\":\"WzcuMjUsMTA0Ml0\"}").toString());
+                type = IdempotentResponse.class;
+            }
+        }
+        json = objectMapper.writeValueAsString(decoded);
+        binary = encodeBinary();
+        // Bytes stored in Redis per key, printed once per fork
+        System.out.printf("%n%s: json %d bytes, binary %d bytes%n", value, json.getBytes(StandardCharsets.UTF_8).length, binary.length);
+    }
+
+    @Benchmark
+    public String jsonEncode() throws Exception {
+        return objectMapper.writeValueAsString(decoded);
+    }
+
+    @Benchmark
+    public Object jsonDecode() throws Exception {
+        return objectMapper.readValue(json, type);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return encodeBinary();
+    }
+
+    @Benchmark
+    public Object binaryDecode() {
+        return decoded instanceof CachedHotel ? hotelCodec.decode(binary) : responseCodec.decode(binary);
+    }
+
+    private byte[] encodeBinary() {
+        return decoded instanceof CachedHotel hotel ? hotelCodec.encode(hotel) : responseCodec.encode((IdempotentResponse) decoded);
+    }
+}
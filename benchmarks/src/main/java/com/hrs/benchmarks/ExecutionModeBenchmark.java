@@ -0,0 +1,102 @@
+package com.hrs.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of a blocking (JDBC backed) endpoint while 1k, 5k or 10k other connections keep the gateway saturated.
+ * The background connections run a closed loop, each sending its next request as soon as the last one answered,
+ * and their completion rate is printed per iteration as throughput. The measured method samples one more request
+ * on top of that load, so the reported p99 is what a caller sees when requests queue behind blocked threads.
+ * Run once with QUARKUS_VIRTUAL_THREADS_ENABLED=false (worker pool) and once with true (virtual threads).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 20)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    @Param("http://localhost:8080")
+    String baseUrl;
+
+    // Keyset page of a user's bookings, one JDBC query per request and no cache in front of it
+    @Param("/api/v1/bookings/user/1?size=20")
+    String path;
+
+    @Param({"1000", "5000", "10000"})
+    int connections;
+
+    private HttpClient client;
+    private ExecutorService callbacks;
+    private HttpRequest request;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running;
+    private long completedAtStart;
+    private long failedAtStart;
+    private long iterationStart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        callbacks = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(callbacks).build();
+        request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60)).GET().build();
+        running = true;
+        for (int i = 0; i < connections; i++) {
+            sendNext();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        running = false;
+        callbacks.shutdownNow();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        completedAtStart = completed.sum();
+        failedAtStart = failed.sum();
+        iterationStart = System.nanoTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        double seconds = (System.nanoTime() - iterationStart) / 1_000_000_000d;
+        System.out.printf("%nBackground throughput: %.0f req/s over %d connections, %d failed%n",
+                (completed.sum() - completedAtStart) / seconds, connections, failed.sum() - failedAtStart);
+    }
+
+    @Benchmark
+    public int request() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // One background connection's loop, async so 10k connections do not need 10k client threads
+    private void sendNext() {
+        if (!running) {
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenCompleteAsync((response, failure) -> {
+                    if (failure == null && response.statusCode() < 500) {
+                        completed.increment();
+                    } else {
+                        failed.increment();
+                    }
+                    sendNext();
+                }, callbacks);
+    }
+}
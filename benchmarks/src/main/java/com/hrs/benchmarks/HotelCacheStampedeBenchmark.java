@@ -0,0 +1,111 @@
+package com.hrs.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hammers GET /api/v1/hotels/{id} for one hot hotel while a single thread keeps dropping it from every cache tier
+ * (a hotel update invalidates L1 on all instances and the Redis key, same as the key expiring under load).
+ * After each iteration the gateway's own db-tier load count is read from its Prometheus endpoint, so the printed
+ * "DB loads per invalidation" shows whether misses were coalesced (about 1) or stampeded (up to the reader count).
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class HotelCacheStampedeBenchmark {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern DB_LOADS_PATTERN = Pattern.compile("(?m)^hotel_cache_latency_seconds_count\\{[^}]*tier=\"db\"[^}]*}\\s+([0-9.Ee+]+)");
+
+    @Param("http://localhost:8080")
+    String baseUrl;
+
+    // Pause between invalidations, each one turns every concurrent read into a miss
+    @Param("1000")
+    long invalidateEveryMillis;
+
+    // docker-compose serves Prometheus on /metrics, the prod profile alone on /q/metrics
+    @Param("/metrics")
+    String metricsPath;
+
+    private HttpClient client;
+    private long hotelId;
+    private String hotelJson;
+    private double dbLoadsAtStart;
+    private volatile long invalidations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        hotelJson = "{\"name\":\"Hot Hotel\",\"city\":\"Benchmark\",\"address\":\"1 Load St\",\"capacity\":100}";
+        HttpResponse<String> response = client.send(write("POST", "/api/v1/hotels", hotelJson), HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = ID_PATTERN.matcher(response.body());
+        if (response.statusCode() != 201 || !matcher.find()) {
+            throw new IllegalStateException("Could not create benchmark hotel: " + response.statusCode() + " " + response.body());
+        }
+        hotelId = Long.parseLong(matcher.group(1));
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() throws IOException, InterruptedException {
+        invalidations = 0;
+        dbLoadsAtStart = dbLoads();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() throws IOException, InterruptedException {
+        double loads = dbLoads() - dbLoadsAtStart;
+        System.out.printf("%nDB loads: %.0f for %d invalidations (%.2f per invalidation)%n",
+                loads, invalidations, invalidations == 0 ? 0 : loads / invalidations);
+    }
+
+    @Benchmark
+    @Group("hotKey")
+    @GroupThreads(64)
+    public int read() throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/hotels/" + hotelId)).GET().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Group("hotKey")
+    @GroupThreads(1)
+    public int invalidate() throws IOException, InterruptedException {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(invalidateEveryMillis));
+        int status = client.send(write("PUT", "/api/v1/hotels/" + hotelId, hotelJson), HttpResponse.BodyHandlers.discarding()).statusCode();
+        invalidations++;
+        return status;
+    }
+
+    private double dbLoads() throws IOException, InterruptedException {
+        String metrics = client.send(HttpRequest.newBuilder(URI.create(baseUrl + metricsPath)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        double total = 0;
+        Matcher matcher = DB_LOADS_PATTERN.matcher(metrics);
+        while (matcher.find()) {
+            total += Double.parseDouble(matcher.group(1));
+        }
+        return total;
+    }
+
+    private HttpRequest write(String method, String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.hrs.benchmarks;
+
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.service.BenchmarkSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A keyword search against the embedded hotel index (quarkus.search.engine=embedded) over a synthetic catalog:
+ * two name keywords that each match about a fifth of the hotels, and a city that matches a tenth of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotelTextIndexBenchmark {
+
+    private static final String[] CITIES = {"Paris", "Berlin", "Lyon", "Munich", "Rome", "Milan", "Madrid", "Vienna", "Prague", "Lisbon"};
+    private static final String[] WORDS = {"Grand", "Royal", "Palace", "Garden", "Central", "Park", "Station", "River", "Old", "Town"};
+    private static final String[] STREETS = {"Main Street", "Rue de Rivoli", "Unter den Linden", "Via Roma", "Gran Via"};
+
+    @Param({"100000"})
+    int hotels;
+
+    private BenchmarkSupport.TextIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<HotelDTO> catalog = new ArrayList<>(hotels);
+        for (long id = 1; id <= hotels; id++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " Hotel " + id;
+            String address = (1 + random.nextInt(200)) + " " + STREETS[random.nextInt(STREETS.length)];
+            catalog.add(new HotelDTO(id, name, CITIES[random.nextInt(CITIES.length)], address, 10 + random.nextInt(200)));
+        }
+        index = new BenchmarkSupport.TextIndex(catalog);
+    }
+
+    @Benchmark
+    public List<?> nameKeywords() {
+        return index.search(List.of("grand", "palace"), 20);
+    }
+
+    @Benchmark
+    public List<?> commonCity() {
+        return index.search(List.of("paris"), 20);
+    }
+}
@@ -0,0 +1,57 @@
+package com.hrs.benchmarks;
+
+import com.hrs.api_gateway.entity.BookingStatus;
+import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.utils.CommonHelper;
+import com.hrs.api_gateway.utils.QueryParamExtractor;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The input handling every booking and hotel request goes through: the Jsoup XSS check on DTOs, date parsing of
+ * search hits and query string extraction. Run with -prof gc, gc.alloc.rate.norm is bytes allocated per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestValidationBenchmark {
+
+    private final BookingDTO booking = new BookingDTO(null, 1L, 1L, LocalDateTime.of(2024, 1, 20, 14, 0),
+            LocalDateTime.of(2024, 1, 25, 11, 0), 2, 500L, BookingStatus.PENDING);
+    private final HotelDTO hotel = new HotelDTO(null, "Grand Hotel de Paris", "Paris", "12 Rue de Rivoli", 120);
+    private final HotelDTO hotelWithScript = new HotelDTO(null, "Grand Hotel<script>alert(1)</script>", "Paris", "12 Rue de Rivoli", 120);
+    private final URI searchUri = URI.create("http://localhost:8080/api/v1/bookings/search?userId=1&hotelId=42&checkinDate=2024-01-20&checkoutDate=2024-01-25&size=20");
+
+    @Benchmark
+    public boolean validBookingInput() {
+        return CommonHelper.isValidBookingInput(booking);
+    }
+
+    @Benchmark
+    public boolean validHotelInput() {
+        return CommonHelper.isValidHotelInput(hotel);
+    }
+
+    @Benchmark
+    public boolean rejectedHotelInput() {
+        return CommonHelper.isValidHotelInput(hotelWithScript);
+    }
+
+    @Benchmark
+    public LocalDateTime parseZonedDateTime() {
+        return CommonHelper.parseLocalDateTime("2024-01-20T10:00:00Z"); // Format Debezium writes to Elasticsearch
+    }
+
+    @Benchmark
+    public Map<String, String> queryParameters() {
+        return QueryParamExtractor.getQueryParameters(searchUri);
+    }
+}
@@ -0,0 +1,108 @@
+package com.hrs.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.entity.BookingStatus;
+import com.hrs.api_gateway.entity.Hotel;
+import com.hrs.api_gateway.model.BookingDTO;
+import com.hrs.api_gateway.model.HotelDTO;
+import com.hrs.api_gateway.utils.CommonHelper;
+import com.hrs.api_gateway.utils.SearchHitDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming hit decoding against the previous readTree + re-serialize path, for 10, 100 and 1000-hit responses.
+ * Run with -prof gc and divide gc.alloc.rate.norm by the hit count to get bytes allocated per hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchHitDecodingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int hits;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] hotelResponse;
+    private byte[] bookingResponse;
+
+    @Setup
+    public void setUp() {
+        hotelResponse = searchResponse(hits, i -> String.format(
+                "{\"id\":%d,\"name\":\"Hotel %d\",\"address\":\"%d Main St\",\"city\":\"Paris\",\"capacity\":%d}", i, i, i, i % 50 + 1));
+        bookingResponse = searchResponse(hits, i -> String.format(
+                "{\"id\":%d,\"user_id\":%d,\"hotel_id\":%d,\"check_in_date\":\"2024-01-20T10:00:00Z\",\"check_out_date\":\"2024-01-25T14:00:00Z\"," +
+                        "\"number_of_guests\":2,\"total_price\":500,\"booking_status\":\"PENDING\"}", i, i % 5 + 1, i % 20 + 1));
+    }
+
+    @Benchmark
+    public List<HotelDTO> hotelsStreaming() throws IOException {
+        return SearchHitDecoder.decodeHits(objectMapper.getFactory(), new ByteArrayInputStream(hotelResponse), SearchHitDecoder::readHotel);
+    }
+
+    @Benchmark
+    public List<HotelDTO> hotelsTreeAndReparse() throws IOException {
+        // Previous HotelService path: String body, JsonNode tree, each _source re-serialized and read into a Hotel entity
+        JsonNode jsonResponse = objectMapper.readTree(new String(hotelResponse, StandardCharsets.UTF_8));
+        List<HotelDTO> hotelDTOs = new ArrayList<>();
+        for (JsonNode hit : jsonResponse.path("hits").path("hits")) {
+            Hotel hotel = objectMapper.readValue(hit.path("_source").toString(), Hotel.class);
+            hotelDTOs.add(new HotelDTO(hotel.id, hotel.name, hotel.city, hotel.address, hotel.capacity));
+        }
+        return hotelDTOs;
+    }
+
+    @Benchmark
+    public List<BookingDTO> bookingsStreaming() throws IOException {
+        return SearchHitDecoder.decodeHits(objectMapper.getFactory(), new ByteArrayInputStream(bookingResponse), SearchHitDecoder::readBooking);
+    }
+
+    @Benchmark
+    public List<BookingDTO> bookingsTree() throws IOException {
+        // Previous BookingService path: String body, JsonNode tree walked field by field
+        JsonNode jsonResponse = objectMapper.readTree(new String(bookingResponse, StandardCharsets.UTF_8));
+        List<BookingDTO> bookingDTOs = new ArrayList<>();
+        for (JsonNode hit : jsonResponse.path("hits").path("hits")) {
+            JsonNode sourceNode = hit.path("_source");
+            BookingDTO bookingDTO = new BookingDTO();
+            bookingDTO.setId(sourceNode.path("id").asLong());
+            bookingDTO.setHotelId(sourceNode.path("hotel_id").asLong());
+            bookingDTO.setUserId(sourceNode.path("user_id").asLong());
+            bookingDTO.setCheckinDate(CommonHelper.parseLocalDateTime(sourceNode.path("check_in_date").asText()));
+            bookingDTO.setCheckoutDate(CommonHelper.parseLocalDateTime(sourceNode.path("check_out_date").asText()));
+            bookingDTO.setNumberOfGuests(sourceNode.path("number_of_guests").asInt());
+            bookingDTO.setTotalPrice(sourceNode.path("total_price").asLong());
+            bookingDTO.setBookingStatus(BookingStatus.valueOf(sourceNode.path("booking_status").asText()));
+            bookingDTOs.add(bookingDTO);
+        }
+        return bookingDTOs;
+    }
+
+    interface SourceWriter {
+        String write(int i);
+    }
+
+    // Same envelope Elasticsearch returns for _search, including the metadata the decoder has to skip
+    static byte[] searchResponse(int hits, SourceWriter sourceWriter) {
+        StringBuilder json = new StringBuilder("{\"took\":3,\"timed_out\":false,\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0},")
+                .append("\"hits\":{\"total\":{\"value\":").append(hits).append(",\"relation\":\"eq\"},\"max_score\":1.0,\"hits\":[");
+        for (int i = 1; i <= hits; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"_index\":\"connect.hrs_booking.hotels\",\"_id\":\"").append(i).append("\",\"_score\":1.0,\"_source\":")
+                    .append(sourceWriter.write(i)).append('}');
+        }
+        return json.append("]}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
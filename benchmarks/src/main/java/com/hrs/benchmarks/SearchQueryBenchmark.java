@@ -0,0 +1,48 @@
+package com.hrs.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.api_gateway.utils.SearchCursor;
+import com.hrs.api_gateway.utils.SearchQueryBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the Elasticsearch request body for hotel and booking search, first page and a follow-up page with a
+ * search_after cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchQueryBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String hotelCursor = SearchCursor.encode("[7.25,1042]"); // _score, id
+    private final String bookingCursor = SearchCursor.encode("[1042]");
+
+    @Benchmark
+    public String hotelQuery() throws IOException {
+        return SearchQueryBuilder.hotelQuery(objectMapper, List.of("grand", "paris"), 20, null);
+    }
+
+    @Benchmark
+    public String hotelQueryNextPage() throws IOException {
+        return SearchQueryBuilder.hotelQuery(objectMapper, List.of("grand", "paris"), 20, hotelCursor);
+    }
+
+    @Benchmark
+    public String bookingQuery() throws IOException {
+        return SearchQueryBuilder.bookingQuery(objectMapper, 1L, 42L, LocalDate.of(2024, 1, 20), LocalDate.of(2024, 1, 25), 20, null);
+    }
+
+    @Benchmark
+    public String bookingQueryNextPage() throws IOException {
+        return SearchQueryBuilder.bookingQuery(objectMapper, 1L, 42L, LocalDate.of(2024, 1, 20), LocalDate.of(2024, 1, 25), 20, bookingCursor);
+    }
+}
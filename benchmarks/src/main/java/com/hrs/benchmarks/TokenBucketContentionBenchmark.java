@@ -0,0 +1,43 @@
+package com.hrs.benchmarks;
+
+import com.hrs.api_gateway.service.BenchmarkSupport;
+import com.hrs.api_gateway.service.DistributedTokenBucket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-request rate limit decision with every thread on the same client bucket: the Redis lease counter taken
+ * on each request and the local bucket used while Redis is down. Compare the scores across -t 1, 8 and 32, on a
+ * machine with at least as many cores, to see what the monitor costs once requests of one client land on many
+ * worker threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBucketContentionBenchmark {
+
+    private static final long LEASE_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final BenchmarkSupport.LeasedTokens leased = new BenchmarkSupport.LeasedTokens();
+    // Refill far above the call rate so every call takes the allowed path
+    private final BenchmarkSupport.LocalTokenBucket local = new BenchmarkSupport.LocalTokenBucket(1_000_000, 1e12);
+
+    @Benchmark
+    public DistributedTokenBucket.LocalDecision leasedTryTake() {
+        long now = System.nanoTime();
+        DistributedTokenBucket.LocalDecision decision = leased.tryTake(now);
+        if (decision == DistributedTokenBucket.LocalDecision.ASK_REDIS) {
+            leased.add(1000, now, LEASE_TTL_NANOS); // Stands in for the Redis round trip
+        }
+        return decision;
+    }
+
+    @Benchmark
+    public boolean localTryTake() {
+        return local.tryTake();
+    }
+}
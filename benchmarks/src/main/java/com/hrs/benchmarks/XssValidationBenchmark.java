@@ -0,0 +1,43 @@
+package com.hrs.benchmarks;
+
+import com.hrs.api_gateway.utils.SafeText;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The XSS check of one text field: the character scan with its Jsoup fallback against always parsing and
+ * sanitizing with Jsoup, for plain text (the common case), text with an entity and a script tag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XssValidationBenchmark {
+
+    @Param({"plain", "entity", "script"})
+    String input;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = switch (input) {
+            case "plain" -> "Grand Hotel de Paris, 12 Rue de Rivoli";
+            case "entity" -> "Grand Hotel &amp; Spa, 12 Rue de Rivoli";
+            default -> "Grand Hotel<script>alert(1)</script>";
+        };
+    }
+
+    @Benchmark
+    public boolean scan() {
+        return SafeText.isSafe(text);
+    }
+
+    @Benchmark
+    public boolean sanitize() {
+        return SafeText.isSafeSanitized(text);
+    }
+}
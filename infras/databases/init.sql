@@ -37,10 +37,28 @@ CREATE TABLE bookings (
     booking_status VARCHAR(10) DEFAULT "PENDING",
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Covering index for the capacity check, also serves the hotel_id foreign key
+    INDEX idx_bookings_capacity (hotel_id, booking_status, check_in_date, check_out_date, number_of_guests),
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (hotel_id) REFERENCES hotels(id)
 );
 
+-- Booking ids are handed out in blocks of 50 from this table (Hibernate's sequence emulation on MySQL).
+-- AUTO_INCREMENT stays on bookings.id for compatibility, but every writer must take ids from here
+CREATE TABLE IF NOT EXISTS booking_id_seq (
+    next_val BIGINT NOT NULL
+);
+
+-- Create the per hotel-night booked counters used for optimistic booking admission
+CREATE TABLE IF NOT EXISTS hotel_night_inventory (
+    hotel_id BIGINT NOT NULL,
+    night DATE NOT NULL,
+    booked INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (hotel_id, night),
+    FOREIGN KEY (hotel_id) REFERENCES hotels(id)
+);
+
 
 -- Insert a large amount of data - Corrected INSERT query for TIMESTAMP
 INSERT INTO hotels (name, city, address, capacity) VALUES
@@ -82,4 +100,8 @@ INSERT INTO bookings (hotel_id, user_id, check_in_date, check_out_date, number_o
 (7, 2, '2024-07-01 16:00:00', '2024-07-05 09:00:00', 1, 350),
 (8, 3, '2024-08-15 18:00:00', '2024-08-20 15:00:00', 3, 800),
 (9, 4, '2024-09-01 10:00:00', '2024-09-07 11:00:00', 2, 650),
-(10, 5, '2024-10-10 12:00:00', '2024-10-15 14:00:00', 4, 950);
\ No newline at end of file
+(10, 5, '2024-10-10 12:00:00', '2024-10-15 14:00:00', 4, 950);
+
+-- Start the id sequence past the existing bookings. A block is the 50 ids up to the value read, hence the + 50
+DELETE FROM booking_id_seq;
+INSERT INTO booking_id_seq (next_val) SELECT COALESCE(MAX(id), 0) + 50 FROM bookings;
@@ -0,0 +1,18 @@
+-- Brings a database created by an older init.sql up to date. init.sql only runs on a fresh volume, so run this
+-- once against an existing one before deploying. Every statement is idempotent, running it again changes nothing.
+USE hrs_booking;
+
+-- Booking ids are handed out in blocks of 50 from this table (Hibernate's sequence emulation on MySQL)
+CREATE TABLE IF NOT EXISTS booking_id_seq (
+    next_val BIGINT NOT NULL
+);
+
+-- Seed the sequence past the existing bookings. A block is the 50 ids up to the value read, hence the + 50
+INSERT INTO booking_id_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50 FROM bookings
+WHERE NOT EXISTS (SELECT 1 FROM booking_id_seq);
+
+-- Only ever moves forward, past bookings an older gateway inserted with AUTO_INCREMENT after the seed
+UPDATE booking_id_seq
+SET next_val = (SELECT COALESCE(MAX(id), 0) + 50 FROM bookings)
+WHERE next_val < (SELECT COALESCE(MAX(id), 0) + 50 FROM bookings);
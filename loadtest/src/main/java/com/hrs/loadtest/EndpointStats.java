@@ -0,0 +1,63 @@
+package com.hrs.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one endpoint. Latency runs from when the request was due, not when it was sent, so a
+ * stalled gateway shows up in the percentiles instead of slowing the arrivals down (coordinated omission).
+ */
+final class EndpointStats {
+
+    private final Histogram latencyMicros = new ConcurrentHistogram(3);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    // Status 0 for a request that got no response (timeout, connection error, dropped)
+    void record(long latencyNanos, int status) {
+        requests.increment();
+        latencyMicros.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (status == 409) {
+            conflicts.increment(); // Fully booked, expected under load
+        } else if (status == 429) {
+            throttled.increment(); // Rate limiter, raise QUARKUS_RATE_LIMIT_CAPACITY for a load test
+        } else if (status < 200 || status >= 400) {
+            errors.increment();
+        }
+    }
+
+    // Arrival dropped because too many requests were outstanding, counted as an error without a latency
+    void dropped() {
+        requests.increment();
+        errors.increment();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long conflicts() {
+        return conflicts.sum();
+    }
+
+    long throttled() {
+        return throttled.sum();
+    }
+
+    double percentileMillis(double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / 1000d;
+    }
+
+    double maxMillis() {
+        return latencyMicros.getMaxValue() / 1000d;
+    }
+}
@@ -0,0 +1,44 @@
+package com.hrs.loadtest;
+
+import org.testcontainers.containers.ComposeContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The repository's docker-compose stack (MySQL, Redis, Elasticsearch, the CDC pipeline and the gateway) started
+ * through Testcontainers, so search traffic hits indices kept up to date the same way as in production.
+ */
+final class GatewayStack implements AutoCloseable {
+
+    private static final String GATEWAY = "api-gateway";
+    private static final int GATEWAY_PORT = 8080;
+
+    private final ComposeContainer compose;
+
+    private GatewayStack(ComposeContainer compose) {
+        this.compose = compose;
+    }
+
+    static GatewayStack start(Path composeFile) {
+        ComposeContainer compose = new ComposeContainer(composeFile.toFile())
+                .withLocalCompose(true)
+                // One client sends everything, the per-client booking limit would turn the write mix into 429s
+                .withEnv("QUARKUS_RATE_LIMIT_CAPACITY", "1000000000")
+                .withExposedService(GATEWAY, GATEWAY_PORT, Wait.forHttp("/metrics")
+                        .forStatusCode(200)
+                        .withStartupTimeout(Duration.ofMinutes(10))); // Builds the gateway image on first run
+        compose.start();
+        return new GatewayStack(compose);
+    }
+
+    String baseUrl() {
+        return "http://" + compose.getServiceHost(GATEWAY, GATEWAY_PORT) + ":" + compose.getServicePort(GATEWAY, GATEWAY_PORT);
+    }
+
+    @Override
+    public void close() {
+        compose.stop();
+    }
+}
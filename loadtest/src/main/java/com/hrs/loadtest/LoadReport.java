@@ -0,0 +1,98 @@
+package com.hrs.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a run, written as JSON. A report kept from an earlier run is the baseline later runs are checked against.
+ *
+ * @param targetRate    requests per second sent
+ * @param servedRate    requests per second answered with a success or a 409, errors and 429s excluded
+ * @param servedPerHour servedRate over an hour, to hold against the 3M requests per hour target
+ */
+public record LoadReport(int targetRate, double servedRate, long servedPerHour, double measuredSeconds,
+                         Map<String, EndpointReport> endpoints) {
+
+    // Below this a p99 increase is noise whatever the ratio, 1 ms to 1.3 ms is not a regression
+    private static final double MIN_P99_SLACK_MILLIS = 5;
+    // Arrivals that did not get an answer in time show as a shortfall against the target rate
+    private static final double MIN_SERVED_SHARE = 0.95;
+
+    public record EndpointReport(long requests, double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs,
+                                 double errorRate, double conflictRate, double throttledRate) {
+    }
+
+    static LoadReport of(LoadTestConfig config, Map<String, EndpointStats> stats) {
+        double seconds = config.duration().toMillis() / 1000d;
+        long served = 0;
+        Map<String, EndpointReport> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<String, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            long requests = endpoint.requests();
+            served += requests - endpoint.errors() - endpoint.throttled();
+            endpoints.put(entry.getKey(), new EndpointReport(requests,
+                    endpoint.percentileMillis(50), endpoint.percentileMillis(90), endpoint.percentileMillis(99),
+                    endpoint.percentileMillis(99.9), endpoint.maxMillis(),
+                    share(endpoint.errors(), requests), share(endpoint.conflicts(), requests), share(endpoint.throttled(), requests)));
+        }
+        double servedRate = served / seconds;
+        return new LoadReport(config.rate(), servedRate, Math.round(servedRate * 3600), seconds, endpoints);
+    }
+
+    static LoadReport read(ObjectMapper objectMapper, Path path) throws IOException {
+        return objectMapper.readValue(path.toFile(), LoadReport.class);
+    }
+
+    void write(ObjectMapper objectMapper, Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), this);
+    }
+
+    /**
+     * What fails the run: an endpoint over the error rate, a p99 above the baseline's by more than the allowed
+     * regression, or the gateway serving clearly less than the target rate. Empty when the run passes.
+     */
+    List<String> violations(LoadReport baseline, LoadTestConfig config) {
+        List<String> violations = new ArrayList<>();
+        if (servedRate < targetRate * MIN_SERVED_SHARE) {
+            violations.add(String.format("served %.0f req/s (%,d per hour), target %d req/s", servedRate, servedPerHour, targetRate));
+        }
+        endpoints.forEach((name, endpoint) -> {
+            if (endpoint.errorRate() > config.maxErrorRate()) {
+                violations.add(String.format("%s: error rate %.2f%% above %.2f%%", name, endpoint.errorRate() * 100, config.maxErrorRate() * 100));
+            }
+            EndpointReport before = baseline == null ? null : baseline.endpoints().get(name);
+            if (before != null) {
+                double limit = Math.max(before.p99Ms() * (1 + config.maxP99Regression()), before.p99Ms() + MIN_P99_SLACK_MILLIS);
+                if (endpoint.p99Ms() > limit) {
+                    violations.add(String.format("%s: p99 %.1f ms regressed from %.1f ms, limit %.1f ms", name, endpoint.p99Ms(), before.p99Ms(), limit));
+                }
+            }
+        });
+        return violations;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-36s %9s %9s %9s %9s %9s %9s %7s %7s %7s%n",
+                "Endpoint", "Requests", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "err %", "409 %", "429 %");
+        endpoints.forEach((name, endpoint) -> out.printf("%-36s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %7.2f %7.2f %7.2f%n",
+                name, endpoint.requests(), endpoint.p50Ms(), endpoint.p90Ms(), endpoint.p99Ms(), endpoint.p999Ms(), endpoint.maxMs(),
+                endpoint.errorRate() * 100, endpoint.conflictRate() * 100, endpoint.throttledRate() * 100));
+        out.printf("Target %d req/s, served %.1f req/s over %.0f s, %,d requests per hour%n", targetRate, servedRate, measuredSeconds, servedPerHour);
+    }
+
+    private static double share(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+}
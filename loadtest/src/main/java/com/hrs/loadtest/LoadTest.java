@@ -0,0 +1,112 @@
+package com.hrs.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Load test of the gateway: seeds hotels and bookings, sends the traffic mix at a fixed arrival rate and reports
+ * latency percentiles, error, 409 and 429 rates per endpoint. Exits with 1 when the run fails its checks.
+ *
+ * <pre>
+ * java -jar target/loadtest.jar                                        # starts the compose stack
+ * java -jar target/loadtest.jar --record                               # writes the baseline instead of checking
+ * java -Dloadtest.base-url=http://localhost:8080 -jar target/loadtest.jar
+ * </pre>
+ */
+public class LoadTest {
+
+    private final LoadTestConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest(LoadTestConfig.fromArguments(args));
+        List<String> violations = loadTest.check(loadTest.run());
+        violations.forEach(violation -> System.err.println("FAILED " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    public LoadReport run() throws IOException, InterruptedException {
+        if (config.baseUrl() != null) {
+            return run(config.baseUrl());
+        }
+        try (GatewayStack stack = GatewayStack.start(config.composeFile())) {
+            return run(stack.baseUrl());
+        }
+    }
+
+    /**
+     * Checks the report against the baseline, or records it as the new baseline when asked to. A missing baseline is
+     * a violation, a gate that silently skips its p99 check would pass every regression.
+     */
+    public List<String> check(LoadReport report) throws IOException {
+        if (config.recordBaseline()) {
+            report.write(objectMapper, config.baseline());
+            System.out.println("Recorded baseline " + config.baseline());
+            return List.of();
+        }
+        if (!Files.exists(config.baseline())) {
+            return List.of("no baseline at " + config.baseline() + ", record one with --record or -Dloadtest.record-baseline=true");
+        }
+        return report.violations(LoadReport.read(objectMapper, config.baseline()), config);
+    }
+
+    private LoadReport run(String baseUrl) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        Traffic traffic = Traffic.load(objectMapper, baseUrl, config);
+        seed(client, baseUrl, traffic);
+
+        System.out.printf("Sending %d req/s to %s for %s warmup and %s measurement%n", config.rate(), baseUrl, config.warmup(), config.duration());
+        Map<String, EndpointStats> stats = new OpenModelDriver(client, traffic, config).run();
+
+        LoadReport report = LoadReport.of(config, stats);
+        report.print(System.out);
+        report.write(objectMapper, config.report());
+        return report;
+    }
+
+    private void seed(HttpClient client, String baseUrl, Traffic traffic) throws IOException, InterruptedException {
+        for (int i = 0; i < config.hotels(); i++) {
+            ObjectNode hotel = objectMapper.createObjectNode()
+                    .put("name", "Load Test Hotel " + i)
+                    .put("city", Traffic.CITIES.get(i % Traffic.CITIES.size()))
+                    .put("address", i + " Load Test Street")
+                    .put("capacity", 200);
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/hotels"))
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", UUID.randomUUID().toString())
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(hotel)))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            JsonNode created = response.statusCode() == 201 ? objectMapper.readTree(response.body()) : null;
+            if (created == null || !created.hasNonNull("id")) {
+                throw new IllegalStateException("Could not create load test hotel: " + response.statusCode() + " " + response.body());
+            }
+            traffic.addHotel(created.get("id").asLong());
+        }
+
+        RequestTemplate creator = traffic.bookingCreator();
+        if (creator == null) {
+            return; // Recorded traffic with literal ids, nothing to pool
+        }
+        for (int i = 0; i < config.seedBookings(); i++) {
+            Traffic.Prepared prepared = traffic.prepare(creator);
+            HttpResponse<String> response = client.send(prepared.request(), HttpResponse.BodyHandlers.ofString());
+            traffic.completed(prepared, response.statusCode(), response.body());
+        }
+        System.out.printf("Seeded %d hotels and %d bookings%n", traffic.hotelCount(), config.seedBookings());
+    }
+}
@@ -0,0 +1,78 @@
+package com.hrs.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of one load test run, read from -Dloadtest.* system properties. --record on the command line is the same
+ * as -Dloadtest.record-baseline=true.
+ *
+ * @param baseUrl          gateway to load, null to start the docker-compose stack through Testcontainers
+ * @param composeFile      compose file started when no base URL is given
+ * @param rate             requests per second sent whatever the response times, 834/s is 3M requests per hour
+ * @param warmup           time at full rate before latencies are recorded
+ * @param duration         measured time after the warmup
+ * @param timeout          per-request timeout, a timed out request counts as an error
+ * @param maxInFlight      outstanding requests above which arrivals are dropped and counted as errors
+ * @param traffic          recorded traffic replayed in file order, null to use the weighted mix
+ * @param mix              weighted synthetic mix, null for the built-in one
+ * @param hotels           hotels created before the run for the mix to book and look up
+ * @param seedBookings     bookings created before the run for updates and cancellations to work on
+ * @param users            users 1..n booking, init.sql seeds 5
+ * @param report           where the JSON report is written
+ * @param baseline         report of an earlier run p99s are compared against, the run fails when it is missing
+ * @param maxP99Regression allowed p99 increase over the baseline per endpoint, 0.2 is 20%
+ * @param maxErrorRate     allowed share of errors per endpoint, 409 conflicts and 429 throttling excluded
+ * @param recordBaseline   write this run's report as the new baseline instead of checking against the old one
+ */
+public record LoadTestConfig(String baseUrl, Path composeFile, int rate, Duration warmup, Duration duration,
+                             Duration timeout, int maxInFlight, Path traffic, Path mix, int hotels,
+                             int seedBookings, int users, Path report, Path baseline, double maxP99Regression,
+                             double maxErrorRate, boolean recordBaseline) {
+
+    public static final int THREE_MILLION_PER_HOUR = 834;
+
+    public static LoadTestConfig fromSystemProperties() {
+        return fromSystemProperties(false);
+    }
+
+    public static LoadTestConfig fromArguments(String... args) {
+        boolean recordBaseline = false;
+        for (String arg : args) {
+            if (!"--record".equals(arg)) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", settings are -Dloadtest.* system properties");
+            }
+            recordBaseline = true;
+        }
+        return fromSystemProperties(recordBaseline);
+    }
+
+    private static LoadTestConfig fromSystemProperties(boolean recordBaseline) {
+        return new LoadTestConfig(
+                blankToNull(System.getProperty("loadtest.base-url")),
+                Path.of(System.getProperty("loadtest.compose-file", "../docker-compose.yml")),
+                Integer.getInteger("loadtest.rate", THREE_MILLION_PER_HOUR),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT30S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT5M")),
+                Duration.parse(System.getProperty("loadtest.timeout", "PT10S")),
+                Integer.getInteger("loadtest.max-in-flight", 10_000),
+                pathOrNull(System.getProperty("loadtest.traffic")),
+                pathOrNull(System.getProperty("loadtest.mix")),
+                Integer.getInteger("loadtest.hotels", 50),
+                Integer.getInteger("loadtest.seed-bookings", 200),
+                Integer.getInteger("loadtest.users", 5),
+                Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json")),
+                Path.of(System.getProperty("loadtest.baseline", "loadtest-baseline.json")),
+                Double.parseDouble(System.getProperty("loadtest.max-p99-regression", "0.2")),
+                Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01")),
+                recordBaseline || Boolean.getBoolean("loadtest.record-baseline"));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Path pathOrNull(String value) {
+        return value == null || value.isBlank() ? null : Path.of(value);
+    }
+}
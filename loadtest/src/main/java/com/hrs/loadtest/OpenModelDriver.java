@@ -0,0 +1,83 @@
+package com.hrs.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model load: request i is due at start + i / rate and is sent then whether or not earlier requests have
+ * answered, the way independent users arrive. A closed loop of N workers would instead slow down with the gateway
+ * and hide exactly the queueing a load test is for.
+ */
+final class OpenModelDriver {
+
+    private final HttpClient client;
+    private final Traffic traffic;
+    private final LoadTestConfig config;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelDriver(HttpClient client, Traffic traffic, LoadTestConfig config) {
+        this.client = client;
+        this.traffic = traffic;
+        this.config = config;
+    }
+
+    /**
+     * Runs warmup and measurement and returns the stats of requests due during the measurement, by endpoint.
+     */
+    Map<String, EndpointStats> run() {
+        long interval = 1_000_000_000L / config.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(traffic.next(), due, due >= measureFrom);
+        }
+        awaitOutstanding(config.timeout().plusSeconds(5));
+        return new TreeMap<>(stats);
+    }
+
+    private void send(Traffic.Prepared prepared, long due, boolean measured) {
+        EndpointStats endpoint = measured ? stats.computeIfAbsent(prepared.template().endpoint(), name -> new EndpointStats()) : null;
+        if (inFlight.incrementAndGet() > config.maxInFlight()) {
+            inFlight.decrementAndGet();
+            traffic.completed(prepared, 0, null);
+            if (endpoint != null) {
+                endpoint.dropped();
+            }
+            return;
+        }
+        client.sendAsync(prepared.request(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    long latency = System.nanoTime() - due;
+                    int status = response == null ? 0 : response.statusCode();
+                    traffic.completed(prepared, status, response == null ? null : response.body());
+                    if (endpoint != null) {
+                        endpoint.record(latency, status);
+                    }
+                    inFlight.decrementAndGet();
+                });
+    }
+
+    private void awaitOutstanding(Duration limit) {
+        long deadline = System.nanoTime() + limit.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(10_000_000L);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.hrs.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.regex.Pattern;
+
+/**
+ * One line of a traffic file. Path and body may hold placeholders filled per request: {hotelId}, {userId},
+ * {city}, {guests}, {checkin}/{checkout} (date-time), {checkinDate}/{checkoutDate} (date) and {booking.<field>}
+ * of a booking created earlier in the run. A quoted placeholder with a numeric value is written as a JSON number.
+ *
+ * @param endpoint name latencies are reported under, derived from method and path when absent
+ * @param weight   share of the synthetic mix, ignored when replaying
+ * @param capture  "booking" to keep the created booking of a 2xx response for later {booking.*} requests
+ * @param release  "booking" when a 2xx response means the booking is gone (cancelled)
+ */
+record RequestTemplate(String endpoint, String method, String path, String body, int weight, String capture, String release) {
+
+    static final String BOOKING = "booking";
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    static RequestTemplate fromJson(ObjectMapper objectMapper, JsonNode line) throws Exception {
+        String method = line.path("method").asText("GET").toUpperCase();
+        String path = line.path("path").asText();
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Traffic line without path: " + line);
+        }
+        JsonNode body = line.get("body");
+        String bodyText = body == null || body.isNull() ? null : body.isTextual() ? body.asText() : objectMapper.writeValueAsString(body);
+        String endpoint = line.hasNonNull("endpoint") ? line.get("endpoint").asText() : method + " " + endpointPath(path);
+        return new RequestTemplate(endpoint, method, path, bodyText, line.path("weight").asInt(1),
+                line.path("capture").asText(null), line.path("release").asText(null));
+    }
+
+    boolean needsBooking() {
+        return path.contains("{" + BOOKING + ".") || (body != null && body.contains("{" + BOOKING + "."));
+    }
+
+    boolean capturesBooking() {
+        return BOOKING.equals(capture);
+    }
+
+    boolean releasesBooking() {
+        return BOOKING.equals(release);
+    }
+
+    // Recorded ids and query strings would give every request its own endpoint
+    private static String endpointPath(String path) {
+        int query = path.indexOf('?');
+        return ID_SEGMENT.matcher(query < 0 ? path : path.substring(0, query)).replaceAll("/{id}");
+    }
+}
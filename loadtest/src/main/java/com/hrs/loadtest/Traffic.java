@@ -0,0 +1,238 @@
+package com.hrs.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns traffic templates into requests: in file order for recorded traffic, weighted random for a mix. Bookings
+ * created during the run are pooled so updates and cancellations always work on a booking nobody else is touching.
+ */
+final class Traffic {
+
+    static final List<String> CITIES = List.of("Paris", "Berlin", "London", "Madrid", "Rome", "Vienna", "Prague", "Lisbon");
+    private static final String DEFAULT_MIX = "/synthetic-mix.jsonl";
+    private static final Pattern PLACEHOLDER = Pattern.compile("\"\\{([\\w.]+)}\"|\\{([\\w.]+)}");
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final int MAX_PICKS = 16;
+
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final List<RequestTemplate> templates;
+    private final int[] cumulativeWeights;
+    private final boolean replay;
+    private final AtomicLong position = new AtomicLong();
+    private final ConcurrentLinkedQueue<JsonNode> bookings = new ConcurrentLinkedQueue<>();
+    private final List<Long> hotelIds = new ArrayList<>();
+    private final int users;
+
+    // A rendered request, with the pooled booking it works on if any
+    record Prepared(RequestTemplate template, HttpRequest request, JsonNode booking) {
+    }
+
+    private Traffic(ObjectMapper objectMapper, String baseUrl, Duration timeout, List<RequestTemplate> templates, boolean replay, int users) {
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("No traffic templates");
+        }
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.templates = templates;
+        this.replay = replay;
+        this.users = users;
+        this.cumulativeWeights = new int[templates.size()];
+        int total = 0;
+        for (int i = 0; i < templates.size(); i++) {
+            total += Math.max(0, templates.get(i).weight());
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    static Traffic load(ObjectMapper objectMapper, String baseUrl, LoadTestConfig config) throws IOException {
+        List<RequestTemplate> templates;
+        if (config.traffic() != null) {
+            try (InputStream in = Files.newInputStream(config.traffic())) {
+                templates = read(objectMapper, in);
+            }
+        } else if (config.mix() != null) {
+            try (InputStream in = Files.newInputStream(config.mix())) {
+                templates = read(objectMapper, in);
+            }
+        } else {
+            try (InputStream in = Traffic.class.getResourceAsStream(DEFAULT_MIX)) {
+                templates = read(objectMapper, in);
+            }
+        }
+        return new Traffic(objectMapper, baseUrl, config.timeout(), templates, config.traffic() != null, config.users());
+    }
+
+    private static List<RequestTemplate> read(ObjectMapper objectMapper, InputStream in) throws IOException {
+        List<RequestTemplate> templates = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    templates.add(RequestTemplate.fromJson(objectMapper, objectMapper.readTree(line)));
+                } catch (Exception e) {
+                    throw new IOException("Invalid traffic line: " + line, e);
+                }
+            }
+        }
+        return templates;
+    }
+
+    void addHotel(long hotelId) {
+        hotelIds.add(hotelId);
+    }
+
+    int hotelCount() {
+        return hotelIds.size();
+    }
+
+    // The template that creates the bookings later requests work on, used for seeding
+    RequestTemplate bookingCreator() {
+        return templates.stream().filter(RequestTemplate::capturesBooking).findFirst().orElse(null);
+    }
+
+    // Called from the driver thread only
+    Prepared next() {
+        for (int attempt = 0; attempt < MAX_PICKS; attempt++) {
+            Prepared prepared = prepare(pick());
+            if (prepared != null) {
+                return prepared;
+            }
+        }
+        // No pooled booking left and the picks kept needing one, send something that does not
+        return templates.stream().filter(template -> !template.needsBooking()).findFirst()
+                .map(this::prepare)
+                .orElseThrow(() -> new IllegalStateException("Every traffic template needs a created booking"));
+    }
+
+    // Null when the template needs a booking and the pool is empty
+    Prepared prepare(RequestTemplate template) {
+        JsonNode booking = null;
+        if (template.needsBooking()) {
+            booking = bookings.poll();
+            if (booking == null) {
+                return null;
+            }
+        }
+        Stay stay = Stay.random();
+        JsonNode pooled = booking;
+        Function<String, String> values = name -> value(name, stay, pooled);
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + render(template.path(), values)))
+                .timeout(timeout);
+        if (template.body() != null) {
+            request.header("Content-Type", "application/json")
+                    .method(template.method(), HttpRequest.BodyPublishers.ofString(render(template.body(), values)));
+        } else {
+            request.method(template.method(), HttpRequest.BodyPublishers.noBody());
+        }
+        if ("POST".equals(template.method()) || "PUT".equals(template.method())) {
+            request.header("Idempotency-Key", UUID.randomUUID().toString());
+        }
+        return new Prepared(template, request.build(), booking);
+    }
+
+    // Status 0 for a request that got no response
+    void completed(Prepared prepared, int status, String body) {
+        boolean success = status >= 200 && status < 300;
+        if (prepared.booking() != null) {
+            // A missing booking is dropped from the pool, a failed cancellation may be retried later
+            boolean gone = status == 404 || (success && prepared.template().releasesBooking());
+            if (!gone) {
+                bookings.offer(prepared.booking());
+            }
+        }
+        if (success && prepared.template().capturesBooking() && body != null) {
+            try {
+                JsonNode created = objectMapper.readTree(body);
+                if (created.hasNonNull("id")) {
+                    bookings.offer(created);
+                }
+            } catch (IOException ignored) {
+                // Not a booking body, nothing to pool
+            }
+        }
+    }
+
+    private RequestTemplate pick() {
+        if (replay) {
+            return templates.get((int) (position.getAndIncrement() % templates.size()));
+        }
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        int ticket = ThreadLocalRandom.current().nextInt(Math.max(total, 1));
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return templates.get(i);
+            }
+        }
+        return templates.get(templates.size() - 1);
+    }
+
+    private String value(String name, Stay stay, JsonNode booking) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (name.startsWith(RequestTemplate.BOOKING + ".")) {
+            return booking.path(name.substring(RequestTemplate.BOOKING.length() + 1)).asText();
+        }
+        return switch (name) {
+            case "hotelId" -> hotelIds.isEmpty() ? "1" : String.valueOf(hotelIds.get(random.nextInt(hotelIds.size())));
+            case "userId" -> String.valueOf(1 + random.nextInt(users));
+            case "city" -> CITIES.get(random.nextInt(CITIES.size()));
+            case "guests" -> String.valueOf(1 + random.nextInt(4));
+            case "checkin" -> stay.checkin().atTime(14, 0).toString();
+            case "checkout" -> stay.checkout().atTime(11, 0).toString();
+            case "checkinDate" -> stay.checkin().toString();
+            case "checkoutDate" -> stay.checkout().toString();
+            default -> throw new IllegalArgumentException("Unknown placeholder {" + name + "}");
+        };
+    }
+
+    private static String render(String text, Function<String, String> values) {
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        StringBuilder rendered = new StringBuilder();
+        while (matcher.find()) {
+            String replacement;
+            if (matcher.group(1) != null) {
+                String value = values.apply(matcher.group(1));
+                replacement = NUMBER.matcher(value).matches() ? value : "\"" + value + "\"";
+            } else {
+                replacement = values.apply(matcher.group(2));
+            }
+            matcher.appendReplacement(rendered, Matcher.quoteReplacement(replacement));
+        }
+        return matcher.appendTail(rendered).toString();
+    }
+
+    // One stay per request so {checkin} and {checkout} agree
+    private record Stay(LocalDate checkin, LocalDate checkout) {
+        static Stay random() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            LocalDate checkin = LocalDate.now().plusDays(30 + random.nextInt(365));
+            return new Stay(checkin, checkin.plusDays(1 + random.nextInt(7)));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.hrs.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadTestIT {
+
+    @Test
+    public void testLatencyWithinBaseline() throws Exception {
+        LoadTest loadTest = new LoadTest(LoadTestConfig.fromSystemProperties());
+        List<String> violations = loadTest.check(loadTest.run());
+        assertTrue(violations.isEmpty(), String.join("\n", violations));
+    }
+}
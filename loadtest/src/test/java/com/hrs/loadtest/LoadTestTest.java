@@ -0,0 +1,61 @@
+package com.hrs.loadtest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadTestTest {
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("loadtest.baseline");
+    }
+
+    @Test
+    public void testMissingBaselineFailsUnlessRecording() throws Exception {
+        Path baseline = directory.resolve("baseline.json");
+        System.setProperty("loadtest.baseline", baseline.toString());
+        LoadReport report = report(10);
+
+        List<String> violations = new LoadTest(LoadTestConfig.fromArguments()).check(report);
+        assertEquals(1, violations.size());
+        assertTrue(violations.get(0).startsWith("no baseline at "), violations.get(0));
+
+        assertEquals(List.of(), new LoadTest(LoadTestConfig.fromArguments("--record")).check(report));
+        assertTrue(Files.exists(baseline));
+        assertEquals(List.of(), new LoadTest(LoadTestConfig.fromArguments()).check(report));
+    }
+
+    @Test
+    public void testRegressionAgainstBaseline() throws Exception {
+        System.setProperty("loadtest.baseline", directory.resolve("baseline.json").toString());
+        new LoadTest(LoadTestConfig.fromArguments("--record")).check(report(10));
+
+        List<String> violations = new LoadTest(LoadTestConfig.fromArguments()).check(report(100));
+        assertEquals(1, violations.size());
+        assertTrue(violations.get(0).startsWith("search: p99 100.0 ms regressed"), violations.get(0));
+    }
+
+    @Test
+    public void testUnknownArgumentIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoadTestConfig.fromArguments("--recrod"));
+    }
+
+    private static LoadReport report(double p99Ms) {
+        int rate = LoadTestConfig.THREE_MILLION_PER_HOUR;
+        return new LoadReport(rate, rate, rate * 3600L, 300,
+                Map.of("search", new LoadReport.EndpointReport(1000, 1, 2, p99Ms, p99Ms, p99Ms, 0, 0, 0)));
+    }
+}
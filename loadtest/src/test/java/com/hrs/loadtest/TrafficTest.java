@@ -0,0 +1,98 @@
+package com.hrs.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrafficTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testSyntheticMixRendersPlaceholders() throws Exception {
+        Traffic traffic = Traffic.load(objectMapper, "http://gateway", LoadTestConfig.fromSystemProperties());
+        traffic.addHotel(42);
+
+        Traffic.Prepared create = traffic.prepare(traffic.bookingCreator());
+        JsonNode body = objectMapper.readTree(body(create.request()));
+        assertEquals("http://gateway/api/v1/bookings", create.request().uri().toString());
+        assertEquals(42, body.get("hotelId").asLong());
+        assertTrue(body.get("numberOfGuests").isNumber()); // Quoted numeric placeholders become JSON numbers
+        assertTrue(body.get("checkoutDate").asText().compareTo(body.get("checkinDate").asText()) > 0);
+        assertTrue(create.request().headers().firstValue("Idempotency-Key").isPresent());
+    }
+
+    @Test
+    public void testCreatedBookingsArePooledUntilCancelled() throws Exception {
+        Traffic traffic = Traffic.load(objectMapper, "http://gateway", LoadTestConfig.fromSystemProperties());
+        RequestTemplate cancel = template("cancel-booking");
+        assertNull(traffic.prepare(cancel)); // Nothing created yet
+
+        traffic.completed(traffic.prepare(traffic.bookingCreator()), 201, "{\"id\":7,\"hotelId\":42,\"userId\":1}");
+        Traffic.Prepared first = traffic.prepare(cancel);
+        assertEquals("/api/v1/bookings/7", first.request().uri().getPath());
+        assertNull(traffic.prepare(cancel)); // Taken by the in-flight request
+
+        traffic.completed(first, 500, null);
+        Traffic.Prepared retry = traffic.prepare(cancel);
+        traffic.completed(retry, 204, null);
+        assertNull(traffic.prepare(cancel));
+    }
+
+    @Test
+    public void testRecordedEndpointNamesIgnoreIds() throws Exception {
+        RequestTemplate template = RequestTemplate.fromJson(objectMapper, objectMapper.readTree("{\"path\":\"/api/v1/hotels/17?fields=name\"}"));
+        assertEquals("GET /api/v1/hotels/{id}", template.endpoint());
+    }
+
+    private RequestTemplate template(String endpoint) throws Exception {
+        try (var in = Traffic.class.getResourceAsStream("/synthetic-mix.jsonl")) {
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                RequestTemplate template = RequestTemplate.fromJson(objectMapper, objectMapper.readTree(line));
+                if (template.endpoint().equals(endpoint)) {
+                    return template;
+                }
+            }
+        }
+        throw new IllegalArgumentException(endpoint);
+    }
+
+    private static String body(HttpRequest request) throws Exception {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        request.bodyPublisher().orElseThrow().subscribe(new Flow.Subscriber<>() {
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            public void onNext(ByteBuffer item) {
+                buffers.add(item);
+            }
+
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+        done.get(1, TimeUnit.SECONDS);
+        StringBuilder body = new StringBuilder();
+        buffers.forEach(buffer -> body.append(StandardCharsets.UTF_8.decode(buffer)));
+        return body.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.hrs.occupancy_stream.model;
+
+import java.util.Comparator;
+
+/**
+ * A position in the MySQL binlog, as in Debezium's source.file and source.pos or SHOW MASTER STATUS.
+ * <p>
+ * Files are ordered by their numeric suffix (binlog.000009 before binlog.000010), so positions from different
+ * files compare correctly.
+ */
+public record BinlogPosition(String file, long position) implements Comparable<BinlogPosition> {
+
+    private static final Comparator<BinlogPosition> ORDER = Comparator
+            .comparingLong((BinlogPosition binlog) -> sequence(binlog.file()))
+            .thenComparing(BinlogPosition::file)
+            .thenComparingLong(BinlogPosition::position);
+
+    /**
+     * @throws IllegalArgumentException if the value is not file:position
+     */
+    public static BinlogPosition parse(String value) {
+        int separator = value.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Not a binlog position: " + value);
+        }
+        try {
+            return new BinlogPosition(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a binlog position: " + value, e);
+        }
+    }
+
+    @Override
+    public int compareTo(BinlogPosition other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public String toString() {
+        return file + ":" + position;
+    }
+
+    private static long sequence(String file) {
+        int dot = file.lastIndexOf('.');
+        try {
+            return Long.parseLong(file.substring(dot + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.hrs.occupancy_stream.model;
+
+/**
+ * One Debezium change event on the bookings table. before is null for inserts and snapshot reads, after is null for
+ * deletes. source is where the change sits in the binlog, null if the event does not say.
+ */
+public record BookingChange(BookingImage before, BookingImage after, BinlogPosition source) {
+}
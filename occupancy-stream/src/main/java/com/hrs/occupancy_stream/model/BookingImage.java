@@ -0,0 +1,19 @@
+package com.hrs.occupancy_stream.model;
+
+import java.time.LocalDate;
+
+/**
+ * The columns of one bookings row that decide occupancy, as seen in a Debezium before or after image.
+ *
+ * @param firstNight first night of the stay
+ * @param endNight   night after the last one occupied (exclusive)
+ */
+public record BookingImage(long hotelId, LocalDate firstNight, LocalDate endNight, int guests, String status) {
+
+    // Only pending bookings hold rooms, same as the gateway's night counters
+    private static final String OCCUPYING_STATUS = "PENDING";
+
+    public boolean occupies() {
+        return OCCUPYING_STATUS.equals(status);
+    }
+}
@@ -0,0 +1,88 @@
+package com.hrs.occupancy_stream.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import com.hrs.occupancy_stream.model.BookingChange;
+import com.hrs.occupancy_stream.model.BookingImage;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Reads Debezium change events of the bookings table, as written by the JsonConverter with or without the schema
+ * envelope.
+ */
+public class BookingChangeDecoder {
+
+    private final ObjectMapper objectMapper;
+
+    public BookingChangeDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return null for tombstones and events without row images
+     * @throws IllegalArgumentException if the event is not a readable bookings change
+     */
+    public BookingChange decode(String value) {
+        if (value == null) {
+            return null; // Tombstone following a delete, the delete event itself carried the before image
+        }
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Not a JSON change event", e);
+        }
+        JsonNode event = root.has("schema") && root.has("payload") ? root.get("payload") : root;
+        if (event == null || event.isNull()) {
+            return null;
+        }
+        BookingImage before = image(event.get("before"));
+        BookingImage after = image(event.get("after"));
+        return before == null && after == null ? null : new BookingChange(before, after, source(event.get("source")));
+    }
+
+    private static BinlogPosition source(JsonNode source) {
+        if (source == null || !source.path("file").isTextual() || !source.path("pos").canConvertToLong()) {
+            return null;
+        }
+        return new BinlogPosition(source.get("file").asText(), source.get("pos").asLong());
+    }
+
+    private static BookingImage image(JsonNode row) {
+        if (row == null || row.isNull()) {
+            return null;
+        }
+        JsonNode hotelId = row.get("hotel_id");
+        JsonNode guests = row.get("number_of_guests");
+        if (hotelId == null || !hotelId.canConvertToLong() || guests == null || !guests.canConvertToInt()) {
+            throw new IllegalArgumentException("Booking row without hotel_id or number_of_guests");
+        }
+        LocalDate checkin = date(row.get("check_in_date"));
+        LocalDate checkout = date(row.get("check_out_date"));
+        // Same nights as the gateway: a same-day stay still occupies the check-in night
+        LocalDate endNight = checkout.isAfter(checkin) ? checkout : checkin.plusDays(1);
+        return new BookingImage(hotelId.asLong(), checkin, endNight, guests.asInt(), row.path("booking_status").asText(null));
+    }
+
+    // TIMESTAMP columns arrive as ISO-8601 strings in UTC (ZonedTimestamp), DATETIME columns as epoch milliseconds
+    private static LocalDate date(JsonNode value) {
+        if (value == null || value.isNull()) {
+            throw new IllegalArgumentException("Booking row without stay dates");
+        }
+        if (value.isNumber()) {
+            return LocalDate.ofInstant(Instant.ofEpochMilli(value.asLong()), ZoneOffset.UTC);
+        }
+        try {
+            return OffsetDateTime.parse(value.asText()).withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid stay date: " + value.asText(), e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.hrs.occupancy_stream.service;
+
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import com.hrs.occupancy_stream.model.BookingChange;
+import com.hrs.occupancy_stream.model.BookingImage;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Reads current occupancy straight from the bookings table, to seed a store the topic alone cannot rebuild once
+ * Kafka retention dropped the oldest changes.
+ * <p>
+ * The read is tied to a binlog position the same way mysqldump --master-data does it: one connection holds a read
+ * lock on bookings while another opens a consistent snapshot and reads SHOW MASTER STATUS, then the lock is
+ * released. Every bookings change before that position is in the snapshot and every later one comes after it in the
+ * binlog. That needs the LOCK TABLES and REPLICATION CLIENT privileges, the same user Debezium connects as.
+ */
+@ApplicationScoped
+public class BookingSnapshotReader {
+
+    // Grouped by stay, the capacity index covers every column so this scans the index and not the table
+    private static final String OCCUPANCY_QUERY = "SELECT hotel_id, DATE(check_in_date), DATE(check_out_date), SUM(number_of_guests) " +
+            "FROM bookings WHERE booking_status = 'PENDING' " +
+            "GROUP BY hotel_id, DATE(check_in_date), DATE(check_out_date)";
+
+    @Inject
+    DataSource dataSource;
+
+    /**
+     * @throws IllegalStateException if MySQL could not be read
+     */
+    public OccupancySnapshot read() {
+        try (Connection lock = dataSource.getConnection(); Connection snapshot = dataSource.getConnection()) {
+            BinlogPosition position;
+            try (Statement locking = lock.createStatement(); Statement reading = snapshot.createStatement()) {
+                locking.execute("LOCK TABLES bookings READ");
+                try {
+                    // UTC like Debezium's ZonedTimestamp, so DATE() picks the same nights as the change events
+                    reading.execute("SET time_zone = '+00:00'");
+                    reading.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                    position = masterStatus(reading);
+                } finally {
+                    locking.execute("UNLOCK TABLES");
+                }
+            }
+            try (Statement reading = snapshot.createStatement(); ResultSet rows = reading.executeQuery(OCCUPANCY_QUERY)) {
+                OccupancyDeltas occupancy = new OccupancyDeltas();
+                while (rows.next()) {
+                    LocalDate checkin = rows.getObject(2, LocalDate.class);
+                    LocalDate checkout = rows.getObject(3, LocalDate.class);
+                    // Same nights as the decoder: a same-day stay still occupies the check-in night
+                    LocalDate endNight = checkout.isAfter(checkin) ? checkout : checkin.plusDays(1);
+                    occupancy.fold(new BookingChange(null,
+                            new BookingImage(rows.getLong(1), checkin, endNight, rows.getInt(4), "PENDING"), position));
+                }
+                return new OccupancySnapshot(position, occupancy);
+            } finally {
+                try (Statement reading = snapshot.createStatement()) {
+                    reading.execute("COMMIT");
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read booking occupancy from MySQL", e);
+        }
+    }
+
+    private static BinlogPosition masterStatus(Statement statement) throws SQLException {
+        try (ResultSet status = statement.executeQuery("SHOW MASTER STATUS")) {
+            if (!status.next()) {
+                throw new IllegalStateException("Binary logging is off, there is no binlog position to resume from");
+            }
+            return new BinlogPosition(status.getString("File"), status.getLong("Position"));
+        }
+    }
+}
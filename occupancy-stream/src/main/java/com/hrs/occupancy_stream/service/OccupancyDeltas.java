@@ -0,0 +1,52 @@
+package com.hrs.occupancy_stream.service;
+
+import com.hrs.occupancy_stream.model.BookingChange;
+import com.hrs.occupancy_stream.model.BookingImage;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Net change in booked guests per hotel and night over a batch of booking changes. The before image of a change is
+ * taken out and the after image put in, so a cancellation or a moved stay only touches the nights that differ.
+ */
+public class OccupancyDeltas {
+
+    private final Map<Long, Map<LocalDate, Integer>> byHotel = new HashMap<>();
+
+    public void fold(BookingChange change) {
+        if (change.before() != null && change.before().occupies()) {
+            add(change.before(), -change.before().guests());
+        }
+        if (change.after() != null && change.after().occupies()) {
+            add(change.after(), change.after().guests());
+        }
+    }
+
+    public boolean isEmpty() {
+        return byHotel.isEmpty();
+    }
+
+    /**
+     * Non-zero deltas per hotel, nights in ascending order.
+     */
+    public void forEach(BiConsumer<Long, Map<LocalDate, Integer>> action) {
+        byHotel.forEach(action);
+    }
+
+    private void add(BookingImage booking, int delta) {
+        Map<LocalDate, Integer> nights = byHotel.computeIfAbsent(booking.hotelId(), id -> new TreeMap<>());
+        for (LocalDate night = booking.firstNight(); night.isBefore(booking.endNight()); night = night.plusDays(1)) {
+            // Entries that cancel out are dropped, they would only cost Redis writes
+            if (nights.merge(night, delta, Integer::sum) == 0) {
+                nights.remove(night);
+            }
+        }
+        if (nights.isEmpty()) {
+            byHotel.remove(booking.hotelId());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.hrs.occupancy_stream.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import com.hrs.occupancy_stream.model.BookingChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Folds the Debezium bookings topic into per-hotel, per-night occupancy in an {@link OccupancyStore}.
+ * <p>
+ * Each polled batch becomes one set of net deltas, applied together with the batch's offsets in one atomic store
+ * update. The store, not Kafka, owns the consumer position: on assignment the consumer seeks to the stored offsets,
+ * and a batch whose records the store has already applied (a replay after a crash, or a consumer that lost its
+ * partitions without noticing) is rejected and the partitions are rewound. Offsets are still committed to Kafka
+ * afterwards, only so consumer lag stays visible.
+ * <p>
+ * An empty store is seeded from MySQL instead of replaying the topic, which holds only what retention kept. The
+ * topic's end offsets are read before the snapshot, so the records past them whose changes the snapshot already
+ * contains are recognised by their binlog position and skipped.
+ */
+@ApplicationScoped
+public class OccupancyMaterializer {
+
+    private static final Logger LOG = Logger.getLogger(OccupancyMaterializer.class);
+
+    @Inject
+    OccupancyStore store;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    BookingSnapshotReader snapshotReader;
+
+    @ConfigProperty(name = "kafka.bootstrap.servers", defaultValue = "kafka:9092")
+    String bootstrapServers;
+
+    @ConfigProperty(name = "quarkus.occupancy-stream.topic", defaultValue = "connect.hrs_booking.bookings")
+    String topic;
+
+    @ConfigProperty(name = "quarkus.occupancy-stream.group-id", defaultValue = "occupancy-stream")
+    String groupId;
+
+    @ConfigProperty(name = "quarkus.occupancy-stream.poll-timeout", defaultValue = "PT1S")
+    Duration pollTimeout;
+
+    // Pause before polling again after the store failed, the failed batch is read again
+    @ConfigProperty(name = "quarkus.occupancy-stream.retry-backoff", defaultValue = "PT1S")
+    Duration retryBackoff;
+
+    private BookingChangeDecoder decoder;
+    private Counter appliedRecords;
+    private Counter skippedRecords;
+    private Counter seededRecords;
+    private Counter rejectedBatches;
+    private Counter seeds;
+
+    // Changes at binlog positions before this one are in the seed, only read and written on the poll thread
+    private BinlogPosition seededAt;
+
+    private volatile boolean running;
+    private volatile KafkaConsumer<String, String> consumer;
+    private Thread pollThread;
+
+    @PostConstruct
+    void init() {
+        decoder = new BookingChangeDecoder(objectMapper);
+        appliedRecords = Counter.builder("occupancy.stream.records").tag("result", "applied").register(meterRegistry);
+        skippedRecords = Counter.builder("occupancy.stream.records").tag("result", "skipped").register(meterRegistry);
+        seededRecords = Counter.builder("occupancy.stream.records").tag("result", "seeded").register(meterRegistry);
+        seeds = Counter.builder("occupancy.stream.seeds")
+                .description("Empty stores seeded from MySQL by this instance")
+                .register(meterRegistry);
+        rejectedBatches = Counter.builder("occupancy.stream.rejected.batches")
+                .description("Batches already applied by the store, the consumer was rewound")
+                .register(meterRegistry);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        running = true;
+        pollThread = new Thread(this::run, "occupancy-stream");
+        pollThread.start();
+    }
+
+    void onStop(@Observes ShutdownEvent event) throws InterruptedException {
+        running = false;
+        KafkaConsumer<String, String> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        if (pollThread != null) {
+            pollThread.join(Duration.ofSeconds(10).toMillis());
+        }
+    }
+
+    private void run() {
+        try (KafkaConsumer<String, String> kafkaConsumer = new KafkaConsumer<>(consumerConfig(), new StringDeserializer(), new StringDeserializer())) {
+            consumer = kafkaConsumer;
+            kafkaConsumer.subscribe(List.of(topic), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    // Nothing buffered, every batch is in the store before the next poll
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    rewind(kafkaConsumer, partitions);
+                }
+            });
+            boolean rewindFirst = false;
+            while (running) {
+                try {
+                    if (rewindFirst) {
+                        // The failed batch was already consumed, read it again from the stored offsets
+                        rewind(kafkaConsumer, kafkaConsumer.assignment());
+                        rewindFirst = false;
+                    }
+                    pollOnce(kafkaConsumer);
+                } catch (WakeupException e) {
+                    // Shutting down
+                } catch (Exception e) {
+                    LOG.warnf(e, "Could not apply booking changes from %s, retrying in %s", topic, retryBackoff);
+                    rewindFirst = true;
+                    backOff();
+                }
+            }
+        } finally {
+            consumer = null;
+        }
+    }
+
+    /**
+     * Polls one batch and applies it to the store.
+     */
+    void pollOnce(Consumer<String, String> kafkaConsumer) {
+        ConsumerRecords<String, String> records = kafkaConsumer.poll(pollTimeout);
+        if (records.isEmpty()) {
+            return;
+        }
+        OccupancyDeltas deltas = new OccupancyDeltas();
+        Map<TopicPartition, OccupancyStore.OffsetRange> offsets = new HashMap<>();
+        int skipped = 0;
+        int seeded = 0;
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, String>> partitionRecords = records.records(partition);
+            offsets.put(partition, new OccupancyStore.OffsetRange(partitionRecords.get(0).offset(),
+                    partitionRecords.get(partitionRecords.size() - 1).offset()));
+            for (ConsumerRecord<String, String> record : partitionRecords) {
+                try {
+                    BookingChange change = decoder.decode(record.value());
+                    if (change != null && isSeeded(change)) {
+                        seeded++;
+                    } else if (change != null) {
+                        deltas.fold(change);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // One unreadable event must not stall the partition, it is logged and left out
+                    LOG.warnf(e, "Skipping booking change %s-%d@%d", partition.topic(), partition.partition(), record.offset());
+                    skipped++;
+                }
+            }
+        }
+
+        if (!store.apply(offsets, deltas)) {
+            LOG.infof("Batch from %s already applied, resuming from the stored offsets", offsets.keySet());
+            rejectedBatches.increment();
+            rewind(kafkaConsumer, offsets.keySet());
+            return;
+        }
+        appliedRecords.increment(records.count() - skipped - seeded);
+        skippedRecords.increment(skipped);
+        seededRecords.increment(seeded);
+
+        Map<TopicPartition, OffsetAndMetadata> next = new HashMap<>();
+        offsets.forEach((partition, range) -> next.put(partition, new OffsetAndMetadata(range.last() + 1)));
+        kafkaConsumer.commitAsync(next, null);
+    }
+
+    /**
+     * Positions the consumer right after the last record the store applied from each partition, seeding the store
+     * first if it is empty.
+     */
+    void rewind(Consumer<String, String> kafkaConsumer, Collection<TopicPartition> partitions) {
+        if (!partitions.isEmpty() && store.isEmpty()) {
+            seed(kafkaConsumer);
+        }
+        seededAt = store.seededAt();
+        Map<TopicPartition, Long> applied = store.appliedOffsets(partitions);
+        for (TopicPartition partition : partitions) {
+            Long offset = applied.get(partition);
+            if (offset != null) {
+                kafkaConsumer.seek(partition, offset + 1);
+            } else {
+                // A partition added after the seed (or any partition of a store built from the topic alone), its
+                // whole history is still in Kafka and Kafka's committed offset would skip some of it
+                kafkaConsumer.seekToBeginning(List.of(partition));
+            }
+        }
+    }
+
+    private void seed(Consumer<String, String> kafkaConsumer) {
+        List<TopicPartition> partitions = kafkaConsumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        // Before the snapshot: every record below these offsets was written, so committed, before it was taken
+        Map<TopicPartition, Long> endOffsets = kafkaConsumer.endOffsets(partitions);
+        OccupancySnapshot snapshot = snapshotReader.read();
+        Map<TopicPartition, Long> applied = new HashMap<>();
+        endOffsets.forEach((partition, end) -> applied.put(partition, end - 1));
+        if (store.seed(snapshot, applied)) {
+            LOG.infof("Seeded occupancy from MySQL at binlog position %s, resuming %s at %s", snapshot.position(), topic, endOffsets);
+            seeds.increment();
+        } else {
+            LOG.info("Occupancy was seeded by another instance first");
+        }
+    }
+
+    private boolean isSeeded(BookingChange change) {
+        return seededAt != null && change.source() != null && change.source().compareTo(seededAt) < 0;
+    }
+
+    private Properties consumerConfig() {
+        Properties config = new Properties();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        return config;
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(retryBackoff.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
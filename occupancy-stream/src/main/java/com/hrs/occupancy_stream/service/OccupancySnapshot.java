@@ -0,0 +1,12 @@
+package com.hrs.occupancy_stream.service;
+
+import com.hrs.occupancy_stream.model.BinlogPosition;
+
+/**
+ * Occupancy of every hotel as read from MySQL at one point of the binlog. The occupancy is folded into empty deltas,
+ * so its values are absolute guest counts.
+ *
+ * @param position binlog position the read was consistent with, every change before it is in the occupancy
+ */
+public record OccupancySnapshot(BinlogPosition position, OccupancyDeltas occupancy) {
+}
@@ -0,0 +1,48 @@
+package com.hrs.occupancy_stream.service;
+
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Where the occupancy aggregates live, together with the offset of the last change folded into them per partition.
+ * Keeping both in one store and updating them in one atomic step is what makes every change count exactly once.
+ */
+public interface OccupancyStore {
+
+    /**
+     * Offset of the last applied record per partition. Partitions nothing was applied from yet are absent.
+     */
+    Map<TopicPartition, Long> appliedOffsets(Collection<TopicPartition> partitions);
+
+    /**
+     * Applies the deltas and records each partition's last offset, all or nothing.
+     *
+     * @param offsets first and last offset of the records the deltas were folded from, per partition
+     * @return false, with nothing applied, if a partition already has an offset at or past its first offset here
+     */
+    boolean apply(Map<TopicPartition, OffsetRange> offsets, OccupancyDeltas deltas);
+
+    /**
+     * True if nothing was ever applied or seeded, from any partition.
+     */
+    boolean isEmpty();
+
+    /**
+     * Replaces all occupancy with the snapshot and records the offsets to resume after, all or nothing.
+     *
+     * @param appliedOffsets per partition of the topic, the offset of the last record written before the snapshot
+     * @return false, with nothing changed, if the store is no longer empty (another instance seeded it first)
+     */
+    boolean seed(OccupancySnapshot snapshot, Map<TopicPartition, Long> appliedOffsets);
+
+    /**
+     * Binlog position of the snapshot the store was seeded from, null if it was built from the topic alone.
+     */
+    BinlogPosition seededAt();
+
+    record OffsetRange(long first, long last) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.hrs.occupancy_stream.service;
+
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.keys.KeyScanArgs;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Response;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Occupancy in Redis: one hash per hotel, occupancy:{hotelId}, mapping ISO nights (2025-03-01) to booked guests.
+ * Nights without guests have no field. The gateway reads these hashes, see MaterializedOccupancy there.
+ * Applied offsets are kept in the occupancy-offsets hash, field topic:partition, next to the seeded-at field for a
+ * store seeded from MySQL.
+ * <p>
+ * A seed is written to staging hashes first and then renamed over the hotel hashes by one script, so readers and
+ * concurrent seeders never see half of it. Staging hashes expire, a seeder that died midway leaves nothing behind.
+ */
+@ApplicationScoped
+public class RedisOccupancyStore implements OccupancyStore {
+
+    static final String HOTEL_KEY_PREFIX = "occupancy:";
+    static final String OFFSETS_KEY = "occupancy-offsets";
+    static final String SEEDED_AT_FIELD = "seeded-at";
+    private static final String STAGING_KEY_PREFIX = "occupancy-seed:";
+    private static final Duration STAGING_TTL = Duration.ofHours(1);
+
+    // KEYS[1] offsets hash, KEYS[2..] hotel hashes
+    // ARGV: partition count, per partition (field, first offset, last offset), then per hotel key (night count, night/delta pairs)
+    private static final String APPLY_SCRIPT = """
+            local partitions = tonumber(ARGV[1])
+            for i = 0, partitions - 1 do
+              local applied = redis.call('HGET', KEYS[1], ARGV[2 + i * 3])
+              if applied and tonumber(applied) >= tonumber(ARGV[3 + i * 3]) then
+                return 0
+              end
+            end
+            local a = 2 + partitions * 3
+            for k = 2, #KEYS do
+              local nights = tonumber(ARGV[a])
+              a = a + 1
+              for j = 1, nights do
+                if redis.call('HINCRBY', KEYS[k], ARGV[a], ARGV[a + 1]) == 0 then
+                  redis.call('HDEL', KEYS[k], ARGV[a])
+                end
+                a = a + 2
+              end
+            end
+            for i = 0, partitions - 1 do
+              redis.call('HSET', KEYS[1], ARGV[2 + i * 3], ARGV[4 + i * 3])
+            end
+            return 1
+            """;
+
+    // KEYS[1] offsets hash, KEYS[2..] staged hashes, then the hotel hashes they become, then stale hotel hashes
+    // ARGV: staged count, seed position, then per partition (field, offset)
+    private static final String SEED_SCRIPT = """
+            local staged = tonumber(ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              for k = 2, 1 + staged do
+                redis.call('DEL', KEYS[k])
+              end
+              return 0
+            end
+            for k = 2, 1 + staged do
+              if redis.call('EXISTS', KEYS[k]) == 0 then
+                return redis.error_reply('Seed staging hash expired: ' .. KEYS[k])
+              end
+            end
+            for k = 2 + staged * 2, #KEYS do
+              redis.call('DEL', KEYS[k])
+            end
+            for k = 2, 1 + staged do
+              redis.call('RENAME', KEYS[k], KEYS[k + staged])
+              redis.call('PERSIST', KEYS[k + staged])
+            end
+            redis.call('HSET', KEYS[1], 'seeded-at', ARGV[2])
+            for a = 3, #ARGV, 2 do
+              redis.call('HSET', KEYS[1], ARGV[a], ARGV[a + 1])
+            end
+            return 1
+            """;
+
+    @Inject
+    RedisDataSource redisDataSource;
+
+    @Override
+    public Map<TopicPartition, Long> appliedOffsets(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        if (partitions.isEmpty()) {
+            return offsets;
+        }
+        List<TopicPartition> ordered = new ArrayList<>(partitions);
+        List<String> args = new ArrayList<>();
+        args.add(OFFSETS_KEY);
+        ordered.forEach(partition -> args.add(field(partition)));
+        Response values = redisDataSource.execute(Command.HMGET, args.toArray(String[]::new));
+        for (int i = 0; i < ordered.size(); i++) {
+            Response value = values.get(i);
+            if (value != null) {
+                offsets.put(ordered.get(i), value.toLong());
+            }
+        }
+        return offsets;
+    }
+
+    @Override
+    public boolean apply(Map<TopicPartition, OffsetRange> offsets, OccupancyDeltas deltas) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        keys.add(OFFSETS_KEY);
+        args.add(Integer.toString(offsets.size()));
+        offsets.forEach((partition, range) -> {
+            args.add(field(partition));
+            args.add(Long.toString(range.first()));
+            args.add(Long.toString(range.last()));
+        });
+        deltas.forEach((hotelId, nights) -> {
+            keys.add(HOTEL_KEY_PREFIX + hotelId);
+            args.add(Integer.toString(nights.size()));
+            nights.forEach((night, delta) -> {
+                args.add(night.toString());
+                args.add(Integer.toString(delta));
+            });
+        });
+
+        // Plain EVAL, one call per polled batch does not make the script body worth caching by SHA1
+        return eval(APPLY_SCRIPT, keys, args);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return redisDataSource.execute(Command.EXISTS, OFFSETS_KEY).toInteger() == 0;
+    }
+
+    @Override
+    public boolean seed(OccupancySnapshot snapshot, Map<TopicPartition, Long> appliedOffsets) {
+        String staging = STAGING_KEY_PREFIX + UUID.randomUUID() + ":";
+        List<String> staged = new ArrayList<>();
+        List<String> targets = new ArrayList<>();
+        snapshot.occupancy().forEach((hotelId, nights) -> {
+            List<String> args = new ArrayList<>();
+            args.add(staging + hotelId);
+            nights.forEach((night, guests) -> {
+                args.add(night.toString());
+                args.add(Integer.toString(guests));
+            });
+            redisDataSource.execute(Command.HSET, args.toArray(String[]::new));
+            redisDataSource.execute(Command.PEXPIRE, staging + hotelId, Long.toString(STAGING_TTL.toMillis()));
+            staged.add(staging + hotelId);
+            targets.add(HOTEL_KEY_PREFIX + hotelId);
+        });
+
+        List<String> keys = new ArrayList<>();
+        keys.add(OFFSETS_KEY);
+        keys.addAll(staged);
+        keys.addAll(targets);
+        // Hashes left from before the store was emptied, hotels without bookings now must not keep them
+        redisDataSource.key().scan(new KeyScanArgs().match(HOTEL_KEY_PREFIX + "*").count(1000)).toIterable().forEach(keys::add);
+        List<String> args = new ArrayList<>();
+        args.add(Integer.toString(staged.size()));
+        args.add(snapshot.position().toString());
+        appliedOffsets.forEach((partition, offset) -> {
+            args.add(field(partition));
+            args.add(Long.toString(offset));
+        });
+        return eval(SEED_SCRIPT, keys, args);
+    }
+
+    @Override
+    public BinlogPosition seededAt() {
+        Response value = redisDataSource.execute(Command.HGET, OFFSETS_KEY, SEEDED_AT_FIELD);
+        return value == null ? null : BinlogPosition.parse(value.toString());
+    }
+
+    private boolean eval(String script, List<String> keys, List<String> args) {
+        List<String> command = new ArrayList<>(keys.size() + args.size() + 2);
+        command.add(script);
+        command.add(Integer.toString(keys.size()));
+        command.addAll(keys);
+        command.addAll(args);
+        return redisDataSource.execute(Command.EVAL, command.toArray(String[]::new)).toInteger() == 1;
+    }
+
+    private static String field(TopicPartition partition) {
+        return partition.topic() + ":" + partition.partition();
+    }
+}
@@ -0,0 +1,57 @@
+package com.hrs.occupancy_stream.service;
+
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.runtime.datasource.BlockingRedisDataSourceImpl;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.RedisAPI;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+
+/**
+ * A redis-server process on a free port, with the blocking data source the store is injected with in the app.
+ */
+class EmbeddedRedis implements AutoCloseable {
+
+    private final RedisServer server;
+    private final Vertx vertx;
+    private final Redis client;
+    private final RedisDataSource dataSource;
+
+    EmbeddedRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new RedisServer(port);
+        server.start();
+        vertx = Vertx.vertx();
+        client = Redis.createClient(vertx, "redis://localhost:" + port);
+        dataSource = new BlockingRedisDataSourceImpl(vertx, client, RedisAPI.api(client), Duration.ofSeconds(10));
+    }
+
+    RedisDataSource dataSource() {
+        return dataSource;
+    }
+
+    RedisOccupancyStore store() {
+        RedisOccupancyStore store = new RedisOccupancyStore();
+        store.redisDataSource = dataSource;
+        return store;
+    }
+
+    void flushAll() {
+        dataSource.execute(Command.FLUSHALL);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+        vertx.closeAndAwait();
+        server.stop();
+    }
+}
@@ -0,0 +1,169 @@
+package com.hrs.occupancy_stream.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Response;
+import kafka.testkit.KafkaClusterTestKit;
+import kafka.testkit.TestKitNodes;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two materializers on a real (in-process KRaft) Kafka cluster and a real Redis, handing partitions over while
+ * bookings keep coming in.
+ */
+public class OccupancyMaterializerRebalanceTest {
+
+    private static final String TOPIC = "connect.hrs_booking.bookings";
+    private static final int HOTELS = 3;
+
+    private static KafkaClusterTestKit cluster;
+    private static EmbeddedRedis redis;
+    private static KafkaProducer<String, String> producer;
+    private static long binlogPosition = 1000;
+
+    @BeforeAll
+    public static void startCluster() throws Exception {
+        cluster = new KafkaClusterTestKit.Builder(new TestKitNodes.Builder()
+                .setCombined(true)
+                .setNumBrokerNodes(1)
+                .setNumControllerNodes(1)
+                .build())
+                .setConfigProp("group.initial.rebalance.delay.ms", "0")
+                .setConfigProp("offsets.topic.replication.factor", "1")
+                .setConfigProp("offsets.topic.num.partitions", "1")
+                .build();
+        cluster.format();
+        cluster.startup();
+        cluster.waitForReadyBrokers();
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, cluster.bootstrapServers()))) {
+            admin.createTopics(List.of(new NewTopic(TOPIC, 2, (short) 1))).all().get();
+        }
+        producer = new KafkaProducer<>(Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, cluster.bootstrapServers()),
+                new StringSerializer(), new StringSerializer());
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    public static void stopCluster() throws Exception {
+        producer.close();
+        redis.close();
+        cluster.close();
+    }
+
+    @Test
+    public void testEveryBookingCountsOnceAcrossRebalances() throws Exception {
+        MeterRegistry firstMeters = new SimpleMeterRegistry();
+        MeterRegistry secondMeters = new SimpleMeterRegistry();
+        OccupancyMaterializer first = materializer(firstMeters);
+        OccupancyMaterializer second = materializer(secondMeters);
+        try {
+            first.onStart(null);
+            awaitTrue(() -> !redis.store().isEmpty()); // Seeded, empty, on its first assignment
+            book(0, 20);
+            awaitTrue(() -> applied(firstMeters) == 20);
+
+            // Joining splits the partitions between both instances
+            second.onStart(null);
+            awaitTrue(() -> assignedMembers() == 2);
+            book(20, 40);
+            awaitTrue(() -> applied(secondMeters) > 0 && applied(firstMeters) + applied(secondMeters) == 40);
+
+            // Leaving hands the first instance's partition to the second, which resumes from Redis
+            first.onStop(null);
+            awaitTrue(() -> assignedMembers() == 1);
+            book(40, 60);
+            awaitTrue(() -> applied(firstMeters) + applied(secondMeters) == 60);
+        } finally {
+            first.onStop(null);
+            second.onStop(null);
+        }
+
+        for (int hotel = 1; hotel <= HOTELS; hotel++) {
+            assertEquals(Map.of("2025-05-01", Integer.toString(60 / HOTELS)), nights(hotel));
+        }
+    }
+
+    private static OccupancyMaterializer materializer(MeterRegistry meterRegistry) {
+        OccupancyMaterializer materializer = new OccupancyMaterializer();
+        materializer.store = redis.store();
+        materializer.objectMapper = new ObjectMapper();
+        materializer.meterRegistry = meterRegistry;
+        materializer.snapshotReader = new BookingSnapshotReader() {
+            @Override
+            public OccupancySnapshot read() {
+                return new OccupancySnapshot(new BinlogPosition("binlog.000001", 4), new OccupancyDeltas());
+            }
+        };
+        materializer.bootstrapServers = cluster.bootstrapServers();
+        materializer.topic = TOPIC;
+        materializer.groupId = "occupancy-stream";
+        materializer.pollTimeout = Duration.ofMillis(100);
+        materializer.retryBackoff = Duration.ofMillis(100);
+        materializer.init();
+        return materializer;
+    }
+
+    // One guest per booking on a single night, keyed by booking id so the bookings spread over both partitions
+    private static void book(int fromId, int toId) {
+        for (int id = fromId; id < toId; id++) {
+            String row = OccupancyMaterializerTest.row(id % HOTELS + 1, "2025-05-01T00:00:00Z", "2025-05-02T00:00:00Z", 1, "PENDING");
+            String event = OccupancyMaterializerTest.event(null, row, "binlog.000002", binlogPosition++);
+            producer.send(new ProducerRecord<>(TOPIC, Integer.toString(id), event));
+        }
+        producer.flush();
+    }
+
+    private static int assignedMembers() {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, cluster.bootstrapServers()))) {
+            ConsumerGroupDescription group = admin.describeConsumerGroups(List.of("occupancy-stream")).all().get().get("occupancy-stream");
+            if (group.state() != ConsumerGroupState.STABLE) {
+                return 0;
+            }
+            return (int) group.members().stream().filter(member -> !member.assignment().topicPartitions().isEmpty()).count();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double applied(MeterRegistry meterRegistry) {
+        return meterRegistry.get("occupancy.stream.records").tag("result", "applied").counter().count();
+    }
+
+    private static Map<String, String> nights(long hotelId) {
+        Map<String, String> nights = new TreeMap<>();
+        Response hash = redis.dataSource().execute(Command.HGETALL, RedisOccupancyStore.HOTEL_KEY_PREFIX + hotelId);
+        hash.getKeys().forEach(night -> nights.put(night, hash.get(night).toString()));
+        return nights;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 600 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,276 @@
+package com.hrs.occupancy_stream.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import com.hrs.occupancy_stream.model.BookingChange;
+import com.hrs.occupancy_stream.model.BookingImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OccupancyMaterializerTest {
+
+    private static final String TOPIC = "connect.hrs_booking.bookings";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition OTHER_PARTITION = new TopicPartition(TOPIC, 1);
+
+    private InMemoryStore store;
+    private OccupancySnapshot snapshot;
+    private OccupancyMaterializer materializer;
+
+    @BeforeEach
+    public void setUp() {
+        store = new InMemoryStore();
+        materializer = new OccupancyMaterializer();
+        materializer.store = store;
+        materializer.objectMapper = new ObjectMapper();
+        materializer.meterRegistry = new SimpleMeterRegistry();
+        materializer.pollTimeout = Duration.ZERO;
+        materializer.topic = TOPIC;
+        materializer.snapshotReader = new BookingSnapshotReader() {
+            @Override
+            public OccupancySnapshot read() {
+                return snapshot;
+            }
+        };
+        materializer.init();
+        // Tests that do not seed start from a store that already applied something elsewhere
+        store.applied.put(new TopicPartition(TOPIC, 99), 0L);
+        snapshot = new OccupancySnapshot(new BinlogPosition("binlog.000001", 4), new OccupancyDeltas());
+    }
+
+    @Test
+    public void testFoldsInsertMoveCancelAndDelete() {
+        MockConsumer<String, String> consumer = assignedConsumer();
+        String booked = row(7, "2025-03-01T00:00:00Z", "2025-03-03T00:00:00Z", 2, "PENDING");
+        String moved = row(7, "2025-03-02T00:00:00Z", "2025-03-04T00:00:00Z", 2, "PENDING");
+        String other = row(7, "2025-03-02T00:00:00Z", "2025-03-03T00:00:00Z", 1, "PENDING");
+        consumer.addRecord(record(0, event(null, booked)));
+        consumer.addRecord(record(1, event(booked, moved)));
+        consumer.addRecord(record(2, event(null, other)));
+        materializer.pollOnce(consumer);
+        assertEquals(Map.of(LocalDate.parse("2025-03-02"), 3, LocalDate.parse("2025-03-03"), 2), store.nights(7));
+
+        String cancelled = row(7, "2025-03-02T00:00:00Z", "2025-03-04T00:00:00Z", 2, "CANCELLED");
+        consumer.addRecord(record(3, event(moved, cancelled)));
+        consumer.addRecord(record(4, event(other, null)));
+        consumer.addRecord(record(5, null)); // Tombstone
+        materializer.pollOnce(consumer);
+        assertEquals(Map.of(), store.nights(7));
+        assertEquals(5L, store.applied.get(PARTITION));
+    }
+
+    @Test
+    public void testRestartDoesNotApplyChangesTwice() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, event(null, row(3, "2025-06-10T00:00:00Z", "2025-06-11T00:00:00Z", 2, "PENDING"))),
+                record(1, event(null, row(3, "2025-06-10T00:00:00Z", "2025-06-11T00:00:00Z", 1, "PENDING"))),
+                record(2, event(null, row(3, "2025-06-10T00:00:00Z", "2025-06-11T00:00:00Z", 4, "PENDING"))));
+        MockConsumer<String, String> consumer = assignedConsumer();
+        consumer.addRecord(records.get(0));
+        consumer.addRecord(records.get(1));
+        materializer.pollOnce(consumer);
+
+        // A new consumer sees the whole partition again, as after a crash before the Kafka commit
+        MockConsumer<String, String> restarted = assignedConsumer();
+        records.forEach(restarted::addRecord);
+        materializer.pollOnce(restarted);
+        assertEquals(Map.of(LocalDate.parse("2025-06-10"), 7), store.nights(3));
+        assertEquals(3, restarted.position(PARTITION));
+    }
+
+    @Test
+    public void testAlreadyAppliedBatchIsRejectedAndRewound() {
+        store.applied.put(PARTITION, 1L);
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(List.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.seek(PARTITION, 0); // Positioned behind the store, like a consumer that missed a rebalance
+        consumer.addRecord(record(0, event(null, row(3, "2025-06-10T00:00:00Z", "2025-06-12T00:00:00Z", 2, "PENDING"))));
+        consumer.addRecord(record(1, event(null, row(3, "2025-06-10T00:00:00Z", "2025-06-12T00:00:00Z", 2, "PENDING"))));
+
+        materializer.pollOnce(consumer);
+        assertEquals(Map.of(), store.nights(3));
+        assertEquals(2, consumer.position(PARTITION));
+    }
+
+    @Test
+    public void testEmptyStoreIsSeededFromMySqlAndSkipsWhatTheSeedCovers() {
+        store.applied.clear();
+        OccupancyDeltas occupancy = new OccupancyDeltas();
+        occupancy.fold(new BookingChange(null, new BookingImage(5, LocalDate.parse("2025-04-01"), LocalDate.parse("2025-04-03"), 2, "PENDING"), null));
+        snapshot = new OccupancySnapshot(new BinlogPosition("binlog.000007", 900), occupancy);
+
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(TOPIC, List.of(partitionInfo(0), partitionInfo(1)));
+        // Retention dropped offsets 0 to 9 of partition 0, which held the snapshot's booking
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 10L, OTHER_PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 12L, OTHER_PARTITION, 0L));
+        consumer.assign(List.of(PARTITION));
+        materializer.rewind(consumer, List.of(PARTITION));
+        assertEquals(12, consumer.position(PARTITION));
+        assertEquals(Map.of(PARTITION, 11L, OTHER_PARTITION, -1L), store.appliedOffsets(List.of(PARTITION, OTHER_PARTITION)));
+
+        String row = row(5, "2025-04-02T00:00:00Z", "2025-04-03T00:00:00Z", 1, "PENDING");
+        // Written to Kafka after the end offsets were read, but committed in MySQL before the snapshot
+        consumer.addRecord(record(12, event(null, row, "binlog.000007", 800)));
+        consumer.addRecord(record(13, event(null, row, "binlog.000008", 4)));
+        materializer.pollOnce(consumer);
+        assertEquals(Map.of(LocalDate.parse("2025-04-01"), 2, LocalDate.parse("2025-04-02"), 3), store.nights(5));
+
+        // A second instance finds the store seeded and does not read MySQL again
+        snapshot = null;
+        MockConsumer<String, String> other = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        other.assign(List.of(OTHER_PARTITION));
+        materializer.rewind(other, List.of(OTHER_PARTITION));
+        assertEquals(0, other.position(OTHER_PARTITION));
+    }
+
+    @Test
+    public void testStoreBuiltFromTheTopicIsNotSeeded() {
+        snapshot = null;
+        MockConsumer<String, String> consumer = assignedConsumer();
+        consumer.addRecord(record(0, event(null, row(3, "2025-06-10T00:00:00Z", "2025-06-11T00:00:00Z", 2, "PENDING"), "binlog.000001", 4)));
+        materializer.pollOnce(consumer);
+
+        assertNull(store.seededAt());
+        assertEquals(Map.of(LocalDate.parse("2025-06-10"), 2), store.nights(3));
+    }
+
+    @Test
+    public void testBinlogPositionsCompareAcrossFiles() {
+        assertTrue(new BinlogPosition("binlog.000009", 9000).compareTo(new BinlogPosition("binlog.000010", 4)) < 0);
+        assertTrue(BinlogPosition.parse("binlog.000010:120").compareTo(new BinlogPosition("binlog.000010", 4)) > 0);
+        assertEquals("binlog.000010:120", BinlogPosition.parse("binlog.000010:120").toString());
+    }
+
+    @Test
+    public void testDecodesEventsWithoutSchemaEnvelope() {
+        MockConsumer<String, String> consumer = assignedConsumer();
+        // Epoch milliseconds as sent for DATETIME columns, a same-day stay still takes one night
+        String sameDay = "{\"hotel_id\":9,\"check_in_date\":1741824000000,\"check_out_date\":1741838400000,"
+                + "\"number_of_guests\":3,\"booking_status\":\"PENDING\"}";
+        consumer.addRecord(record(0, "{\"before\":null,\"after\":" + sameDay + ",\"op\":\"c\"}"));
+        consumer.addRecord(record(1, "not json"));
+        materializer.pollOnce(consumer);
+
+        assertEquals(Map.of(LocalDate.parse("2025-03-13"), 3), store.nights(9));
+        assertEquals(1L, store.applied.get(PARTITION)); // The unreadable event is skipped, not retried forever
+        assertFalse(store.occupancy.containsKey(0L));
+        assertTrue(new BookingChangeDecoder(new ObjectMapper()).decode(null) == null);
+    }
+
+    private MockConsumer<String, String> assignedConsumer() {
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(List.of(PARTITION));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        materializer.rewind(consumer, List.of(PARTITION));
+        return consumer;
+    }
+
+    private static PartitionInfo partitionInfo(int partition) {
+        Node broker = new Node(0, "localhost", 9092);
+        return new PartitionInfo(TOPIC, partition, broker, new Node[]{broker}, new Node[]{broker});
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String value) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, null, value);
+    }
+
+    static String row(long hotelId, String checkin, String checkout, int guests, String status) {
+        return "{\"id\":1,\"hotel_id\":" + hotelId + ",\"user_id\":1,\"check_in_date\":\"" + checkin
+                + "\",\"check_out_date\":\"" + checkout + "\",\"number_of_guests\":" + guests
+                + ",\"total_price\":100,\"booking_status\":\"" + status + "\"}";
+    }
+
+    // Debezium envelope as written by the JsonConverter with schemas enabled, the schema itself is not read
+    private static String event(String before, String after) {
+        String op = before == null ? "c" : after == null ? "d" : "u";
+        return "{\"schema\":{\"type\":\"struct\"},\"payload\":{\"before\":" + before + ",\"after\":" + after
+                + ",\"op\":\"" + op + "\"}}";
+    }
+
+    static String event(String before, String after, String binlogFile, long binlogPosition) {
+        String op = before == null ? "c" : after == null ? "d" : "u";
+        return "{\"schema\":{\"type\":\"struct\"},\"payload\":{\"before\":" + before + ",\"after\":" + after
+                + ",\"source\":{\"connector\":\"mysql\",\"file\":\"" + binlogFile + "\",\"pos\":" + binlogPosition + "}"
+                + ",\"op\":\"" + op + "\"}}";
+    }
+
+    // Same all-or-nothing offset check as the Redis script
+    private static class InMemoryStore implements OccupancyStore {
+        final Map<TopicPartition, Long> applied = new HashMap<>();
+        final Map<Long, Map<LocalDate, Integer>> occupancy = new HashMap<>();
+        BinlogPosition seededAt;
+
+        @Override
+        public Map<TopicPartition, Long> appliedOffsets(Collection<TopicPartition> partitions) {
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            partitions.stream().filter(applied::containsKey).forEach(partition -> offsets.put(partition, applied.get(partition)));
+            return offsets;
+        }
+
+        @Override
+        public boolean apply(Map<TopicPartition, OffsetRange> offsets, OccupancyDeltas deltas) {
+            for (Map.Entry<TopicPartition, OffsetRange> entry : offsets.entrySet()) {
+                Long last = applied.get(entry.getKey());
+                if (last != null && last >= entry.getValue().first()) {
+                    return false;
+                }
+            }
+            deltas.forEach((hotelId, nights) -> nights.forEach((night, delta) -> {
+                Map<LocalDate, Integer> hotel = occupancy.computeIfAbsent(hotelId, id -> new TreeMap<>());
+                if (hotel.merge(night, delta, Integer::sum) == 0) {
+                    hotel.remove(night);
+                }
+            }));
+            offsets.forEach((partition, range) -> applied.put(partition, range.last()));
+            return true;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return applied.isEmpty() && seededAt == null;
+        }
+
+        @Override
+        public boolean seed(OccupancySnapshot snapshot, Map<TopicPartition, Long> appliedOffsets) {
+            if (!isEmpty()) {
+                return false;
+            }
+            occupancy.clear();
+            snapshot.occupancy().forEach((hotelId, nights) -> occupancy.put(hotelId, new TreeMap<>(nights)));
+            applied.putAll(appliedOffsets);
+            seededAt = snapshot.position();
+            return true;
+        }
+
+        @Override
+        public BinlogPosition seededAt() {
+            return seededAt;
+        }
+
+        Map<LocalDate, Integer> nights(long hotelId) {
+            return occupancy.getOrDefault(hotelId, Map.of());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.hrs.occupancy_stream.service;
+
+import com.hrs.occupancy_stream.model.BinlogPosition;
+import com.hrs.occupancy_stream.model.BookingChange;
+import com.hrs.occupancy_stream.model.BookingImage;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Response;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedisOccupancyStoreTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("connect.hrs_booking.bookings", 0);
+    private static final TopicPartition OTHER_PARTITION = new TopicPartition("connect.hrs_booking.bookings", 1);
+
+    private static EmbeddedRedis redis;
+    private RedisOccupancyStore store;
+
+    @BeforeAll
+    public static void startRedis() throws IOException {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    public static void stopRedis() throws IOException {
+        redis.close();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        redis.flushAll();
+        store = redis.store();
+    }
+
+    @Test
+    public void testApplyAddsDeltasAndDropsEmptyNights() {
+        assertTrue(store.isEmpty());
+        assertTrue(store.apply(Map.of(PARTITION, new OccupancyStore.OffsetRange(0, 1)), deltas(7, "2025-03-01", "2025-03-03", 2)));
+        assertEquals(Map.of("2025-03-01", "2", "2025-03-02", "2"), nights(7));
+
+        OccupancyDeltas moved = new OccupancyDeltas();
+        moved.fold(new BookingChange(image(7, "2025-03-01", "2025-03-03", 2), image(7, "2025-03-02", "2025-03-04", 2), null));
+        assertTrue(store.apply(Map.of(PARTITION, new OccupancyStore.OffsetRange(2, 2)), moved));
+        assertEquals(Map.of("2025-03-02", "2", "2025-03-03", "2"), nights(7));
+        assertEquals(Map.of(PARTITION, 2L), store.appliedOffsets(List.of(PARTITION, OTHER_PARTITION)));
+        assertFalse(store.isEmpty());
+        assertNull(store.seededAt());
+    }
+
+    @Test
+    public void testApplyRejectsTheWholeBatchIfAnyPartitionWasApplied() {
+        assertTrue(store.apply(Map.of(PARTITION, new OccupancyStore.OffsetRange(0, 4)), deltas(7, "2025-03-01", "2025-03-02", 1)));
+
+        // The other partition is new, but partition 0 replays offset 4
+        assertFalse(store.apply(Map.of(PARTITION, new OccupancyStore.OffsetRange(4, 6), OTHER_PARTITION, new OccupancyStore.OffsetRange(0, 0)),
+                deltas(7, "2025-03-01", "2025-03-02", 5)));
+        assertEquals(Map.of("2025-03-01", "1"), nights(7));
+        assertEquals(Map.of(PARTITION, 4L), store.appliedOffsets(List.of(PARTITION, OTHER_PARTITION)));
+    }
+
+    @Test
+    public void testSeedReplacesOccupancyAndRecordsWhereToResume() {
+        redis.dataSource().execute(Command.HSET, RedisOccupancyStore.HOTEL_KEY_PREFIX + "3", "2024-01-01", "9"); // Left from before the wipe
+        OccupancyDeltas occupancy = deltas(7, "2025-03-01", "2025-03-03", 2);
+        occupancy.fold(new BookingChange(null, image(8, "2025-03-05", "2025-03-06", 1), null));
+
+        assertTrue(store.seed(new OccupancySnapshot(new BinlogPosition("binlog.000004", 157), occupancy), Map.of(PARTITION, 41L, OTHER_PARTITION, -1L)));
+        assertEquals(Map.of("2025-03-01", "2", "2025-03-02", "2"), nights(7));
+        assertEquals(Map.of("2025-03-05", "1"), nights(8));
+        assertEquals(Map.of(), nights(3));
+        assertEquals(new BinlogPosition("binlog.000004", 157), store.seededAt());
+        assertEquals(Map.of(PARTITION, 41L, OTHER_PARTITION, -1L), store.appliedOffsets(List.of(PARTITION, OTHER_PARTITION)));
+        assertEquals(List.of(), keys("occupancy-seed:*"));
+    }
+
+    @Test
+    public void testSeedIsRefusedOnceTheStoreIsNotEmpty() {
+        assertTrue(store.seed(new OccupancySnapshot(new BinlogPosition("binlog.000004", 157), deltas(7, "2025-03-01", "2025-03-02", 2)), Map.of(PARTITION, 0L)));
+
+        // A slower instance finishes its own snapshot afterwards
+        assertFalse(store.seed(new OccupancySnapshot(new BinlogPosition("binlog.000004", 900), deltas(7, "2025-03-01", "2025-03-02", 5)), Map.of(PARTITION, 3L)));
+        assertEquals(Map.of("2025-03-01", "2"), nights(7));
+        assertEquals(new BinlogPosition("binlog.000004", 157), store.seededAt());
+        assertEquals(List.of(), keys("occupancy-seed:*"));
+    }
+
+    private static OccupancyDeltas deltas(long hotelId, String firstNight, String endNight, int guests) {
+        OccupancyDeltas deltas = new OccupancyDeltas();
+        deltas.fold(new BookingChange(null, image(hotelId, firstNight, endNight, guests), null));
+        return deltas;
+    }
+
+    private static BookingImage image(long hotelId, String firstNight, String endNight, int guests) {
+        return new BookingImage(hotelId, LocalDate.parse(firstNight), LocalDate.parse(endNight), guests, "PENDING");
+    }
+
+    private static Map<String, String> nights(long hotelId) {
+        Map<String, String> nights = new TreeMap<>();
+        Response hash = redis.dataSource().execute(Command.HGETALL, RedisOccupancyStore.HOTEL_KEY_PREFIX + hotelId);
+        hash.getKeys().forEach(night -> nights.put(night, hash.get(night).toString()));
+        return nights;
+    }
+
+    private static List<String> keys(String pattern) {
+        List<String> keys = new ArrayList<>();
+        redis.dataSource().execute(Command.KEYS, pattern).forEach(key -> keys.add(key.toString()));
+        return keys;
+    }
+}